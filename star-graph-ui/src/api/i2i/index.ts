@@ -0,0 +1,29 @@
+import request from "@/utils/request";
+
+class Image2ImageAPI {
+
+    /**
+     * 添加图生图任务（取消、插队、排名查询使用文生图接口）
+     *
+     * @param image 参考图文件
+     * @param data 生成参数，字段与文生图一致，另有denoise(重绘幅度0-1)
+     * @returns
+     */
+    static propmt(image: File, data) {
+        const form = new FormData();
+        form.append("image", image);
+        Object.keys(data).forEach(key => {
+            if (data[key] !== undefined && data[key] !== null) {
+                form.append(key, data[key]);
+            }
+        });
+        return request<any>({
+            url: "/api/authed/1.0/i2i/propmt",
+            method: "post",
+            data: form,
+            headers: { "Content-Type": "multipart/form-data" }
+        });
+    }
+}
+
+export default Image2ImageAPI;
@@ -59,7 +59,7 @@ class Text2ImageAPI {
     }
 
     /**
-     * 获取任务实时排名
+     * 获取任务实时排名（兼容接口，排队序号已改为服务端通过STOMP推送）
      *
      * @param data {tempId: string}
      * @returns Promise<number | null> 当前排队序号，null表示任务已完成或被取消
@@ -71,6 +71,34 @@ class Text2ImageAPI {
             data: data
         });
     }
+
+    /**
+     * 获取任务事件（WebSocket断线重连后补发）
+     *
+     * @param data {tempId: string, afterSeq: number}
+     * @returns Promise<string[]> 之后的事件JSON，按序号升序
+     */
+    static getTaskEvents(data) {
+        return request<any>({
+            url: "/api/authed/1.0/t2i/events",
+            method: "post",
+            data: data
+        });
+    }
+
+    /**
+     * 预翻译提示词（输入过程中调用，提交时直接命中翻译缓存）
+     *
+     * @param data {propmt: string, reverse: string}
+     * @returns
+     */
+    static preTranslate(data) {
+        return request<any>({
+            url: "/api/authed/1.0/t2i/pretranslate",
+            method: "post",
+            data: data
+        });
+    }
 }
 
 export default Text2ImageAPI;
@@ -24,11 +24,12 @@ public interface ComfyuiApi {
     Call<HashMap> getHistoryTasks(@Query("max_items") int maxItems);
 
     /**
-     * 获取预览的图片信息
+     * 获取预览的图片信息（流式读取响应体，不在内存中缓冲整张图片）
      * @param filename 文件名
      * @param type 文件类型(input/output)
      * @param subfolder 子文件夹名
      */
+    @Streaming
     @GET("/view")
     Call<ResponseBody> getView(@Query("filename") String filename, @Query("type") String type, @Query("subfolder") String subfolder);
 
@@ -86,6 +87,15 @@ public interface ComfyuiApi {
     @POST("/upload/image")
     Call<HashMap> uploadImage(@Part MultipartBody.Part image);
 
+    /**
+     * 上传图片，同名文件是否覆盖
+     * @param image 图片文件
+     * @param overwrite "true"时覆盖同名文件，否则ComfyUI自动重命名
+     */
+    @Multipart
+    @POST("/upload/image")
+    Call<HashMap> uploadImage(@Part MultipartBody.Part image, @Part("overwrite") RequestBody overwrite);
+
     /**
      * 上传蒙版图片
      */
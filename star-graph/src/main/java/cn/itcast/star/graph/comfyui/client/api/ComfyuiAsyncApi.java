@@ -0,0 +1,54 @@
+package cn.itcast.star.graph.comfyui.client.api;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiRequestDto;
+import retrofit2.Response;
+import retrofit2.http.Body;
+import retrofit2.http.GET;
+import retrofit2.http.POST;
+import retrofit2.http.Path;
+import retrofit2.http.Query;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ComfyUI异步HTTP API - 与ComfyuiApi共用同一个客户端，返回CompletableFuture
+ *
+ * <p>请求在OkHttp的Dispatcher线程上执行，调用方线程不阻塞；
+ * 取消返回的Future会同时取消HTTP请求。返回Response以便调用方自行处理非2xx响应
+ */
+public interface ComfyuiAsyncApi {
+
+    /**
+     * 添加流程任务
+     * @param body 任务请求体
+     */
+    @POST("/prompt")
+    CompletableFuture<Response<HashMap>> addQueueTask(@Body ComfyuiRequestDto body);
+
+    /**
+     * 中断当前正在执行的任务
+     */
+    @POST("/interrupt")
+    CompletableFuture<Response<Void>> interruptTask();
+
+    /**
+     * 获取队列任务信息
+     */
+    @GET("/queue")
+    CompletableFuture<Response<HashMap>> getQueueTasks();
+
+    /**
+     * 获取历史任务
+     * @param maxItems 获取的条数
+     */
+    @GET("/history")
+    CompletableFuture<Response<HashMap>> getHistoryTasks(@Query("max_items") int maxItems);
+
+    /**
+     * 获取指定历史任务
+     * @param promptId 任务ID
+     */
+    @GET("/history/{promptId}")
+    CompletableFuture<Response<HashMap>> getHistoryTask(@Path("promptId") String promptId);
+}
@@ -0,0 +1,67 @@
+package cn.itcast.star.graph.comfyui.client.connector;
+
+import cn.itcast.star.graph.core.common.Constants;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ComfyUI事件接入租约 - 每个ComfyUI节点只由一个实例建立WebSocket连接
+ *
+ * <p>租约Key为 comfyui_ingest_owner:{WebSocket地址}，值为持有者实例ID。
+ * 持有者每RENEW_INTERVAL续期一次，宕机后租约在LEASE_TTL内过期，由其他实例接管
+ */
+@Component
+public class ComfyuiIngestLease {
+
+    /** 租约Key前缀 */
+    private static final String LEASE_KEY_PREFIX = "comfyui_ingest_owner:";
+    /** 租约有效期 */
+    static final Duration LEASE_TTL = Duration.ofSeconds(15);
+    /** 续期/抢占间隔 */
+    static final Duration RENEW_INTERVAL = Duration.ofSeconds(5);
+    /** 持有者续期 */
+    private static final DefaultRedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+    /** 持有者释放 */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    UpstreamProperties upstreamProperties;
+
+    /**
+     * 续期已持有的租约，未持有时尝试抢占
+     *
+     * @return 本实例是否持有租约
+     */
+    public boolean acquireOrRenew() {
+        String key = leaseKey();
+        Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(key),
+                Constants.INSTANCE_ID, String.valueOf(LEASE_TTL.toMillis()));
+        if (renewed != null && renewed > 0) {
+            return true;
+        }
+        return Boolean.TRUE.equals(stringRedisTemplate.opsForValue().setIfAbsent(key, Constants.INSTANCE_ID, LEASE_TTL));
+    }
+
+    /**
+     * 主动释放租约，便于其他实例立即接管
+     */
+    public void release() {
+        stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(leaseKey()), Constants.INSTANCE_ID);
+    }
+
+    private String leaseKey() {
+        return LEASE_KEY_PREFIX + upstreamProperties.getComfyui().getWsUrl();
+    }
+}
@@ -0,0 +1,237 @@
+package cn.itcast.star.graph.comfyui.client.connector;
+
+import cn.itcast.star.graph.comfyui.client.handler.ComfyuiMessageHandler;
+import cn.itcast.star.graph.core.common.Constants;
+import cn.itcast.star.graph.core.service.ComfyuiResyncService;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.WebSocketContainer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ComfyUI WebSocket连接器 - 断线自动重连并在重连后同步任务状态
+ *
+ * <p>连接流程：
+ * <ol>
+ *     <li>集群中只有持有ComfyuiIngestLease租约的实例建立连接，其余实例定时尝试接管；失去租约时主动断开</li>
+ *     <li>持有租约后建立连接，连接断开或失败后按指数退避+随机抖动重连（1秒起，最长30秒）</li>
+ *     <li>每次连接成功后调用ComfyuiResyncService，补发断线期间丢失的完成/失败消息</li>
+ *     <li>连接状态、重连次数通过指标暴露（comfyui.ws.connected、comfyui.ws.reconnects）</li>
+ *     <li>二进制缓冲区调大到16MB，接收采样预览图和WebSocket回传的结果图片</li>
+ * </ol>
+ */
+@Slf4j
+@Component
+public class ComfyuiWsConnector implements SmartLifecycle {
+
+    /** 初始重连间隔(毫秒) */
+    private static final long INITIAL_BACKOFF_MS = 1000;
+    /** 最大重连间隔(毫秒) */
+    private static final long MAX_BACKOFF_MS = 30000;
+    /** 二进制消息缓冲区大小，需容纳一帧完整的预览图或WebSocket回传的原图（容器默认只有8KB） */
+    private static final int MAX_BINARY_MESSAGE_BYTES = 16 * 1024 * 1024;
+
+    @Autowired
+    ComfyuiMessageHandler comfyuiMessageHandler;
+    @Autowired
+    ComfyuiResyncService comfyuiResyncService;
+    @Autowired
+    UpstreamProperties upstreamProperties;
+    @Autowired
+    MeterRegistry meterRegistry;
+    @Autowired
+    ComfyuiIngestLease ingestLease;
+
+    private final StandardWebSocketClient webSocketClient = createWebSocketClient();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "comfyui-ws-connector");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private volatile boolean running;
+    /** 是否持有接入租约 */
+    private volatile boolean owner;
+    /** 是否有进行中的连接尝试 */
+    private volatile boolean connecting;
+    private volatile WebSocketSession session;
+    /** 连续失败次数，用于计算退避时间 */
+    private int failures;
+    private Counter reconnectCounter;
+
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("comfyui.ws.connected", this, c -> c.isConnected() ? 1 : 0)
+                .description("ComfyUI WebSocket是否已连接")
+                .register(meterRegistry);
+        Gauge.builder("comfyui.ingest.owner", this, c -> c.owner ? 1 : 0)
+                .description("本实例是否负责接入ComfyUI事件")
+                .register(meterRegistry);
+        reconnectCounter = Counter.builder("comfyui.ws.reconnects")
+                .description("ComfyUI WebSocket重连次数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        long interval = ComfyuiIngestLease.RENEW_INTERVAL.toMillis();
+        scheduler.scheduleWithFixedDelay(this::checkLease, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        closeSession(CloseStatus.GOING_AWAY);
+        if (owner) {
+            owner = false;
+            ingestLease.release();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isConnected() {
+        WebSocketSession current = session;
+        return current != null && current.isOpen();
+    }
+
+    private static StandardWebSocketClient createWebSocketClient() {
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        container.setDefaultMaxBinaryMessageBufferSize(MAX_BINARY_MESSAGE_BYTES);
+        return new StandardWebSocketClient(container);
+    }
+
+    /**
+     * 续期或抢占接入租约：获得租约后建立连接，失去租约后断开连接
+     */
+    private void checkLease() {
+        boolean held;
+        try {
+            held = ingestLease.acquireOrRenew();
+        } catch (Exception e) {
+            // Redis不可用时保持现状，避免所有实例同时断开
+            log.warn("续期ComfyUI接入租约失败: {}", e.getMessage());
+            return;
+        }
+        if (held && !owner) {
+            owner = true;
+            log.info("获得ComfyUI事件接入租约，建立连接");
+            connect();
+        } else if (!held && owner) {
+            owner = false;
+            log.warn("ComfyUI事件接入租约已被其他实例接管，断开连接");
+            closeSession(CloseStatus.NORMAL);
+        }
+    }
+
+    private void closeSession(CloseStatus status) {
+        WebSocketSession current = session;
+        if (current != null && current.isOpen()) {
+            try {
+                current.close(status);
+            } catch (IOException e) {
+                log.debug("关闭ComfyUI WebSocket失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    private void connect() {
+        if (!running || !owner || connecting || isConnected()) {
+            return;
+        }
+        connecting = true;
+        String url = upstreamProperties.getComfyui().getWsUrl() + "?clientId=" + Constants.COMFYUI_CLIENT_ID;
+        webSocketClient.execute(new ReconnectingHandler(), url)
+                .whenComplete((s, e) -> {
+                    connecting = false;
+                    if (e != null) {
+                        log.warn("连接ComfyUI WebSocket失败: {}", e.getMessage());
+                        scheduleReconnect();
+                    }
+                });
+    }
+
+    /**
+     * 按指数退避+全抖动安排下一次重连，避免多个实例同时重连
+     */
+    private synchronized void scheduleReconnect() {
+        if (!running || !owner) {
+            return;
+        }
+        long ceiling = Math.min(MAX_BACKOFF_MS, INITIAL_BACKOFF_MS << Math.min(failures, 5));
+        long delay = INITIAL_BACKOFF_MS / 2 + ThreadLocalRandom.current().nextLong(ceiling);
+        failures++;
+        reconnectCounter.increment();
+        log.info("{}毫秒后重连ComfyUI WebSocket（第{}次）", delay, failures);
+        try {
+            scheduler.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("重连调度已停止: {}", e.getMessage());
+        }
+    }
+
+    private synchronized void onConnected(WebSocketSession newSession) {
+        session = newSession;
+        failures = 0;
+    }
+
+    /**
+     * 在消息处理器外包一层，感知连接建立和断开
+     */
+    private class ReconnectingHandler extends WebSocketHandlerDecorator {
+
+        ReconnectingHandler() {
+            super(comfyuiMessageHandler);
+        }
+
+        @Override
+        public void afterConnectionEstablished(WebSocketSession newSession) throws Exception {
+            onConnected(newSession);
+            super.afterConnectionEstablished(newSession);
+            // 同步断线期间ComfyUI上已完成/失败的任务
+            comfyuiResyncService.resync();
+        }
+
+        @Override
+        public void afterConnectionClosed(WebSocketSession closedSession, CloseStatus closeStatus) throws Exception {
+            log.warn("ComfyUI WebSocket连接断开: {}", closeStatus);
+            super.afterConnectionClosed(closedSession, closeStatus);
+            if (closedSession == session) {
+                session = null;
+            }
+            scheduleReconnect();
+        }
+
+        @Override
+        public void handleTransportError(WebSocketSession errorSession, Throwable exception) throws Exception {
+            log.warn("ComfyUI WebSocket传输异常: {}", exception.getMessage());
+            super.handleTransportError(errorSession, exception);
+            // 主动关闭，确保走afterConnectionClosed触发重连
+            if (errorSession.isOpen()) {
+                errorSession.close(CloseStatus.SERVER_ERROR);
+            }
+        }
+    }
+}
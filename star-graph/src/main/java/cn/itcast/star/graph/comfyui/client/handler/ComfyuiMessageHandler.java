@@ -1,24 +1,37 @@
 package cn.itcast.star.graph.comfyui.client.handler;
 
 import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
+import cn.itcast.star.graph.core.service.ComfyuiEventStreamService;
 import cn.itcast.star.graph.core.service.ComfyuiMessageService;
 import com.alibaba.fastjson2.JSON;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+
+import java.util.Set;
 
 /**
- * ComfyUI WebSocket消息处理器 - 接收ComfyUI推送的任务进度和结果消息
+ * ComfyUI WebSocket消息处理器 - 接收ComfyUI推送的任务进度、结果消息和二进制预览图
+ *
+ * <p>只在持有ComfyUI连接的实例上运行：executing消息和预览图在本实例处理，
+ * 需要业务处理的消息写入事件流，由集群中的一个实例处理
  */
 @Slf4j
 @Component
-public class ComfyuiMessageHandler extends TextWebSocketHandler {
-    
+public class ComfyuiMessageHandler extends AbstractWebSocketHandler {
+
+    /** 写入事件流的消息类型 */
+    private static final Set<String> STREAM_TYPES = Set.of(
+            "progress", "executed", "execution_error", "execution_interrupted", "status");
+
     @Autowired
     ComfyuiMessageService comfyuiMessageService;
+    @Autowired
+    ComfyuiEventStreamService comfyuiEventStreamService;
 
     /**
      * WebSocket连接成功回调
@@ -35,7 +48,18 @@ public class ComfyuiMessageHandler extends TextWebSocketHandler {
     protected void handleTextMessage(WebSocketSession session, TextMessage message) throws Exception {
         String payload = message.getPayload();
         MessageBase messageBase = JSON.parseObject(payload, MessageBase.class);
-        comfyuiMessageService.handleMessage(messageBase);
+        comfyuiMessageService.trackExecution(messageBase);
+        if (STREAM_TYPES.contains(messageBase.getType())) {
+            comfyuiEventStreamService.publish(payload);
+        }
         log.debug("收到ComfyUI消息: {}", payload);
     }
+
+    /**
+     * 接收ComfyUI的二进制消息（采样预览图）
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) throws Exception {
+        comfyuiMessageService.handlePreview(message.getPayload());
+    }
 }
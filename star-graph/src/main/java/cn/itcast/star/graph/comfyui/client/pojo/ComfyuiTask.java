@@ -34,6 +34,9 @@ public class ComfyuiTask {
     /** 生成的图片数量 */
     int size;
 
+    /** 冻结的积分（工作流预估消耗 x 图片数量） */
+    Integer points;
+
     public ComfyuiTask() {
         if (this.id == null) {
             this.id = UUID.randomUUID().toString();
@@ -44,4 +47,11 @@ public class ComfyuiTask {
         this.wsClientId = wsClientId;
         this.comfyuiRequestDto = comfyuiRequestDto;
     }
+
+    /**
+     * 冻结的积分，未设置时（如升级前入队的任务）按每张图片1积分计算
+     */
+    public int getPoints() {
+        return points != null ? points : size;
+    }
 }
@@ -0,0 +1,43 @@
+package cn.itcast.star.graph.comfyui.client.workflow;
+
+/**
+ * 工作流参数类型
+ * 
+ * <p>写入工作流前按类型转换参数值，保证提交给ComfyUI的JSON类型正确
+ * 
+ * @author itcast
+ * @since 1.0
+ */
+public enum WorkflowParamType {
+    /** 整数 */
+    INT,
+    /** 长整数（如随机种子） */
+    LONG,
+    /** 浮点数（如CFG、降噪强度） */
+    DOUBLE,
+    /** 字符串（如模型名称、提示词） */
+    STRING;
+
+    /**
+     * 将参数值转换为当前类型
+     * 
+     * @param value 参数值
+     * @return 转换后的值
+     * @throws IllegalArgumentException 无法转换时抛出
+     */
+    public Object convert(Object value) {
+        if (value == null) {
+            throw new IllegalArgumentException("工作流参数值不能为空");
+        }
+        switch (this) {
+            case INT:
+                return value instanceof Number ? ((Number) value).intValue() : Integer.parseInt(value.toString().trim());
+            case LONG:
+                return value instanceof Number ? ((Number) value).longValue() : Long.parseLong(value.toString().trim());
+            case DOUBLE:
+                return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(value.toString().trim());
+            default:
+                return value.toString();
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package cn.itcast.star.graph.comfyui.client.workflow;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 工作流参数槽位
+ * 
+ * <p>描述一个参数在工作流中的位置：节点ID + 输入名称
+ * 
+ * @author itcast
+ * @since 1.0
+ */
+@Getter
+@AllArgsConstructor
+public class WorkflowSlot {
+    /** 参数名称（如seed、steps） */
+    private final String name;
+
+    /** 节点ID（工作流JSON中的key） */
+    private final String nodeId;
+
+    /** 节点输入名称（inputs中的key） */
+    private final String input;
+
+    /** 参数类型 */
+    private final WorkflowParamType type;
+}
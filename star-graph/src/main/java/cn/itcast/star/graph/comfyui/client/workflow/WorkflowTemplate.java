@@ -0,0 +1,188 @@
+package cn.itcast.star.graph.comfyui.client.workflow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 预编译的ComfyUI工作流模板
+ * 
+ * <p>加载时把API格式的工作流JSON转换为不可变的树，并校验所有参数槽位；
+ * 生成请求时只复制被修改的节点（根、节点、inputs三层），其余节点与模板共享。
+ * 参数以JSON值写入而非字符串拼接，提示词中的引号等字符不会破坏JSON结构，
+ * 生成的Map直接交给Retrofit序列化，无需渲染字符串再反解析。
+ * 
+ * @author itcast
+ * @since 1.0
+ */
+public class WorkflowTemplate {
+
+    /** 模板名称 */
+    private final String name;
+
+    /** 显示名称 */
+    private final String title;
+
+    /** 预估消耗（每张图片的积分） */
+    private final int cost;
+
+    /** 不可变的工作流树 */
+    private final Map<String, Object> workflow;
+
+    /** 参数槽位，key为参数名称 */
+    private final Map<String, WorkflowSlot> slots;
+
+    /**
+     * 编译工作流模板
+     * 
+     * @param name 模板名称
+     * @param title 显示名称
+     * @param cost 预估消耗（每张图片的积分）
+     * @param workflow API格式的工作流JSON对象
+     * @param slots 参数槽位
+     * @throws IllegalArgumentException 节点结构、节点连线或槽位不合法时抛出
+     */
+    public WorkflowTemplate(String name, String title, int cost, Map<String, Object> workflow, List<WorkflowSlot> slots) {
+        if (cost < 0) {
+            throw new IllegalArgumentException(String.format("工作流[%s]预估消耗不能为负数", name));
+        }
+        this.name = name;
+        this.title = title;
+        this.cost = cost;
+        this.workflow = freezeMap(workflow);
+        validateNodes();
+        Map<String, WorkflowSlot> slotMap = new LinkedHashMap<>();
+        for (WorkflowSlot slot : slots) {
+            Map<String, Object> inputs = inputsOf(this.workflow, slot.getNodeId());
+            if (inputs == null || !inputs.containsKey(slot.getInput())) {
+                throw new IllegalArgumentException(String.format("工作流[%s]参数[%s]指向的节点输入不存在: %s.%s",
+                        name, slot.getName(), slot.getNodeId(), slot.getInput()));
+            }
+            slotMap.put(slot.getName(), slot);
+        }
+        this.slots = Collections.unmodifiableMap(slotMap);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public Map<String, WorkflowSlot> getSlots() {
+        return slots;
+    }
+
+    /**
+     * 获取不可变的工作流树
+     */
+    public Map<String, Object> getWorkflow() {
+        return workflow;
+    }
+
+    /**
+     * 按参数生成工作流，未传入的参数保留模板默认值
+     * 
+     * @param params 参数名称 -> 参数值
+     * @return 新的工作流对象（模板本身不会被修改）
+     * @throws IllegalArgumentException 参数名称未定义或类型转换失败时抛出
+     */
+    public Map<String, Object> build(Map<String, Object> params) {
+        Map<String, Object> root = new LinkedHashMap<>(workflow);
+        Map<String, Map<String, Object>> copiedInputs = new HashMap<>();
+        for (Map.Entry<String, Object> param : params.entrySet()) {
+            WorkflowSlot slot = slots.get(param.getKey());
+            if (slot == null) {
+                throw new IllegalArgumentException(String.format("工作流[%s]未定义参数: %s", name, param.getKey()));
+            }
+            if (param.getValue() == null) {
+                continue;
+            }
+            Map<String, Object> inputs = copiedInputs.computeIfAbsent(slot.getNodeId(), nodeId -> {
+                Map<String, Object> node = new LinkedHashMap<>(asMap(root.get(nodeId)));
+                Map<String, Object> nodeInputs = new LinkedHashMap<>(asMap(node.get("inputs")));
+                node.put("inputs", nodeInputs);
+                root.put(nodeId, node);
+                return nodeInputs;
+            });
+            inputs.put(slot.getInput(), slot.getType().convert(param.getValue()));
+        }
+        return root;
+    }
+
+    /**
+     * 校验节点结构：每个节点都有class_type和inputs，节点连线[节点ID, 输出序号]指向存在的节点
+     */
+    private void validateNodes() {
+        if (workflow.isEmpty()) {
+            throw new IllegalArgumentException(String.format("工作流[%s]没有任何节点", name));
+        }
+        for (Map.Entry<String, Object> entry : workflow.entrySet()) {
+            String nodeId = entry.getKey();
+            if (!(entry.getValue() instanceof Map) || !(((Map<?, ?>) entry.getValue()).get("class_type") instanceof String)) {
+                throw new IllegalArgumentException(String.format("工作流[%s]节点%s缺少class_type", name, nodeId));
+            }
+            Map<String, Object> inputs = inputsOf(workflow, nodeId);
+            if (inputs == null) {
+                throw new IllegalArgumentException(String.format("工作流[%s]节点%s缺少inputs", name, nodeId));
+            }
+            for (Map.Entry<String, Object> input : inputs.entrySet()) {
+                if (input.getValue() instanceof List<?> link && link.size() == 2
+                        && link.get(0) instanceof String target && link.get(1) instanceof Number
+                        && !workflow.containsKey(target)) {
+                    throw new IllegalArgumentException(String.format("工作流[%s]节点%s的输入%s连接到不存在的节点%s",
+                            name, nodeId, input.getKey(), target));
+                }
+            }
+        }
+    }
+
+    /**
+     * 获取节点的inputs，节点不存在时返回null
+     */
+    static Map<String, Object> inputsOf(Map<String, Object> workflow, String nodeId) {
+        Object node = workflow.get(nodeId);
+        if (!(node instanceof Map)) {
+            return null;
+        }
+        Object inputs = ((Map<?, ?>) node).get("inputs");
+        return inputs instanceof Map ? asMap(inputs) : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map<String, Object> asMap(Object value) {
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * 递归转换为不可变结构
+     */
+    private static Map<String, Object> freezeMap(Map<?, ?> source) {
+        Map<String, Object> copy = new LinkedHashMap<>();
+        source.forEach((k, v) -> copy.put(String.valueOf(k), freeze(v)));
+        return Collections.unmodifiableMap(copy);
+    }
+
+    private static Object freeze(Object value) {
+        if (value instanceof Map) {
+            return freezeMap((Map<?, ?>) value);
+        }
+        if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+            for (Object item : (List<?>) value) {
+                copy.add(freeze(item));
+            }
+            return Collections.unmodifiableList(copy);
+        }
+        return value;
+    }
+}
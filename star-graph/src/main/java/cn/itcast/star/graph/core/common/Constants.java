@@ -1,5 +1,8 @@
 package cn.itcast.star.graph.core.common;
 
+import java.lang.management.ManagementFactory;
+import java.util.UUID;
+
 /**
  * 全局常量类
  * 
@@ -17,4 +20,13 @@ public class Constants {
      * 确保WebSocket消息能够正确路由到本系统
      */
     public final static String COMFYUI_CLIENT_ID="star-graph";
+
+    /**
+     * 当前应用实例ID
+     *
+     * <p>格式为 pid@主机名-随机串，集群部署时用于WebSocket会话路由，
+     * 随机串保证容器重启后（pid和主机名相同）也不会与旧实例混淆
+     */
+    public final static String INSTANCE_ID = ManagementFactory.getRuntimeMXBean().getName()
+            + "-" + UUID.randomUUID().toString().substring(0, 8);
 }
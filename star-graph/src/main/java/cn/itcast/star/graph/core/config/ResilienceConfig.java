@@ -0,0 +1,64 @@
+package cn.itcast.star.graph.core.config;
+
+import cn.itcast.star.graph.core.resilience.Bulkhead;
+import cn.itcast.star.graph.core.resilience.CircuitBreaker;
+import cn.itcast.star.graph.core.resilience.UpstreamGuard;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 上游保护配置 - 为ComfyUI和Ollama分别创建熔断器和舱壁，并注册监控指标
+ *
+ * <p>指标：
+ * <ul>
+ *     <li>upstream.circuit.state：0-CLOSED，1-OPEN，2-HALF_OPEN</li>
+ *     <li>upstream.bulkhead.in_flight：在途调用数</li>
+ *     <li>upstream.rejected：被拒绝的调用数</li>
+ * </ul>
+ */
+@Configuration
+public class ResilienceConfig {
+
+    /**
+     * ComfyUI熔断器和舱壁（参数见star-graph.upstream.comfyui）
+     */
+    @Bean
+    public UpstreamGuard comfyuiGuard(UpstreamProperties upstreamProperties, MeterRegistry meterRegistry) {
+        return createGuard("comfyui", upstreamProperties.getComfyui(), meterRegistry);
+    }
+
+    /**
+     * Ollama熔断器和舱壁（参数见star-graph.upstream.ollama）
+     */
+    @Bean
+    public UpstreamGuard ollamaGuard(UpstreamProperties upstreamProperties, MeterRegistry meterRegistry) {
+        return createGuard("ollama", upstreamProperties.getOllama(), meterRegistry);
+    }
+
+    private UpstreamGuard createGuard(String name, UpstreamProperties.Endpoint endpoint, MeterRegistry meterRegistry) {
+        UpstreamGuard guard = new UpstreamGuard(name,
+                new CircuitBreaker(endpoint.getBreakerWindow(), endpoint.getBreakerMinimumCalls(),
+                        endpoint.getFailureRateThreshold(), endpoint.getOpenDurationMs()),
+                new Bulkhead(endpoint.getMaxConcurrentCalls(), endpoint.getBulkheadWaitMs()),
+                endpoint.getReadTimeoutMs());
+        bindMetrics(guard, meterRegistry);
+        return guard;
+    }
+
+    private void bindMetrics(UpstreamGuard guard, MeterRegistry meterRegistry) {
+        Gauge.builder("upstream.circuit.state", guard, g -> g.getCircuitBreaker().getState().ordinal())
+                .tag("upstream", guard.getName())
+                .description("熔断器状态：0-CLOSED，1-OPEN，2-HALF_OPEN")
+                .register(meterRegistry);
+        Gauge.builder("upstream.bulkhead.in_flight", guard, g -> g.getBulkhead().getInFlight())
+                .tag("upstream", guard.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("upstream.rejected", guard, UpstreamGuard::getRejectedCalls)
+                .tag("upstream", guard.getName())
+                .register(meterRegistry);
+    }
+}
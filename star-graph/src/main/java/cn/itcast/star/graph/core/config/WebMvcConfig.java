@@ -1,6 +1,8 @@
 package cn.itcast.star.graph.core.config;
 
 import cn.itcast.star.graph.core.interceptor.UserInterceptor;
+import cn.itcast.star.graph.core.resilience.DeadlineInterceptor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -15,17 +17,22 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
  */
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
+
+    /** 单个HTTP请求的时间预算(毫秒)，上游调用和阻塞等待不会超过该时间 */
+    @Value("${star-graph.resilience.request-timeout-ms:25000}")
+    long requestTimeoutMs;
     
     /**
      * 添加拦截器
      * 
-     * <p>排除登录接口，其他接口需要token认证
+     * <p>所有请求设置时间预算；排除登录接口、结果图片和健康检查，其他接口需要token认证
      * 
      * @param registry 拦截器注册器
      */
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new DeadlineInterceptor(requestTimeoutMs));
         registry.addInterceptor(new UserInterceptor())
-                .excludePathPatterns("/api/1.0/user/login");
+                .excludePathPatterns("/api/1.0/user/login", "/api/1.0/images/**", "/actuator/health");
     }
 }
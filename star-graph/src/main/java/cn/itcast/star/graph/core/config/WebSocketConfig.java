@@ -1,9 +1,14 @@
 package cn.itcast.star.graph.core.config;
 
 import cn.itcast.star.graph.core.wserver.WebscoketUserInterceptor;
+import cn.itcast.star.graph.core.wserver.WsOutboundGuard;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
+import org.springframework.scheduling.TaskScheduler;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
@@ -12,10 +17,41 @@ import org.springframework.web.socket.server.support.HttpSessionHandshakeInterce
 
 /**
  * WebSocket配置 - 配置STOMP端点和消息代理，用于实时推送
+ *
+ * <p>心跳10秒，客户端超过3个心跳周期无消息时由代理断开；
+ * 每个会话的发送缓冲区和发送时间有上限，慢客户端由WsOutboundGuard优先丢弃进度类消息
  */
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    /** 心跳间隔(毫秒)：服务端发送、期望客户端发送 */
+    private static final long[] HEARTBEAT_MS = {10000, 10000};
+    /** 单次发送时间上限(毫秒) */
+    private static final int SEND_TIME_LIMIT_MS = 10000;
+    /** 单个会话发送缓冲区上限（字节），预览图按几十KB一帧估算 */
+    private static final int SEND_BUFFER_SIZE_LIMIT = 512 * 1024;
+    /** 入站消息大小上限（字节），客户端只发送订阅和心跳 */
+    private static final int MESSAGE_SIZE_LIMIT = 16 * 1024;
+    /** 建立连接后等待第一条STOMP消息的时间(毫秒) */
+    private static final int TIME_TO_FIRST_MESSAGE_MS = 30000;
+    /** 出站通道线程数 */
+    private static final int OUTBOUND_THREADS = 8;
+    /** 出站通道队列上限 */
+    private static final int OUTBOUND_QUEUE_CAPACITY = 10000;
+
+    @Autowired
+    WsOutboundGuard wsOutboundGuard;
+
+    private TaskScheduler messageBrokerTaskScheduler;
+
+    /**
+     * 复用STOMP配置自带的调度器发送心跳（延迟注入，避免循环依赖）
+     */
+    @Autowired
+    public void setMessageBrokerTaskScheduler(@Lazy @Qualifier("messageBrokerTaskScheduler") TaskScheduler taskScheduler) {
+        this.messageBrokerTaskScheduler = taskScheduler;
+    }
+
     /**
      * 注册STOMP端点：ws://host:port/ws
      */
@@ -31,7 +67,33 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
      */
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
-        registry.enableSimpleBroker("/topic", "/user");
+        registry.enableSimpleBroker("/topic", "/user")
+                .setHeartbeatValue(HEARTBEAT_MS)
+                .setTaskScheduler(messageBrokerTaskScheduler);
+    }
+
+    /**
+     * 配置传输层限制：发送超时或缓冲区超限时关闭会话，客户端重连后从任务事件日志补发
+     */
+    @Override
+    public void configureWebSocketTransport(WebSocketTransportRegistration registration) {
+        registration.setSendTimeLimit(SEND_TIME_LIMIT_MS)
+                .setSendBufferSizeLimit(SEND_BUFFER_SIZE_LIMIT)
+                .setMessageSizeLimit(MESSAGE_SIZE_LIMIT)
+                .setTimeToFirstMessage(TIME_TO_FIRST_MESSAGE_MS)
+                .addDecoratorFactory(wsOutboundGuard);
+    }
+
+    /**
+     * 配置出站通道：有界线程池，拥塞会话的进度类消息在入队前丢弃
+     */
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        registration.interceptors(wsOutboundGuard)
+                .taskExecutor()
+                .corePoolSize(OUTBOUND_THREADS)
+                .maxPoolSize(OUTBOUND_THREADS)
+                .queueCapacity(OUTBOUND_QUEUE_CAPACITY);
     }
 
     /**
@@ -0,0 +1,33 @@
+package cn.itcast.star.graph.core.controller;
+
+import cn.itcast.star.graph.core.dto.common.Result;
+import cn.itcast.star.graph.core.dto.request.Image2ImageReqDto;
+import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
+import cn.itcast.star.graph.core.service.Image2ImageService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 图生图控制器 - 上传参考图创建图生图任务（取消、插队、排名查询使用文生图接口）
+ */
+@RestController
+@RequestMapping("/api/authed/1.0/i2i")
+public class ImageToImageController {
+
+    @Autowired
+    private Image2ImageService image2ImageService;
+
+    /**
+     * 创建图生图任务，返回任务ID和队列序号
+     */
+    @PostMapping(value = "/propmt", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public Result<Text2ImageResDto> propmt(@RequestPart("image") MultipartFile image, Image2ImageReqDto image2ImageReqDto) throws Exception {
+        Text2ImageResDto text2ImageResDto = image2ImageService.imageToImage(image, image2ImageReqDto);
+        return Result.ok(text2ImageResDto);
+    }
+}
@@ -0,0 +1,78 @@
+package cn.itcast.star.graph.core.controller;
+
+import cn.itcast.star.graph.core.service.ResultStoreService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 结果图片控制器 - 提供本地存储的生图结果访问（无需登录）
+ *
+ * <p>文件按内容哈希命名，内容永不变化，响应带一年的immutable缓存和ETag；
+ * 整体下载走Tomcat sendfile零拷贝发送，Range请求由Spring按区间返回
+ */
+@RestController
+@RequestMapping("/api/1.0/images")
+public class ResultImageController {
+
+    /** Tomcat sendfile请求属性 */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+    @Autowired
+    private ResultStoreService resultStoreService;
+
+    /**
+     * 获取结果图片
+     */
+    @GetMapping("/{key}")
+    public ResponseEntity<Resource> image(@PathVariable String key, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        Path path = resultStoreService.resolve(key);
+        if (path == null) {
+            return ResponseEntity.notFound().build();
+        }
+        String etag = key;
+        MediaType mediaType = MediaTypeFactory.getMediaType(key).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        if ("GET".equals(request.getMethod()) && request.getHeader(HttpHeaders.RANGE) == null
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return null;
+            }
+            long length = Files.size(path);
+            response.setHeader(HttpHeaders.CACHE_CONTROL, IMMUTABLE.getHeaderValue());
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+            response.setContentType(mediaType.toString());
+            response.setContentLengthLong(length);
+            request.setAttribute(SENDFILE_FILENAME, path.toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, length);
+            return null;
+        }
+        return ResponseEntity.ok()
+                .cacheControl(IMMUTABLE)
+                .eTag(etag)
+                .contentType(mediaType)
+                .body(new FileSystemResource(path));
+    }
+}
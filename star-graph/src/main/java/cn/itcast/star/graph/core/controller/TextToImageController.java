@@ -3,19 +3,27 @@ package cn.itcast.star.graph.core.controller;
 import cn.itcast.star.graph.core.dto.common.PageResult;
 import cn.itcast.star.graph.core.dto.common.Result;
 import cn.itcast.star.graph.core.dto.request.Text2ImageCancelReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImageEventsReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageListReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImagePreTranslateReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImagePriorityReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageReqDto;
 import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
 import cn.itcast.star.graph.core.pojo.UserResult;
 import cn.itcast.star.graph.core.service.Text2ImageService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 文生图控制器 - 提供文生图任务的创建、取消、查询、插队等接口
@@ -38,11 +46,12 @@ public class TextToImageController {
 
     /**
      * 取消任务（智能取消：队列中的任务直接删除并退款，正在执行的任务调用中断接口）
+     * 
+     * <p>中断接口异步调用，等待期间释放Tomcat线程
      */
     @PostMapping("/canel")
-    public Result<Void> cancel(@RequestBody Text2ImageCancelReqDto cancelReqDto) throws Exception {
-        text2ImageService.cancelTask(cancelReqDto);
-        return Result.ok();
+    public CompletableFuture<Result<Void>> cancel(@RequestBody Text2ImageCancelReqDto cancelReqDto) throws Exception {
+        return text2ImageService.cancelTask(cancelReqDto).thenApply(v -> Result.ok());
     }
 
     /**
@@ -71,4 +80,44 @@ public class TextToImageController {
         Long rank = text2ImageService.getTaskRank(priorityReqDto);
         return Result.ok(rank);
     }
-}
\ No newline at end of file
+
+    /**
+     * 获取任务事件（WebSocket断线重连后按序号补发）
+     */
+    @PostMapping("/events")
+    public Result<List<String>> events(@RequestBody Text2ImageEventsReqDto eventsReqDto) {
+        return Result.ok(text2ImageService.getTaskEvents(eventsReqDto));
+    }
+
+    /**
+     * 以SSE方式订阅任务事件（进度、结果），适合不使用STOMP的脚本和移动端
+     * 
+     * <p>断线重连时浏览器自动带上Last-Event-ID，从该序号之后继续推送
+     */
+    @GetMapping("/events/stream")
+    public SseEmitter streamEvents(@RequestParam("tempId") String tempId,
+                                   @RequestParam(value = "afterSeq", required = false) Long afterSeq,
+                                   @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        Text2ImageEventsReqDto eventsReqDto = new Text2ImageEventsReqDto();
+        eventsReqDto.setTempId(tempId);
+        eventsReqDto.setAfterSeq(lastEventId != null ? lastEventId : afterSeq);
+        return text2ImageService.streamTaskEvents(eventsReqDto);
+    }
+
+    /**
+     * 预翻译提示词（用户输入过程中调用，结果写入缓存供提交任务时使用）
+     */
+    @PostMapping("/pretranslate")
+    public Result<Void> preTranslate(@RequestBody Text2ImagePreTranslateReqDto preTranslateReqDto) {
+        text2ImageService.preTranslate(preTranslateReqDto);
+        return Result.ok();
+    }
+
+    /**
+     * 获取可选的模型、采样器、调度器（来自缓存的ComfyUI节点目录）
+     */
+    @GetMapping("/models")
+    public Result<Map<String, List<String>>> models() {
+        return Result.ok(text2ImageService.getOptions());
+    }
+}
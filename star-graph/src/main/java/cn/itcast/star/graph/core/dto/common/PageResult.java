@@ -19,6 +19,9 @@ public class PageResult<T> extends Result<T> {
     /** 总记录数 */
     private long total;
 
+    /** 下一页游标，游标分页时返回，没有更多数据时为null */
+    private String nextCursor;
+
     /** 返回分页成功结果 */
     public static PageResult ok(long total, Object data) {
         PageResult tPageResult = new PageResult<>();
@@ -29,4 +32,11 @@ public class PageResult<T> extends Result<T> {
         return tPageResult;
     }
 
+    /** 返回游标分页成功结果，total为-1表示未统计总数 */
+    public static PageResult ok(long total, Object data, String nextCursor) {
+        PageResult tPageResult = ok(total, data);
+        tPageResult.setNextCursor(nextCursor);
+        return tPageResult;
+    }
+
 }
@@ -0,0 +1,17 @@
+package cn.itcast.star.graph.core.dto.request;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * 图生图请求DTO（multipart表单字段，图片单独作为image文件上传）
+ *
+ * <p>模型、尺寸以外的参数与文生图一致，输出尺寸跟随上传的图片
+ */
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class Image2ImageReqDto extends Text2ImageReqDto {
+
+    /** 重绘幅度(0-1]，越大与原图差异越大 */
+    double denoise = 0.6;
+}
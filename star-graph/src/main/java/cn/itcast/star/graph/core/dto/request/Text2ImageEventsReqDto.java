@@ -0,0 +1,20 @@
+package cn.itcast.star.graph.core.dto.request;
+
+import lombok.Data;
+
+/**
+ * 任务事件补发请求DTO
+ * 
+ * <p>WebSocket断线重连后，前端带上最后收到的事件序号，补发之后的事件。
+ * 
+ * @author itcast
+ * @since 1.0
+ */
+@Data
+public class Text2ImageEventsReqDto {
+    /** 任务临时ID（文生图接口返回的pid） */
+    private String tempId;
+
+    /** 已收到的最后一个事件序号，为空时从头读取 */
+    private Long afterSeq;
+}
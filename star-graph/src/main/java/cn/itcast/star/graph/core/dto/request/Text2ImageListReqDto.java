@@ -5,7 +5,11 @@ import lombok.Data;
 /**
  * 文生图历史列表请求DTO
  * 
- * <p>用于查询用户的文生图历史记录，支持分页
+ * <p>用于查询用户的文生图历史记录，支持两种分页方式：
+ * <ul>
+ *     <li>页码分页（cursor为null，兼容旧版本，只查询未归档的记录）</li>
+ *     <li>游标分页（cursor为空字符串表示第一页，之后传上一页返回的nextCursor）</li>
+ * </ul>
  * 
  * @author itcast
  * @since 1.0
@@ -21,4 +25,14 @@ public class Text2ImageListReqDto {
      * 每页条数，取值范围为1~20
      */
     private Integer pageSize = 10;
+
+    /**
+     * 分页游标，为null时使用页码分页
+     */
+    private String cursor;
+
+    /**
+     * 游标分页时是否返回总记录数
+     */
+    private Boolean withTotal = false;
 }
@@ -0,0 +1,21 @@
+package cn.itcast.star.graph.core.dto.request;
+
+import lombok.Data;
+
+/**
+ * 预翻译请求DTO
+ * 
+ * <p>用户输入提示词的过程中由前端调用，提前把翻译结果写入缓存，
+ * 提交文生图任务时即可直接命中缓存。
+ * 
+ * @author itcast
+ * @since 1.0
+ */
+@Data
+public class Text2ImagePreTranslateReqDto {
+    /** 正向提示词 */
+    private String propmt;
+
+    /** 负向提示词 */
+    private String reverse;
+}
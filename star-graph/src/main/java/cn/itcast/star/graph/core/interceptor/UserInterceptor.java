@@ -12,7 +12,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
-import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -22,10 +22,13 @@ import java.io.PrintWriter;
  * 
  * <p>从请求头解析JWT token，验证用户身份并存入ThreadLocal
  * 
+ * <p>异步请求（Controller返回CompletableFuture）在异步处理开始时清理当前线程，
+ * 异步结果重新分派时会再次执行preHandle
+ * 
  * @author itcast
  * @since 1.0
  */
-public class UserInterceptor implements HandlerInterceptor {
+public class UserInterceptor implements AsyncHandlerInterceptor {
 
     /**
      * 请求预处理，验证token并提取用户信息
@@ -97,4 +100,12 @@ public class UserInterceptor implements HandlerInterceptor {
     public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) throws Exception {
         UserUtils.removeUser();
     }
+
+    /**
+     * 异步处理开始后，请求线程归还给Tomcat，清理ThreadLocal
+     */
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        UserUtils.removeUser();
+    }
 }
@@ -0,0 +1,29 @@
+package cn.itcast.star.graph.core.job;
+
+import cn.itcast.star.graph.core.service.QueuePositionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 排队位置推送定时任务 - 每500毫秒检查一次排队位置变化并批量推送
+ *
+ * <p>变化标记通过GETDEL取出，集群中同一批变化只由一个实例推送
+ */
+@Slf4j
+@Component
+public class QueuePositionJob {
+
+    @Autowired
+    QueuePositionService queuePositionService;
+
+    @Scheduled(fixedDelay = 500)
+    public void pushQueuePositions() {
+        try {
+            queuePositionService.pushChanges();
+        } catch (Exception e) {
+            log.error("推送排队序号失败: {}", e.getMessage());
+        }
+    }
+}
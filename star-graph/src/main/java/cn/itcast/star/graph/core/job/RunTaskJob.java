@@ -1,10 +1,13 @@
 package cn.itcast.star.graph.core.job;
 
-import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiAsyncApi;
 import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.resilience.UpstreamGuard;
+import cn.itcast.star.graph.core.resilience.UpstreamRejectedException;
 import cn.itcast.star.graph.core.service.RedisService;
 import cn.itcast.star.graph.core.service.RefundCompensationService;
 import cn.itcast.star.graph.core.service.UserFundRecordService;
+import cn.itcast.star.graph.core.service.WsNoticeService;
 import lombok.extern.log4j.Log4j2;
 import org.redisson.api.RLock;
 import org.redisson.api.RSemaphore;
@@ -12,10 +15,11 @@ import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import retrofit2.Call;
 import retrofit2.Response;
 
+import java.io.IOException;
 import java.util.HashMap;
+import java.util.concurrent.CompletionException;
 
 /**
  * 任务调度定时任务 - 每秒从Redis队列取任务提交给ComfyUI
@@ -30,13 +34,17 @@ public class RunTaskJob {
     @Autowired
     RedisService redisService;
     @Autowired
-    ComfyuiApi comfyuiApi;
+    ComfyuiAsyncApi comfyuiAsyncApi;
     @Autowired
     RedissonClient redissonClient;
     @Autowired
     UserFundRecordService userFundRecordService;
     @Autowired
     RefundCompensationService refundCompensationService;
+    @Autowired
+    UpstreamGuard comfyuiGuard;
+    @Autowired
+    WsNoticeService wsNoticeService;
 
     /**
      * 释放信号量
@@ -48,10 +56,10 @@ public class RunTaskJob {
     }
     
     /**
-     * 从队列弹出任务并提交到ComfyUI
+     * 从队列弹出任务并异步提交到ComfyUI
      * 1. 从Redis队列中弹出任务
-     * 2. 提交任务到ComfyUI
-     * 3. 处理ComfyUI响应结果
+     * 2. 异步提交任务到ComfyUI（不阻塞调度线程，也不在提交期间持有调度锁）
+     * 3. 在回调中处理ComfyUI响应结果
      */
     private void sendTaskToComfyui() {
         ComfyuiTask comfyuiTask = redisService.popQueueTask();
@@ -59,42 +67,71 @@ public class RunTaskJob {
             releaseSemaphore("从队列获取任务失败");
             return;
         }
-        
-        Call<HashMap> hashMapCall = comfyuiApi.addQueueTask(comfyuiTask.getComfyuiRequestDto());
-        try {
-            Response<HashMap> response = hashMapCall.execute();
-            if (response.isSuccessful()) {
-                HashMap body = response.body();
-                if (body == null || body.get("prompt_id") == null) {
-                    log.error("ComfyUI响应数据异常，body或prompt_id为null");
-                    releaseSemaphore("ComfyUI响应数据异常");
-                    refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getSize(), 
-                            "temp_" + comfyuiTask.getId(), "comfyui_response_error_refund_failed");
-                    redisService.removeStartedTask("temp_" + comfyuiTask.getId());
-                    return;
-                }
-                String promptId = (String) body.get("prompt_id");
-                comfyuiTask.setPromptId(promptId);
-                log.info("添加任务到Comfyui成功：{}", comfyuiTask.getPromptId());
-                // 将任务标记为“已开始执行”，用于后续WS消息匹配、排名计算
-                redisService.addStartedTask(promptId, comfyuiTask);
-            } else {
-                String error = response.errorBody().string();
-                log.error("添加任务到Comfyui错误: {}", error);
-                releaseSemaphore("ComfyUI提交失败");
-                refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getSize(), 
-                        "temp_" + comfyuiTask.getId(), "comfyui_submit_error_refund_failed");
+        comfyuiAsyncApi.addQueueTask(comfyuiTask.getComfyuiRequestDto())
+                .whenComplete((response, e) -> {
+                    try {
+                        if (e != null) {
+                            handleSubmitException(comfyuiTask, e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                        } else {
+                            handleSubmitResponse(comfyuiTask, response);
+                        }
+                    } catch (Exception ex) {
+                        log.error("处理ComfyUI提交结果异常: {}", comfyuiTask.getId(), ex);
+                    }
+                });
+    }
+
+    /**
+     * 处理ComfyUI提交响应
+     */
+    private void handleSubmitResponse(ComfyuiTask comfyuiTask, Response<HashMap> response) throws IOException {
+        if (response.isSuccessful()) {
+            HashMap body = response.body();
+            if (body == null || body.get("prompt_id") == null) {
+                log.error("ComfyUI响应数据异常，body或prompt_id为null");
+                releaseSemaphore("ComfyUI响应数据异常");
+                refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getPoints(), 
+                        "temp_" + comfyuiTask.getId(), "comfyui_response_error_refund_failed");
                 redisService.removeStartedTask("temp_" + comfyuiTask.getId());
+                return;
             }
-        } catch (Exception e) {
-            log.error("提交任务到Comfyui发生异常: {}", e.getMessage(), e);
-            releaseSemaphore("提交任务异常");
-            refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getSize(), 
-                    "temp_" + comfyuiTask.getId(), "comfyui_submit_exception_refund_failed");
+            String promptId = (String) body.get("prompt_id");
+            comfyuiTask.setPromptId(promptId);
+            log.info("添加任务到Comfyui成功：{}", comfyuiTask.getPromptId());
+            // 将任务标记为“已开始执行”，用于后续WS消息匹配、排名计算
+            redisService.addStartedTask(promptId, comfyuiTask);
+            // 通知用户任务开始执行
+            HashMap<String, Object> event = new HashMap<>();
+            event.put("type", "start");
+            wsNoticeService.sendTaskEvent(comfyuiTask, event);
+        } else {
+            String error = response.errorBody() != null ? response.errorBody().string() : "";
+            log.error("添加任务到Comfyui错误: {}", error);
+            releaseSemaphore("ComfyUI提交失败");
+            refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getPoints(), 
+                    "temp_" + comfyuiTask.getId(), "comfyui_submit_error_refund_failed");
             redisService.removeStartedTask("temp_" + comfyuiTask.getId());
         }
     }
 
+    /**
+     * 处理ComfyUI提交异常
+     */
+    private void handleSubmitException(ComfyuiTask comfyuiTask, Throwable e) {
+        if (e instanceof UpstreamRejectedException) {
+            // 上游熔断或舱壁已满：任务放回队首继续排队，不退款
+            log.warn("ComfyUI暂不可用，任务{}放回队首: {}", comfyuiTask.getId(), e.getMessage());
+            releaseSemaphore("ComfyUI暂不可用");
+            redisService.requeueTask(comfyuiTask);
+            return;
+        }
+        log.error("提交任务到Comfyui发生异常: {}", e.getMessage(), e);
+        releaseSemaphore("提交任务异常");
+        refundCompensationService.safeRefund(comfyuiTask.getUserId(), comfyuiTask.getPoints(), 
+                "temp_" + comfyuiTask.getId(), "comfyui_submit_exception_refund_failed");
+        redisService.removeStartedTask("temp_" + comfyuiTask.getId());
+    }
+
     /**
      * 定时任务入口，每秒执行一次（获取分布式锁和信号量后执行）
      * 
@@ -104,6 +141,7 @@ public class RunTaskJob {
      *     <li>1秒间隔：快速响应队列中的任务</li>
      *     <li>分布式锁：防止集群环境下多实例并发执行</li>
      *     <li>信号量控制：限制并发提交到ComfyUI的任务数</li>
+     *     <li>熔断检查：ComfyUI熔断期间任务留在队列中，不弹出也不退款</li>
      * </ul>
      * 
      * <p>执行流程：
@@ -119,6 +157,11 @@ public class RunTaskJob {
         RLock lock = redissonClient.getLock(SPRING_TASK_LOCK_KEY);
         if (lock.tryLock()) {
             try {
+                // ComfyUI熔断中：任务保留在队列中，本轮不调度
+                if (!comfyuiGuard.isCallPermitted()) {
+                    log.debug("ComfyUI熔断中，跳过本轮调度");
+                    return;
+                }
                 // 快速判断是否有待处理任务，避免无任务时重复获取信号量
                 if (redisService.hasQueueTask()) {
                     RSemaphore semaphore = redissonClient.getSemaphore(TASK_RUN_SEMAPHORE);
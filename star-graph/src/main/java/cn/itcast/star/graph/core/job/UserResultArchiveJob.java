@@ -0,0 +1,70 @@
+package cn.itcast.star.graph.core.job;
+
+import cn.itcast.star.graph.core.service.UserResultArchiveService;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * 历史记录归档定时任务 - 每天凌晨把90天前的记录分批移入归档表
+ *
+ * <ul>
+ *     <li>分布式锁保证集群中只有一个实例执行</li>
+ *     <li>每批500条、批间暂停200毫秒，避免长事务和主从延迟影响线上写入</li>
+ *     <li>单次最多归档MAX_CHUNKS_PER_RUN批，剩余的留到下次执行</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class UserResultArchiveJob {
+
+    private static final String ARCHIVE_LOCK_KEY = "user_result_archive_lock";
+    /** 热表保留天数 */
+    private static final int HOT_DAYS = 90;
+    private static final int CHUNK_SIZE = 500;
+    private static final long PAUSE_MS = 200;
+    private static final int MAX_CHUNKS_PER_RUN = 200;
+
+    @Autowired
+    RedissonClient redissonClient;
+    @Autowired
+    UserResultArchiveService userResultArchiveService;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void archive() {
+        RLock lock = redissonClient.getLock(ARCHIVE_LOCK_KEY);
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusDays(HOT_DAYS);
+            long total = 0;
+            for (int i = 0; i < MAX_CHUNKS_PER_RUN; i++) {
+                int moved = userResultArchiveService.archiveChunk(cutoff, CHUNK_SIZE);
+                total += moved;
+                meterRegistry.counter("user.result.archived").increment(moved);
+                if (moved < CHUNK_SIZE) {
+                    break;
+                }
+                Thread.sleep(PAUSE_MS);
+            }
+            log.info("历史记录归档完成，截止时间{}，共{}条", cutoff, total);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("历史记录归档失败: {}", e.getMessage());
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+}
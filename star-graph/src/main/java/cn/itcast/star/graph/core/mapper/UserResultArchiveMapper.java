@@ -0,0 +1,81 @@
+package cn.itcast.star.graph.core.mapper;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+* <p>
+* sg_user_result_archive 归档表Mapper，表结构与sg_user_result一致
+* </p>
+*/
+public interface UserResultArchiveMapper {
+
+    /**
+     * 按创建时间顺序查询热表中早于截止时间的记录ID
+     */
+    @Select("SELECT id FROM sg_user_result WHERE created_time < #{cutoff} ORDER BY created_time, id LIMIT #{limit}")
+    List<Long> selectColdIds(@Param("cutoff") LocalDateTime cutoff, @Param("limit") int limit);
+
+    /**
+     * 复制到归档表，重复执行时忽略已归档的记录
+     */
+    @Insert("<script>INSERT IGNORE INTO sg_user_result_archive SELECT * FROM sg_user_result WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int copyToArchive(@Param("ids") List<Long> ids);
+
+    /**
+     * 从热表删除已归档的记录
+     */
+    @Delete("<script>DELETE FROM sg_user_result WHERE id IN "
+            + "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int deleteFromHot(@Param("ids") List<Long> ids);
+
+    /**
+     * 按(created_time, id)倒序查询游标之后的归档记录
+     */
+    @Select("<script>SELECT id, created_time, user_id, collect, url, thumb_url, display_url FROM sg_user_result_archive "
+            + "WHERE user_id = #{userId}"
+            + "<if test='cursor != null'> AND (created_time &lt; #{cursor.createdTime} "
+            + "OR (created_time = #{cursor.createdTime} AND id &lt; #{cursor.id}))</if>"
+            + " ORDER BY created_time DESC, id DESC LIMIT #{limit}</script>")
+    List<UserResult> listAfter(@Param("userId") Long userId, @Param("cursor") HistoryCursor cursor, @Param("limit") int limit);
+
+    /**
+     * 按页码查询热表和归档表合并后的记录，按(created_time, id)倒序
+     *
+     * <p>两个子查询各自最多取offset+limit条再合并排序；UNION去掉归档过程中复制后尚未从热表删除的重复记录
+     */
+    @Select("SELECT id, created_time, user_id, collect, url, thumb_url, display_url FROM ("
+            + "(SELECT id, created_time, user_id, collect, url, thumb_url, display_url FROM sg_user_result "
+            + "WHERE user_id = #{userId} ORDER BY created_time DESC, id DESC LIMIT #{end})"
+            + " UNION "
+            + "(SELECT id, created_time, user_id, collect, url, thumb_url, display_url FROM sg_user_result_archive "
+            + "WHERE user_id = #{userId} ORDER BY created_time DESC, id DESC LIMIT #{end})"
+            + ") t ORDER BY created_time DESC, id DESC LIMIT #{offset}, #{limit}")
+    List<UserResult> listPage(@Param("userId") Long userId, @Param("offset") long offset,
+                              @Param("limit") int limit, @Param("end") long end);
+
+    /**
+     * 用户归档记录数
+     */
+    @Select("SELECT COUNT(*) FROM sg_user_result_archive WHERE user_id = #{userId}")
+    long countByUserId(@Param("userId") Long userId);
+
+    /**
+     * 回写归档记录的派生图片地址
+     */
+    @Update("<script>UPDATE sg_user_result_archive <set>"
+            + "<if test='result.url != null'>url = #{result.url},</if>"
+            + "<if test='result.thumbUrl != null'>thumb_url = #{result.thumbUrl},</if>"
+            + "<if test='result.displayUrl != null'>display_url = #{result.displayUrl},</if>"
+            + "</set> WHERE id = #{result.id}</script>")
+    int updateDerivatives(@Param("result") UserResult result);
+}
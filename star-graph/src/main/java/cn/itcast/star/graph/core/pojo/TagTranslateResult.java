@@ -0,0 +1,32 @@
+package cn.itcast.star.graph.core.pojo;
+
+import lombok.Data;
+
+/**
+ * 标签词典翻译结果
+ *
+ * <p>记录词典翻译后的文本及标签覆盖情况，未完全覆盖时由调用方回退到Ollama翻译
+ *
+ * @author itcast
+ * @since 1.0
+ */
+@Data
+public class TagTranslateResult {
+
+    /** 翻译后的英文提示词（仅在完全覆盖时有效） */
+    private String text;
+
+    /** 标签总数 */
+    private int totalTags;
+
+    /** 被词典覆盖的标签数 */
+    private int coveredTags;
+
+    /** 是否所有标签都被词典覆盖 */
+    private boolean fullyCovered;
+
+    /** 词典覆盖率（0.0-1.0） */
+    public double getCoverage() {
+        return totalTags == 0 ? 0 : (double) coveredTags / totalTags;
+    }
+}
@@ -51,5 +51,15 @@ public class UserResult implements Serializable {
     */
     private String url;
 
+    /**
+    * 缩略图地址（列表展示用，未生成时为空）
+    */
+    private String thumbUrl;
+
+    /**
+    * 展示图地址（压缩后的大图，未生成时为空）
+    */
+    private String displayUrl;
+
 
 }
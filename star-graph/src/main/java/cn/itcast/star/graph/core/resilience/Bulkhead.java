@@ -0,0 +1,38 @@
+package cn.itcast.star.graph.core.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 舱壁 - 限制同时在途的上游调用数，上游变慢时多余的请求快速失败而不是占满Tomcat线程
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final long maxWaitMs;
+    private final Semaphore permits;
+
+    public Bulkhead(int maxConcurrentCalls, long maxWaitMs) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitMs = maxWaitMs;
+        this.permits = new Semaphore(maxConcurrentCalls);
+    }
+
+    /**
+     * 获取许可，最多等待maxWaitMs
+     */
+    public boolean tryAcquire() throws InterruptedException {
+        return permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * 当前在途调用数
+     */
+    public int getInFlight() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+}
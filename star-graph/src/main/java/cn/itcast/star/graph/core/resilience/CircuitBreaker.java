@@ -0,0 +1,142 @@
+package cn.itcast.star.graph.core.resilience;
+
+import java.util.Arrays;
+
+/**
+ * 熔断器 - 按最近N次调用的失败率切换状态
+ *
+ * <p>状态流转：
+ * <ol>
+ *     <li>CLOSED：正常放行，最近N次调用失败率超过阈值时进入OPEN</li>
+ *     <li>OPEN：直接拒绝，持续openDurationMs后进入HALF_OPEN</li>
+ *     <li>HALF_OPEN：只放行一次试探调用，成功则CLOSED，失败则重新OPEN</li>
+ * </ol>
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /** 统计窗口大小（最近N次调用） */
+    private final int windowSize;
+    /** 窗口内最少调用次数，不足时不判断失败率 */
+    private final int minimumCalls;
+    /** 失败率阈值(0~1) */
+    private final double failureRateThreshold;
+    /** OPEN状态持续时间(毫秒) */
+    private final long openDurationMs;
+
+    /** 最近N次调用结果，true表示失败 */
+    private final boolean[] outcomes;
+    private int index;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openDurationMs) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDurationMs = openDurationMs;
+        this.outcomes = new boolean[windowSize];
+    }
+
+    /**
+     * 判断是否允许调用，HALF_OPEN状态下只允许一次试探
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.currentTimeMillis() - openedAt < openDurationMs) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    /**
+     * 不占用试探名额地判断当前是否放行（用于调度前的快速检查）
+     */
+    public synchronized boolean isCallPermitted() {
+        if (state == State.OPEN) {
+            return System.currentTimeMillis() - openedAt >= openDurationMs;
+        }
+        return state == State.CLOSED || !trialInFlight;
+    }
+
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            reset();
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        record(true);
+        if (calls >= minimumCalls && (double) failures / calls >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 调用被取消等不计入统计的情况，释放试探名额
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (calls == windowSize) {
+            if (outcomes[index]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[index] = failure;
+        if (failure) {
+            failures++;
+        }
+        index = (index + 1) % windowSize;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = System.currentTimeMillis();
+        trialInFlight = false;
+    }
+
+    private void reset() {
+        state = State.CLOSED;
+        trialInFlight = false;
+        index = 0;
+        calls = 0;
+        failures = 0;
+        Arrays.fill(outcomes, false);
+    }
+}
@@ -0,0 +1,34 @@
+package cn.itcast.star.graph.core.resilience;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * 请求时间预算拦截器 - 请求开始时设置截止时间，结束后清理
+ */
+public class DeadlineInterceptor implements AsyncHandlerInterceptor {
+
+    /** 单个HTTP请求的时间预算(毫秒) */
+    private final long budgetMs;
+
+    public DeadlineInterceptor(long budgetMs) {
+        this.budgetMs = budgetMs;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestDeadline.start(budgetMs);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestDeadline.clear();
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestDeadline.clear();
+    }
+}
@@ -0,0 +1,51 @@
+package cn.itcast.star.graph.core.resilience;
+
+/**
+ * 请求时间预算 - 在当前线程记录HTTP请求的截止时间
+ *
+ * <p>由DeadlineInterceptor在请求开始时设置，上游调用和阻塞等待据此缩短超时时间，
+ * 避免请求已超时后仍继续占用线程等待上游
+ */
+public class RequestDeadline {
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    /**
+     * 设置当前请求的截止时间
+     *
+     * @param budgetMs 时间预算(毫秒)
+     */
+    public static void start(long budgetMs) {
+        DEADLINE.set(System.currentTimeMillis() + budgetMs);
+    }
+
+    public static void clear() {
+        DEADLINE.remove();
+    }
+
+    /**
+     * 当前请求的截止时间戳(毫秒)，未设置时返回null；交给其他线程执行的调用需自行携带
+     */
+    public static Long current() {
+        return DEADLINE.get();
+    }
+
+    /**
+     * 剩余时间(毫秒)，未设置截止时间时返回defaultMs，否则取二者较小值（已超时返回0）
+     */
+    public static long remainingMillis(long defaultMs) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return defaultMs;
+        }
+        return Math.max(0, Math.min(defaultMs, deadline - System.currentTimeMillis()));
+    }
+
+    /**
+     * 是否已超过截止时间
+     */
+    public static boolean isExpired() {
+        Long deadline = DEADLINE.get();
+        return deadline != null && System.currentTimeMillis() >= deadline;
+    }
+}
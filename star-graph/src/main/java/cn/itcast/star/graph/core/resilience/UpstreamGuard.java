@@ -0,0 +1,183 @@
+package cn.itcast.star.graph.core.resilience;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 上游保护 - 组合熔断器、舱壁和请求时间预算，以OkHttp拦截器的形式挂到上游客户端
+ *
+ * <p>拦截流程：
+ * <ol>
+ *     <li>请求时间预算已用完：直接拒绝</li>
+ *     <li>熔断器OPEN：直接拒绝</li>
+ *     <li>舱壁已满：等待片刻后拒绝</li>
+ *     <li>按剩余时间预算缩短本次调用的读写超时</li>
+ *     <li>网络异常或5xx记为失败，调用取消不计入统计</li>
+ * </ol>
+ *
+ * <p>舱壁许可持有到响应体关闭为止，流式下载（如@Streaming的图片拉取）在读完响应体之前同样计入在途调用数。
+ */
+@Slf4j
+public class UpstreamGuard implements Interceptor {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    /** 单次调用默认超时(毫秒) */
+    private final long defaultTimeoutMs;
+
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    public UpstreamGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead, long defaultTimeoutMs) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.defaultTimeoutMs = defaultTimeoutMs;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long timeoutMs = RequestDeadline.remainingMillis(defaultTimeoutMs);
+        if (timeoutMs <= 0) {
+            throw reject("请求时间预算已用完");
+        }
+        if (!circuitBreaker.tryAcquire()) {
+            throw reject("熔断中");
+        }
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            circuitBreaker.onIgnored();
+            throw new UpstreamRejectedException(name + "调用被中断");
+        }
+        if (!acquired) {
+            circuitBreaker.onIgnored();
+            throw reject("在途调用已满");
+        }
+        Response response;
+        try {
+            int timeout = (int) timeoutMs;
+            response = chain.withReadTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .withWriteTimeout(timeout, TimeUnit.MILLISECONDS)
+                    .proceed(chain.request());
+        } catch (IOException | RuntimeException e) {
+            bulkhead.release();
+            if (e instanceof IOException && !chain.call().isCanceled()) {
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onIgnored();
+            }
+            throw e;
+        }
+        if (response.code() >= 500) {
+            circuitBreaker.onFailure();
+        } else {
+            circuitBreaker.onSuccess();
+        }
+        ResponseBody body = response.body();
+        if (body == null) {
+            bulkhead.release();
+            return response;
+        }
+        // 响应体关闭时才归还许可
+        return response.newBuilder()
+                .body(new PermitHoldingBody(body))
+                .build();
+    }
+
+    /**
+     * 当前是否放行调用（不占用半开试探名额）
+     */
+    public boolean isCallPermitted() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    private UpstreamRejectedException reject(String reason) {
+        rejectedCalls.incrementAndGet();
+        log.warn("{}调用被拒绝: {}", name, reason);
+        return new UpstreamRejectedException(name + "调用被拒绝: " + reason);
+    }
+
+    /**
+     * 包装响应体，关闭时归还舱壁许可（只归还一次）
+     */
+    private class PermitHoldingBody extends ResponseBody {
+
+        private final ResponseBody delegate;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final BufferedSource source;
+
+        PermitHoldingBody(ResponseBody delegate) {
+            this.delegate = delegate;
+            this.source = Okio.buffer(new ForwardingSource(delegate.source()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        release();
+                    }
+                }
+            });
+        }
+
+        @Override
+        public MediaType contentType() {
+            return delegate.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return delegate.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            return source;
+        }
+
+        @Override
+        public void close() {
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                bulkhead.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package cn.itcast.star.graph.core.resilience;
+
+import java.io.IOException;
+
+/**
+ * 上游调用被拒绝（熔断、舱壁已满或请求时间预算已用完）
+ *
+ * <p>继承IOException，调用方按普通网络异常处理即可走到降级逻辑
+ */
+public class UpstreamRejectedException extends IOException {
+
+    public UpstreamRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,32 @@
+package cn.itcast.star.graph.core.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ComfyUI节点目录服务 - 缓存object_info中各节点输入的可选值（模型、采样器、调度器等）
+ *
+ * <p>提交任务时用缓存校验工作流，非法参数在入队前就被拒绝，不再占用GPU许可后才失败退款
+ */
+public interface ComfyuiCatalogService {
+
+    /**
+     * 从ComfyUI拉取已注册工作流用到的节点信息，刷新缓存
+     *
+     * @return 缓存的节点类型数量
+     */
+    int refresh();
+
+    /**
+     * 校验工作流中的枚举参数，目录尚未加载的节点不做校验
+     *
+     * @param workflow 工作流对象
+     * @throws cn.itcast.star.graph.core.exception.CustomException 参数不在可选值中时抛出
+     */
+    void validate(Map<String, Object> workflow);
+
+    /**
+     * 获取可选的模型、采样器、调度器（来自缓存）
+     */
+    Map<String, List<String>> getOptions();
+}
@@ -0,0 +1,16 @@
+package cn.itcast.star.graph.core.service;
+
+/**
+ * ComfyUI事件流服务 - 持有ComfyUI连接的实例把事件写入Redis Stream，集群各实例通过消费组分摊处理
+ *
+ * <p>同一事件只会投递给消费组中的一个实例，任务完成、失败等处理（释放许可、扣费、退款）只执行一次
+ */
+public interface ComfyuiEventStreamService {
+
+    /**
+     * 发布一条ComfyUI消息
+     *
+     * @param payload ComfyUI推送的原始JSON
+     */
+    void publish(String payload);
+}
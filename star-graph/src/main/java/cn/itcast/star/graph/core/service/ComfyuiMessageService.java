@@ -2,11 +2,14 @@ package cn.itcast.star.graph.core.service;
 
 import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
 
+import java.nio.ByteBuffer;
+
 /**
  * ComfyUI消息处理服务接口
  * 
  * <p>负责处理从ComfyUI WebSocket接收到的各类消息，包括：
  * <ul>
+ *     <li>executing - 当前执行的节点（用于关联实时预览）</li>
  *     <li>progress - 任务执行进度消息（当前步数/总步数）</li>
  *     <li>executed - 任务执行完成消息（包含生成的图片信息）</li>
  *     <li>execution_error - 任务执行失败消息</li>
@@ -40,4 +43,24 @@ public interface ComfyuiMessageService {
      * @param messageBase ComfyUI消息对象，包含type和data字段
      */
     void handleMessage(MessageBase messageBase);
+
+    /**
+     * 跟踪ComfyUI当前执行的任务（仅在持有ComfyUI连接的实例上调用）
+     *
+     * <p>executing消息关联预览图的推送目标，WebSocket输出的工作流在执行结束时完成任务；
+     * 任务结束消息只清理预览目标，业务处理由handleMessage完成
+     *
+     * @param messageBase ComfyUI消息对象
+     */
+    void trackExecution(MessageBase messageBase);
+
+    /**
+     * 处理ComfyUI发送的二进制消息（采样过程中的预览图）
+     *
+     * <p>帧格式：4字节事件类型(1=预览图) + 4字节图片格式(1=JPEG, 2=PNG) + 图片数据，
+     * 预览图关联到当前执行的任务后限频推送给对应用户
+     *
+     * @param frame 二进制帧内容
+     */
+    void handlePreview(ByteBuffer frame);
 }
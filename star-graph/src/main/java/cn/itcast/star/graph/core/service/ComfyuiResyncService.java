@@ -0,0 +1,16 @@
+package cn.itcast.star.graph.core.service;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ComfyUI状态同步服务 - WebSocket重连后补发断线期间丢失的任务事件
+ */
+public interface ComfyuiResyncService {
+
+    /**
+     * 对比本地执行中的任务与ComfyUI的队列和历史，补发已完成、失败或丢失任务的消息
+     *
+     * @return 补发的消息数量
+     */
+    CompletableFuture<Integer> resync();
+}
@@ -0,0 +1,17 @@
+package cn.itcast.star.graph.core.service;
+
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * ComfyUI图片上传服务 - 把用户上传的图片转发到ComfyUI的input目录
+ */
+public interface ComfyuiUploadService {
+
+    /**
+     * 上传图片到ComfyUI，同一ComfyUI节点上内容相同的图片只上传一次
+     *
+     * @param file 用户上传的图片
+     * @return LoadImage节点可直接使用的图片名（含子目录）
+     */
+    String uploadImage(MultipartFile file);
+}
@@ -0,0 +1,23 @@
+package cn.itcast.star.graph.core.service;
+
+import cn.itcast.star.graph.core.dto.request.Image2ImageReqDto;
+import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 图生图服务 - 上传参考图并创建图生图任务
+ *
+ * <p>任务与文生图进入同一队列，取消、插队、排名查询共用文生图接口
+ */
+public interface Image2ImageService {
+
+    /**
+     * 创建图生图任务
+     *
+     * @param image 参考图
+     * @param image2ImageReqDto 图生图参数
+     * @return 任务响应，包含任务ID和队列位置
+     * @throws Exception 当积分不足或参数错误时
+     */
+    Text2ImageResDto imageToImage(MultipartFile image, Image2ImageReqDto image2ImageReqDto) throws Exception;
+}
@@ -1,5 +1,7 @@
 package cn.itcast.star.graph.core.service;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Ollama AI翻译服务 - 使用本地大语言模型翻译中文提示词为英文
  */
@@ -8,4 +10,9 @@ public interface OllamaService {
      * 翻译中文为英文，失败时返回原文
      */
     String translate(String prompt);
+
+    /**
+     * 异步翻译，失败或熔断时异常完成；取消返回的Future会同时取消尚未完成的Ollama调用
+     */
+    CompletableFuture<String> translateAsync(String prompt);
 }
@@ -0,0 +1,26 @@
+package cn.itcast.star.graph.core.service;
+
+import cn.itcast.star.graph.core.pojo.TagTranslateResult;
+
+/**
+ * 提示词词典服务 - 使用本地词典翻译逗号分隔的标签式中文提示词
+ *
+ * <p>完全被词典覆盖的提示词无需调用大模型，未覆盖的自由文本由调用方回退到Ollama
+ */
+public interface PromptDictionaryService {
+
+    /**
+     * 使用词典翻译标签式提示词
+     *
+     * @param prompt 中文提示词，如"美女, 长发, 海边"
+     * @return 翻译结果及覆盖情况
+     */
+    TagTranslateResult translateTags(String prompt);
+
+    /**
+     * 重新加载词典（内置词典 + 外部词典文件）
+     *
+     * @return 加载后的词条数量
+     */
+    int reload();
+}
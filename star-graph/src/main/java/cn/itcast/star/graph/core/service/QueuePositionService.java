@@ -0,0 +1,14 @@
+package cn.itcast.star.graph.core.service;
+
+/**
+ * 排队位置推送服务 - 队首移动时计算一次新序号，只推送给序号发生变化的等待用户
+ */
+public interface QueuePositionService {
+
+    /**
+     * 排队位置有变化时，批量推送变化的序号
+     *
+     * @return 推送的任务数
+     */
+    int pushChanges();
+}
@@ -2,6 +2,9 @@ package cn.itcast.star.graph.core.service;
 
 import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
 
+import java.util.List;
+import java.util.Set;
+
 /**
  * Redis服务接口
  * 
@@ -103,4 +106,44 @@ public interface RedisService {
      * @param promptId ComfyUI任务ID
      */
     void removeStartedTask(String promptId);
+
+    /**
+     * 原子地取出并删除正在执行的任务（GETDEL）
+     *
+     * <p>同一任务的结束事件可能重复到达（事件流至少一次投递、重连补发），
+     * 只有真正删除了任务记录的调用方拿到任务，其他调用方返回null
+     *
+     * @param promptId ComfyUI任务ID
+     * @return 任务详情，任务已被处理或不存在时返回null
+     */
+    ComfyuiTask claimStartedTask(String promptId);
+
+    /**
+     * 将已弹出但未能提交的任务放回队首（上游熔断等情况下保留排队位置）
+     *
+     * @param comfyuiTask 已弹出的任务
+     */
+    void requeueTask(ComfyuiTask comfyuiTask);
+
+    /**
+     * 获取所有已提交到ComfyUI的任务的promptId（不含临时占位符）
+     */
+    Set<String> getStartedPromptIds();
+
+    /**
+     * 取出并清除"排队位置已变化"标记
+     *
+     * <p>任务完成、取消、插队、放回队首时设置该标记；集群中只有一个实例能取到
+     *
+     * @return 上次取出后排队位置是否发生过变化
+     */
+    boolean consumeQueueChanged();
+
+    /**
+     * 获取等待队列前limit个任务，index为其当前排队序号
+     *
+     * @param limit 最多返回的任务数
+     * @return 按排队顺序排列的任务
+     */
+    List<ComfyuiTask> getQueueSnapshot(int limit);
 }
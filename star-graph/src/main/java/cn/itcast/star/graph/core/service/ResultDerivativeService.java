@@ -0,0 +1,20 @@
+package cn.itcast.star.graph.core.service;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+
+import java.util.List;
+
+/**
+ * 生图结果派生文件服务 - 生成列表用的缩略图和压缩后的展示图
+ */
+public interface ResultDerivativeService {
+
+    /**
+     * 为尚未生成派生文件的记录异步生成缩略图和展示图，生成后回写记录
+     *
+     * <p>线程池已满或记录正在生成时直接跳过，下次查询列表时再补生成
+     *
+     * @param results 生图结果记录（需已有ID）
+     */
+    void generateAsync(List<UserResult> results);
+}
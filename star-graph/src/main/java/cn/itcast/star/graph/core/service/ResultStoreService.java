@@ -0,0 +1,75 @@
+package cn.itcast.star.graph.core.service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 生图结果存储服务 - 把ComfyUI输出图片转存到本地内容寻址存储
+ *
+ * <p>文件按内容SHA-256命名（Key为 哈希.扩展名），相同内容只存一份，
+ * 存储后的图片由本服务的图片接口提供访问，不再依赖GPU服务器的输出目录
+ */
+public interface ResultStoreService {
+
+    /**
+     * 从ComfyUI流式下载输出图片并写入本地存储
+     *
+     * @param filename ComfyUI输出文件名
+     * @param type 文件类型(output/temp)
+     * @param subfolder 子文件夹名
+     * @return 存储Key
+     */
+    String ingest(String filename, String type, String subfolder) throws IOException;
+
+    /**
+     * 异步转存输出图片
+     *
+     * @return 图片访问URL，转存失败或线程池已满时异常完成
+     */
+    CompletableFuture<String> ingestAsync(String filename, String type, String subfolder);
+
+    /**
+     * 异步保存已在内存中的图片（WebSocket回传的输出图片）
+     *
+     * @param data 图片内容
+     * @param extension 扩展名，不含点
+     * @return 图片访问URL，写入失败或线程池已满时异常完成
+     */
+    CompletableFuture<String> storeAsync(byte[] data, String extension);
+
+    /**
+     * 根据存储Key定位文件
+     *
+     * @return 文件路径，Key非法或文件不存在时返回null
+     */
+    Path resolve(String key);
+
+    /**
+     * 保存图片的派生文件（缩略图、展示图），Key为 原哈希.派生类型.扩展名，已存在时不重复写入
+     *
+     * @param key 原图存储Key
+     * @param variant 派生类型(thumb/display)
+     * @param extension 扩展名，不含点
+     * @param data 文件内容
+     * @return 派生文件存储Key
+     */
+    String storeDerivative(String key, String variant, String extension, byte[] data) throws IOException;
+
+    /**
+     * 从图片地址中解析存储Key，支持站内路径和带主机名的访问URL（包括旧记录中保存的完整URL）
+     *
+     * @return 存储Key，非本地存储的URL返回null
+     */
+    String keyOf(String url);
+
+    /**
+     * 存储Key对应的站内路径（/api/1.0/images/{key}），写入数据库的是该路径，不依赖部署地址
+     */
+    String urlOf(String key);
+
+    /**
+     * 返回给前端前把站内路径转为浏览器访问URL，非本地存储的地址原样返回
+     */
+    String publicUrlOf(String url);
+}
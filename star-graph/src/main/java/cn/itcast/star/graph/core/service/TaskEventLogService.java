@@ -0,0 +1,46 @@
+package cn.itcast.star.graph.core.service;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务事件日志服务 - 按任务记录推送给前端的事件，断线重连后按序号补发
+ *
+ * <p>每个任务的事件带递增序号，只保留最近若干条并设置过期时间
+ */
+public interface TaskEventLogService {
+
+    /**
+     * 追加一条任务事件
+     *
+     * @param taskId 任务ID
+     * @param userId 任务所属用户
+     * @param event 事件内容（写入前会加上seq和taskId字段）
+     * @param rawBytes 事件未做紧凑编码时的字节数，与实际字节数一起按任务累计
+     * @return 事件序号
+     */
+    long append(String taskId, Long userId, Map<String, Object> event, int rawBytes);
+
+    /**
+     * 任务累计的推送字节数
+     *
+     * @return [未编码字节数, 实际字节数]，日志不存在时均为0
+     */
+    long[] trafficOf(String taskId);
+
+    /**
+     * 读取序号大于afterSeq的事件
+     *
+     * @param taskId 任务ID
+     * @param afterSeq 客户端已收到的最后一个序号，0表示从头读取
+     * @return 按序号升序的事件JSON
+     */
+    List<String> readAfter(String taskId, long afterSeq);
+
+    /**
+     * 任务所属用户
+     *
+     * @return 用户ID，日志不存在或已过期时返回null
+     */
+    Long ownerOf(String taskId);
+}
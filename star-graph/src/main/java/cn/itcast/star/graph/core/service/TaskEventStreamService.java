@@ -0,0 +1,30 @@
+package cn.itcast.star.graph.core.service;
+
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+/**
+ * 任务事件SSE推送服务 - 按任务ID订阅事件，适合只关心单个任务的脚本和移动端
+ *
+ * <p>与WsNoticeService共用同一事件源：任务事件写入事件日志后广播到集群，
+ * 各实例把事件推送给本地订阅了该任务的SSE连接
+ */
+public interface TaskEventStreamService {
+
+    /**
+     * 订阅任务事件，先补发afterSeq之后的历史事件，再推送实时事件，任务结束后关闭连接
+     *
+     * @param taskId 任务ID（调用方需已校验任务归属）
+     * @param afterSeq 已收到的最后一个事件序号，0表示从头读取
+     * @return SSE连接，事件id为序号
+     */
+    SseEmitter subscribe(String taskId, long afterSeq);
+
+    /**
+     * 广播一条任务事件到集群
+     *
+     * @param taskId 任务ID
+     * @param seq 事件序号
+     * @param event 事件JSON
+     */
+    void publish(String taskId, long seq, String event);
+}
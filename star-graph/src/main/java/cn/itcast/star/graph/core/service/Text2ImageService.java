@@ -1,14 +1,21 @@
 package cn.itcast.star.graph.core.service;
 
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
 import cn.itcast.star.graph.core.dto.common.PageResult;
 import cn.itcast.star.graph.core.dto.request.Text2ImageCancelReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImageEventsReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageListReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImagePreTranslateReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImagePriorityReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageReqDto;
 import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
 import cn.itcast.star.graph.core.pojo.UserResult;
 
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * 文生图服务接口
@@ -33,6 +40,15 @@ public interface Text2ImageService {
      * @throws Exception 当积分不足或参数错误时
      */
     Text2ImageResDto textToImage(Text2ImageReqDto text2ImageReqDto) throws Exception;
+
+    /**
+     * 冻结积分并将已组装好的任务加入队列（文生图、图生图共用）
+     *
+     * @param comfyuiTask 任务对象，需已设置用户和图片数量
+     * @return 任务响应，包含任务ID和队列位置
+     * @throws Exception 当积分不足或入队失败时（入队失败会归还积分）
+     */
+    Text2ImageResDto submitTask(ComfyuiTask comfyuiTask) throws Exception;
     
     /**
      * 取消文生图任务（智能取消）
@@ -44,9 +60,10 @@ public interface Text2ImageService {
      * </ul>
      * 
      * @param cancelReqDto 取消请求参数
+     * @return 取消完成的Future（中断执行中的任务是异步的）
      * @throws Exception 当任务不存在、已完成或无权限时
      */
-    void cancelTask(Text2ImageCancelReqDto cancelReqDto) throws Exception;
+    CompletableFuture<Void> cancelTask(Text2ImageCancelReqDto cancelReqDto) throws Exception;
     
     /**
      * 查询用户的文生图历史记录
@@ -75,4 +92,38 @@ public interface Text2ImageService {
      * @throws Exception 当任务不存在或无权限时
      */
     Long getTaskRank(Text2ImagePriorityReqDto priorityReqDto) throws Exception;
+
+    /**
+     * 获取任务事件（断线重连后补发）
+     * 
+     * @param eventsReqDto 任务ID和已收到的最后一个事件序号
+     * @return 之后的事件JSON，按序号升序；事件日志已过期时返回空列表
+     */
+    List<String> getTaskEvents(Text2ImageEventsReqDto eventsReqDto);
+
+    /**
+     * 以SSE方式订阅任务事件（非阻塞，不占用Servlet线程）
+     * 
+     * @param eventsReqDto 任务ID和已收到的最后一个事件序号
+     * @return SSE连接，任务结束后关闭
+     */
+    SseEmitter streamTaskEvents(Text2ImageEventsReqDto eventsReqDto);
+
+    /**
+     * 预翻译提示词
+     * 
+     * <p>用户输入过程中提前翻译并缓存，提交任务时直接命中缓存
+     * 
+     * @param preTranslateReqDto 当前输入的正向/负向提示词
+     */
+    void preTranslate(Text2ImagePreTranslateReqDto preTranslateReqDto);
+
+    /**
+     * 获取可选的模型、采样器、调度器
+     * 
+     * <p>数据来自缓存的ComfyUI节点目录，不访问ComfyUI
+     * 
+     * @return models/samplers/schedulers -> 可选值
+     */
+    Map<String, List<String>> getOptions();
 }
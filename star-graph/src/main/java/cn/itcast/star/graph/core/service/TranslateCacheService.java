@@ -0,0 +1,25 @@
+package cn.itcast.star.graph.core.service;
+
+/**
+ * 翻译缓存服务 - 按用户和文本缓存提示词翻译结果，支持输入过程中的预翻译
+ */
+public interface TranslateCacheService {
+
+    /**
+     * 预翻译（防抖）：同一用户同一字段的新文本会取消尚未完成的旧翻译
+     *
+     * @param userId 用户ID
+     * @param field 字段名（propmt/reverse）
+     * @param text 待翻译文本
+     */
+    void preTranslate(Long userId, String field, String text);
+
+    /**
+     * 获取翻译结果：优先命中缓存或等待进行中的预翻译，否则同步翻译并写入缓存
+     *
+     * @param userId 用户ID
+     * @param text 待翻译文本
+     * @return 英文文本，翻译失败时返回原文
+     */
+    String translate(Long userId, String text);
+}
@@ -0,0 +1,18 @@
+package cn.itcast.star.graph.core.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * 用户历史记录归档服务 - 把冷数据从sg_user_result移到sg_user_result_archive，保持热表较小
+ */
+public interface UserResultArchiveService {
+
+    /**
+     * 归档一批早于截止时间的记录（单个事务内复制后删除）
+     *
+     * @param cutoff    截止时间
+     * @param chunkSize 本批最多条数
+     * @return 本批归档条数
+     */
+    int archiveChunk(LocalDateTime cutoff, int chunkSize);
+}
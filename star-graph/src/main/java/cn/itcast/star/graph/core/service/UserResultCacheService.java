@@ -0,0 +1,39 @@
+package cn.itcast.star.graph.core.service;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 用户历史记录首页缓存 - 缓存每个用户最新的若干条记录，查看第一页时不访问数据库
+ */
+public interface UserResultCacheService {
+
+    /**
+     * 读取最新的limit条记录，缓存未命中时通过loader查询数据库并回填
+     *
+     * @param limit  返回条数，不超过缓存容量
+     * @param loader 按条数查询最新记录
+     */
+    List<UserResult> getFirstPage(Long userId, int limit, IntFunction<List<UserResult>> loader);
+
+    /**
+     * 新记录入库后插入缓存头部（缓存不存在时不处理）
+     *
+     * @param results 按插入顺序排列的新记录
+     */
+    void prepend(Long userId, List<UserResult> results);
+
+    /**
+     * 记录字段变化（如生成缩略图）后原地替换缓存中的同一条记录，不在缓存中时不处理
+     *
+     * @param result 变化后的完整记录
+     */
+    void update(UserResult result);
+
+    /**
+     * 记录被删除或收藏状态变化时清除缓存
+     */
+    void evict(Long userId);
+}
@@ -1,6 +1,7 @@
 package cn.itcast.star.graph.core.service;
 
 import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
 import com.baomidou.mybatisplus.extension.service.IService;
 
 import java.util.List;
@@ -15,4 +16,35 @@ public interface UserResultService extends IService<UserResult> {
      */
     public void saveList(List<String> urls, Long userId);
 
+    /**
+     * 为缺少缩略图的记录补生成派生图片（异步，不影响本次返回）
+     */
+    public void ensureDerivatives(List<UserResult> userResults);
+
+    /**
+     * 返回给前端前把记录中的站内图片路径转为访问URL
+     */
+    public void toPublicUrls(List<UserResult> userResults);
+
+    /**
+     * 按(created_time, id)倒序查询游标之后的记录
+     *
+     * @param cursor 上一页末尾的游标，为null时从最新记录开始
+     * @param limit  最多返回条数
+     */
+    public List<UserResult> listAfter(Long userId, HistoryCursor cursor, int limit);
+
+    /**
+     * 按页码查询历史记录，同时覆盖热表和归档表
+     *
+     * @param pageNum  页码，从1开始
+     * @param pageSize 每页条数
+     */
+    public List<UserResult> listPage(Long userId, int pageNum, int pageSize);
+
+    /**
+     * 用户历史记录总数，读取插入时维护的计数器
+     */
+    public long countOf(Long userId);
+
 }
\ No newline at end of file
@@ -0,0 +1,70 @@
+package cn.itcast.star.graph.core.service;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiModel;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowTemplate;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 工作流注册中心 - 管理预编译的ComfyUI工作流（文生图、图生图、放大等）
+ *
+ * <p>每个工作流由描述文件注册：名称、预估消耗、参数槽位和API格式的工作流，
+ * 加载时校验并编译一次，描述文件变更后无需重启即可生效
+ */
+public interface WorkflowRegistryService {
+
+    /** 文生图工作流名称 */
+    String TEXT_TO_IMAGE = "t2i";
+
+    /** 文生图工作流（SaveImageWebsocket输出，图片通过WebSocket回传，不落GPU服务器磁盘） */
+    String TEXT_TO_IMAGE_WS = "t2i-ws";
+
+    /** 图生图工作流名称 */
+    String IMAGE_TO_IMAGE = "i2i";
+
+    /**
+     * 获取工作流模板
+     *
+     * @param name 工作流名称
+     * @return 模板，不存在时抛出CustomException
+     */
+    WorkflowTemplate getTemplate(String name);
+
+    /**
+     * 获取所有已注册的工作流
+     */
+    Collection<WorkflowTemplate> listTemplates();
+
+    /**
+     * 按参数生成工作流
+     *
+     * @param name 工作流名称
+     * @param params 参数名称 -> 参数值
+     * @return 可直接提交给ComfyUI的工作流对象
+     */
+    Map<String, Object> build(String name, Map<String, Object> params);
+
+    /**
+     * 按工作流的预估消耗计算任务需要冻结的积分
+     *
+     * @param name 工作流名称（文生图按实际使用的工作流计算）
+     * @param size 图片数量
+     * @return 预估消耗 x 图片数量
+     */
+    int estimateCost(String name, int size);
+
+    /**
+     * 将参数写入文生图工作流，返回可直接提交给ComfyUI的工作流对象
+     *
+     * <p>开启star-graph.workflow.ws-output时使用WebSocket输出的文生图工作流
+     */
+    Map<String, Object> buildText2Image(ComfyuiModel comfyuiModel);
+
+    /**
+     * 重新加载全部工作流描述文件（内置 + 外部目录）
+     *
+     * @return 加载后的工作流数量
+     */
+    int reload();
+}
@@ -1,5 +1,9 @@
 package cn.itcast.star.graph.core.service;
 
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+
+import java.util.Map;
+
 /**
  * WebSocket消息推送服务 - 向前端推送实时消息（进度、结果、错误）
  */
@@ -9,4 +13,21 @@ public interface WsNoticeService {
      * 向指定客户端推送WebSocket消息
      */
     public void sendToUser(String clientId, String message);
+
+    /**
+     * 推送任务事件：先写入任务事件日志（分配序号），再推送给任务所属的客户端
+     *
+     * @param task 任务
+     * @param event 事件内容，需包含type字段
+     */
+    public void sendTaskEvent(ComfyuiTask task, Map<String, Object> event);
+
+    /**
+     * 向指定客户端推送预览图（二进制STOMP帧，不做Base64编码）
+     *
+     * @param clientId 客户端ID
+     * @param image 图片数据
+     * @param mimeType 图片格式，如image/jpeg
+     */
+    public void sendPreviewToUser(String clientId, byte[] image, String mimeType);
 }
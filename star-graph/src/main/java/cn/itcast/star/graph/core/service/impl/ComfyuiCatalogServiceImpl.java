@@ -0,0 +1,159 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowTemplate;
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.ComfyuiCatalogService;
+import cn.itcast.star.graph.core.service.WorkflowRegistryService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * ComfyUI节点目录服务实现
+ *
+ * <p>定时按节点类型调用object_info，只保留枚举类型的输入（如ckpt_name、sampler_name），
+ * 构建新的只读目录后整体替换；拉取失败的节点保留上一次的结果。
+ * 校验只做HashSet查找，不访问网络。
+ * 上传类输入（如LoadImage.image）的可选值是ComfyUI输入目录的文件列表，刚上传的文件要等下次刷新才会出现，不纳入校验
+ */
+@Slf4j
+@Service
+public class ComfyuiCatalogServiceImpl implements ComfyuiCatalogService {
+
+    /** 模型列表来源：节点类型.输入名称 */
+    private static final String[] MODEL_SOURCE = {"CheckpointLoaderSimple", "ckpt_name"};
+    private static final String[] SAMPLER_SOURCE = {"KSampler", "sampler_name"};
+    private static final String[] SCHEDULER_SOURCE = {"KSampler", "scheduler"};
+
+    @Autowired
+    ComfyuiApi comfyuiApi;
+
+    @Autowired
+    WorkflowRegistryService workflowRegistryService;
+
+    /** 节点类型 -> 输入名称 -> 可选值（只读快照） */
+    private volatile Map<String, Map<String, Set<String>>> catalog = Map.of();
+
+    /**
+     * 启动后立即加载，之后每5分钟刷新一次（ComfyUI新增模型后无需重启）
+     */
+    @Scheduled(initialDelay = 0, fixedDelay = 300000)
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+    @Override
+    public int refresh() {
+        Set<String> classTypes = new TreeSet<>();
+        classTypes.add(MODEL_SOURCE[0]);
+        classTypes.add(SAMPLER_SOURCE[0]);
+        for (WorkflowTemplate template : workflowRegistryService.listTemplates()) {
+            for (Object node : template.getWorkflow().values()) {
+                classTypes.add(String.valueOf(((Map<?, ?>) node).get("class_type")));
+            }
+        }
+        Map<String, Map<String, Set<String>>> current = this.catalog;
+        Map<String, Map<String, Set<String>>> loaded = new HashMap<>();
+        for (String classType : classTypes) {
+            try {
+                Response<HashMap> response = comfyuiApi.getNodeInfo(classType).execute();
+                if (!response.isSuccessful() || response.body() == null || !(response.body().get(classType) instanceof Map)) {
+                    throw new IllegalStateException("HTTP状态码: " + response.code());
+                }
+                loaded.put(classType, parseEnums((Map<?, ?>) response.body().get(classType)));
+            } catch (Exception e) {
+                log.warn("获取ComfyUI节点信息失败: {}，原因: {}", classType, e.getMessage());
+                if (current.containsKey(classType)) {
+                    loaded.put(classType, current.get(classType));
+                }
+            }
+        }
+        this.catalog = Collections.unmodifiableMap(loaded);
+        log.info("ComfyUI节点目录刷新完成，节点类型: {}/{}", loaded.size(), classTypes.size());
+        return loaded.size();
+    }
+
+    @Override
+    public void validate(Map<String, Object> workflow) {
+        Map<String, Map<String, Set<String>>> current = this.catalog;
+        for (Object value : workflow.values()) {
+            Map<?, ?> node = (Map<?, ?>) value;
+            Map<String, Set<String>> enums = current.get(String.valueOf(node.get("class_type")));
+            if (enums == null || !(node.get("inputs") instanceof Map<?, ?> inputs)) {
+                continue;
+            }
+            for (Map.Entry<String, Set<String>> entry : enums.entrySet()) {
+                Object input = inputs.get(entry.getKey());
+                if (input instanceof String && !entry.getValue().isEmpty() && !entry.getValue().contains(input)) {
+                    throw new CustomException(String.format("参数%s的值不可用: %s", entry.getKey(), input));
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, List<String>> getOptions() {
+        Map<String, List<String>> options = new LinkedHashMap<>();
+        options.put("models", optionsOf(MODEL_SOURCE));
+        options.put("samplers", optionsOf(SAMPLER_SOURCE));
+        options.put("schedulers", optionsOf(SCHEDULER_SOURCE));
+        return options;
+    }
+
+    private List<String> optionsOf(String[] source) {
+        Map<String, Set<String>> enums = catalog.get(source[0]);
+        Set<String> values = enums == null ? null : enums.get(source[1]);
+        return values == null ? List.of() : new ArrayList<>(values);
+    }
+
+    /**
+     * 解析object_info中节点的枚举输入
+     *
+     * <p>旧格式：{"sampler_name": [["euler", ...], {...}]}；
+     * 新格式：{"sampler_name": ["COMBO", {"options": ["euler", ...]}]}；
+     * 带image_upload标记的输入（如LoadImage.image）跳过
+     */
+    static Map<String, Set<String>> parseEnums(Map<?, ?> nodeInfo) {
+        Map<String, Set<String>> enums = new HashMap<>();
+        if (!(nodeInfo.get("input") instanceof Map<?, ?> input)) {
+            return enums;
+        }
+        for (String group : new String[]{"required", "optional"}) {
+            if (!(input.get(group) instanceof Map<?, ?> fields)) {
+                continue;
+            }
+            fields.forEach((name, spec) -> {
+                if (!(spec instanceof List<?> list) || list.isEmpty()) {
+                    return;
+                }
+                Map<?, ?> config = list.size() > 1 && list.get(1) instanceof Map<?, ?> m ? m : Map.of();
+                if (Boolean.TRUE.equals(config.get("image_upload"))) {
+                    return;
+                }
+                Object options = list.get(0);
+                if ("COMBO".equals(options)) {
+                    options = config.get("options");
+                }
+                if (options instanceof List<?> values) {
+                    Set<String> set = new LinkedHashSet<>();
+                    values.forEach(v -> set.add(String.valueOf(v)));
+                    enums.put(String.valueOf(name), Collections.unmodifiableSet(set));
+                }
+            });
+        }
+        return enums;
+    }
+}
@@ -0,0 +1,198 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
+import cn.itcast.star.graph.core.common.Constants;
+import cn.itcast.star.graph.core.service.ComfyuiEventStreamService;
+import cn.itcast.star.graph.core.service.ComfyuiMessageService;
+import com.alibaba.fastjson2.JSON;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamConsumer;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ComfyUI事件流服务实现
+ *
+ * <p>处理流程：
+ * <ol>
+ *     <li>持有ComfyUI连接的实例XADD写入comfyui_events（近似裁剪到MAX_LEN条）</li>
+ *     <li>每个实例以自己的实例ID作为消费者加入消费组，消费线程阻塞读取新事件</li>
+ *     <li>事件交给ComfyuiMessageService处理后ACK</li>
+ *     <li>消费者宕机导致的未ACK事件，超过CLAIM_IDLE_MS后由存活实例认领重新处理</li>
+ * </ol>
+ *
+ * <p>投递语义为至少一次，任务结束事件的幂等由RedisService#claimStartedTask保证。
+ * 实例ID每次启动都不同，停止时删除自己的消费者，宕机残留的空闲消费者由存活实例定期清理
+ */
+@Slf4j
+@Service
+public class ComfyuiEventStreamServiceImpl implements ComfyuiEventStreamService {
+
+    /** 事件流Key */
+    private static final String STREAM_KEY = "comfyui_events";
+    /** 消费组 */
+    private static final String GROUP = "star-graph";
+    /** 事件字段名 */
+    private static final String FIELD = "payload";
+    /** 事件流保留条数 */
+    private static final int MAX_LEN = 10000;
+    /** 单次读取条数 */
+    private static final int READ_COUNT = 100;
+    /** 阻塞读取超时 */
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(1);
+    /** 未ACK事件超过该时间(毫秒)视为消费者已宕机 */
+    private static final long CLAIM_IDLE_MS = 60000;
+    /** 检查待认领事件的间隔(毫秒) */
+    private static final long CLAIM_INTERVAL_MS = 30000;
+    /** 没有未ACK事件且空闲超过该时间(毫秒)的消费者视为已下线 */
+    private static final long DEAD_CONSUMER_IDLE_MS = 3600000;
+
+    @Autowired
+    RedissonClient redissonClient;
+    @Autowired
+    ComfyuiMessageService comfyuiMessageService;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    private RStream<String, String> stream;
+    private Thread consumer;
+    private volatile boolean running = true;
+    private Counter published;
+    private Counter consumed;
+    private Counter claimed;
+
+    @PostConstruct
+    public void start() {
+        stream = redissonClient.getStream(STREAM_KEY, StringCodec.INSTANCE);
+        try {
+            stream.createGroup(StreamCreateGroupArgs.name(GROUP).id(StreamMessageId.NEWEST).makeStream());
+        } catch (Exception e) {
+            // 消费组已存在（BUSYGROUP）
+            log.debug("ComfyUI事件消费组已存在: {}", e.getMessage());
+        }
+        published = meterRegistry.counter("comfyui.events", "stage", "published");
+        consumed = meterRegistry.counter("comfyui.events", "stage", "consumed");
+        claimed = meterRegistry.counter("comfyui.events", "stage", "claimed");
+        consumer = new Thread(this::consumeLoop, "comfyui-event-consumer");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        consumer.interrupt();
+        try {
+            consumer.join(READ_TIMEOUT.toMillis() * 2);
+            // 还有未ACK的事件时保留消费者，由其他实例认领后再清理
+            boolean idle = stream.listConsumers(GROUP).stream()
+                    .noneMatch(c -> Constants.INSTANCE_ID.equals(c.getName()) && c.getPending() > 0);
+            if (idle) {
+                stream.removeConsumer(GROUP, Constants.INSTANCE_ID);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("删除ComfyUI事件消费者失败: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void publish(String payload) {
+        stream.add(StreamAddArgs.entry(FIELD, payload).trimNonStrict().maxLen(MAX_LEN).noLimit());
+        published.increment();
+    }
+
+    private void consumeLoop() {
+        long nextClaimAt = System.currentTimeMillis() + CLAIM_INTERVAL_MS;
+        while (running) {
+            try {
+                Map<StreamMessageId, Map<String, String>> events = stream.readGroup(GROUP, Constants.INSTANCE_ID,
+                        StreamReadGroupArgs.neverDelivered().count(READ_COUNT).timeout(READ_TIMEOUT));
+                handle(events);
+                consumed.increment(events.size());
+                if (System.currentTimeMillis() >= nextClaimAt) {
+                    nextClaimAt = System.currentTimeMillis() + CLAIM_INTERVAL_MS;
+                    claimStale();
+                }
+            } catch (Exception e) {
+                if (!running || Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+                log.error("消费ComfyUI事件异常: {}", e.getMessage());
+                sleepQuietly();
+            }
+        }
+    }
+
+    /**
+     * 认领宕机消费者未ACK的事件，事件认领完后删除已下线的消费者
+     */
+    private void claimStale() {
+        StreamMessageId startId = StreamMessageId.MIN;
+        while (running) {
+            AutoClaimResult<String, String> result = stream.autoClaim(GROUP, Constants.INSTANCE_ID,
+                    CLAIM_IDLE_MS, TimeUnit.MILLISECONDS, startId, READ_COUNT);
+            Map<StreamMessageId, Map<String, String>> events = result.getMessages();
+            if (events.isEmpty()) {
+                removeDeadConsumers();
+                return;
+            }
+            log.warn("认领其他实例未处理的ComfyUI事件: {}条", events.size());
+            handle(events);
+            claimed.increment(events.size());
+            startId = result.getNextId();
+            if (startId == null || StreamMessageId.MIN.equals(startId)) {
+                return;
+            }
+        }
+    }
+
+    private void removeDeadConsumers() {
+        for (StreamConsumer c : stream.listConsumers(GROUP)) {
+            if (!Constants.INSTANCE_ID.equals(c.getName()) && c.getPending() == 0 && c.getIdleTime() > DEAD_CONSUMER_IDLE_MS) {
+                stream.removeConsumer(GROUP, c.getName());
+                log.info("删除已下线的ComfyUI事件消费者: {}", c.getName());
+            }
+        }
+    }
+
+    private void handle(Map<StreamMessageId, Map<String, String>> events) {
+        for (Map.Entry<StreamMessageId, Map<String, String>> event : events.entrySet()) {
+            String payload = event.getValue().get(FIELD);
+            try {
+                if (payload != null) {
+                    comfyuiMessageService.handleMessage(JSON.parseObject(payload, MessageBase.class));
+                }
+            } catch (Exception e) {
+                // 处理失败同样ACK，避免异常消息被反复认领
+                log.error("处理ComfyUI事件失败: {}", payload, e);
+            }
+            stream.ack(GROUP, event.getKey());
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -4,7 +4,8 @@ import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
 import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
 import cn.itcast.star.graph.core.job.RunTaskJob;
 import cn.itcast.star.graph.core.service.*;
-import com.alibaba.fastjson2.JSON;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import jakarta.annotation.PreDestroy;
 import org.redisson.api.RSemaphore;
 import org.redisson.api.RedissonClient;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,8 +13,25 @@ import org.springframework.stereotype.Service;
 
 import lombok.extern.slf4j.Slf4j;
 
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 /**
@@ -22,6 +40,19 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
+    /** 二进制消息事件类型：预览图 */
+    private static final int PREVIEW_IMAGE_EVENT = 1;
+    /** 预览图格式：PNG（其余按JPEG处理） */
+    private static final int PREVIEW_IMAGE_PNG = 2;
+    /** 二进制帧头长度：事件类型 + 图片格式 */
+    private static final int PREVIEW_HEADER_BYTES = 8;
+    /** 同一任务两次预览推送的最小间隔(毫秒) */
+    private static final long PREVIEW_INTERVAL_MS = 250;
+    /** 推送预览图的最长边，超过时缩小并转为JPEG（latent预览通常已小于该尺寸，原样推送） */
+    static final int PREVIEW_MAX_SIZE = 256;
+    /** 通过WebSocket回传最终图片的输出节点类型 */
+    private static final String WS_OUTPUT_CLASS_TYPE = "SaveImageWebsocket";
+
     @Autowired
     WsNoticeService wsNoticeService;
     @Autowired
@@ -34,6 +65,27 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
     UserFundRecordService userFundRecordService;
     @Autowired
     RefundCompensationService refundCompensationService;
+    @Autowired
+    UpstreamProperties upstreamProperties;
+    @Autowired
+    ResultStoreService resultStoreService;
+
+    /** 当前正在执行的任务（ComfyUI同一时刻只执行一个prompt），预览图推送给它 */
+    private volatile PreviewTarget previewTarget;
+
+    /** 预览图缩放线程，最多一帧等待，繁忙时丢帧，不阻塞ComfyUI的WebSocket读线程 */
+    private final ThreadPoolExecutor previewExecutor = new ThreadPoolExecutor(1, 1,
+            60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1),
+            r -> {
+                Thread t = new Thread(r, "comfyui-preview");
+                t.setDaemon(true);
+                return t;
+            });
+
+    @PreDestroy
+    public void shutdown() {
+        previewExecutor.shutdownNow();
+    }
 
     @Override
     public void handleMessage(MessageBase messageBase) {
@@ -51,6 +103,131 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
         }
     }
 
+    @Override
+    public void trackExecution(MessageBase messageBase) {
+        if ("executing".equals(messageBase.getType())) {
+            handleExecutingMessage(messageBase);
+            return;
+        }
+        // 任务结束消息由其他实例处理，本实例只清理预览目标
+        if ("executed".equals(messageBase.getType()) || "execution_error".equals(messageBase.getType())
+                || "execution_interrupted".equals(messageBase.getType())) {
+            HashMap<String, Object> data = messageBase.getData();
+            if (data != null && data.get("prompt_id") != null) {
+                clearPreviewTarget(data.get("prompt_id").toString());
+            }
+        }
+    }
+
+    @Override
+    public void handlePreview(ByteBuffer frame) {
+        if (frame.remaining() < PREVIEW_HEADER_BYTES || frame.getInt(frame.position()) != PREVIEW_IMAGE_EVENT) {
+            return;
+        }
+        PreviewTarget target = previewTarget;
+        if (target == null) {
+            return;
+        }
+        boolean output = target.isExecutingOutputNode();
+        // 未到推送间隔的预览帧直接丢弃，不复制数据；输出节点回传的最终图片不限频
+        if (!output && !target.tryAcquire(System.currentTimeMillis())) {
+            return;
+        }
+        boolean png = frame.getInt(frame.position() + 4) == PREVIEW_IMAGE_PNG;
+        byte[] image = new byte[frame.remaining() - PREVIEW_HEADER_BYTES];
+        frame.get(frame.position() + PREVIEW_HEADER_BYTES, image);
+        if (output) {
+            target.outputs.add(resultStoreService.storeAsync(image, png ? "png" : "jpg"));
+            return;
+        }
+        String mimeType = png ? "image/png" : "image/jpeg";
+        try {
+            previewExecutor.execute(() -> sendPreview(target.clientId, image, mimeType));
+        } catch (RejectedExecutionException e) {
+            log.debug("预览图缩放繁忙，丢弃一帧");
+        }
+    }
+
+    /**
+     * 最长边不超过PREVIEW_MAX_SIZE的预览图原样推送，否则缩小后以JPEG推送；无法解码的帧丢弃
+     */
+    private void sendPreview(String clientId, byte[] image, String mimeType) {
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+            if (decoded == null) {
+                log.debug("无法解码的预览图，丢弃");
+                return;
+            }
+            if (Math.max(decoded.getWidth(), decoded.getHeight()) <= PREVIEW_MAX_SIZE) {
+                wsNoticeService.sendPreviewToUser(clientId, image, mimeType);
+                return;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(ResultDerivativeServiceImpl.resize(decoded, PREVIEW_MAX_SIZE), "jpg", out);
+            wsNoticeService.sendPreviewToUser(clientId, out.toByteArray(), "image/jpeg");
+        } catch (Exception e) {
+            log.debug("预览图缩放失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 处理节点执行消息：node为空表示该prompt执行结束
+     */
+    private void handleExecutingMessage(MessageBase messageBase) {
+        HashMap<String, Object> data = messageBase.getData();
+        if (data == null || data.get("prompt_id") == null) {
+            return;
+        }
+        String promptId = data.get("prompt_id").toString();
+        PreviewTarget target = previewTarget;
+        if (data.get("node") == null) {
+            // WebSocket输出的工作流没有executed消息，以执行结束作为完成信号
+            if (target != null && target.promptId.equals(promptId) && !target.outputNodes.isEmpty()) {
+                handleWsOutputCompleted(target);
+            } else {
+                clearPreviewTarget(promptId);
+            }
+            return;
+        }
+        if (target == null || !target.promptId.equals(promptId)) {
+            target = updatePreviewTarget(promptId, redisService.getStartedTask(promptId));
+        }
+        if (target != null) {
+            target.currentNode = data.get("node").toString();
+        }
+    }
+
+    /**
+     * WebSocket输出的任务执行结束：等待回传图片写入结果存储后完成任务
+     */
+    private void handleWsOutputCompleted(PreviewTarget target) {
+        clearPreviewTarget(target.promptId);
+        if (target.outputs.isEmpty()) {
+            log.warn("任务{}执行结束但未收到WebSocket回传的图片，按执行失败处理", target.promptId);
+            HashMap<String, Object> data = new HashMap<>();
+            data.put("prompt_id", target.promptId);
+            data.put("exception_message", "未收到生成的图片");
+            MessageBase messageBase = new MessageBase();
+            messageBase.setType("execution_error");
+            messageBase.setData(data);
+            handleExecutionErrorMessage(messageBase);
+            return;
+        }
+        ComfyuiTask task = redisService.claimStartedTask(target.promptId);
+        if (task == null) {
+            log.warn("收到完成消息，但任务已处理或不存在: {}", target.promptId);
+            return;
+        }
+        releaseRunSemaphore("任务完成，");
+        List<CompletableFuture<String>> futures = new ArrayList<>(target.outputs);
+        CompletableFuture<List<String>> urls = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .handle((v, e) -> futures.stream()
+                        .map(f -> f.isCompletedExceptionally() ? null : f.join())
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+        completeTask(target.promptId, task, urls);
+    }
+
     /**
      * 处理ComfyUI状态消息
      */
@@ -84,23 +261,22 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
             return;
         }
         String promptId = data.get("prompt_id").toString();
-        ComfyuiTask task = redisService.getStartedTask(promptId);
-        
-        releaseRunSemaphore("任务失败，");
-        
+        clearPreviewTarget(promptId);
+        // 只有取出任务记录的一方处理，重复到达的失败消息直接忽略
+        ComfyuiTask task = redisService.claimStartedTask(promptId);
         if(task==null){
-            // 任务可能已经过期或被清理，直接返回避免NPE
-            log.warn("收到失败消息，但任务已不存在（可能超时过期）: {}", promptId);
+            log.warn("收到失败消息，但任务已处理或不存在: {}", promptId);
             return;
         }
         
+        releaseRunSemaphore("任务失败，");
+        
         data.put("type","execution_error");
         // 归还冻结的积分（失败不扣费）
-        refundCompensationService.safeRefund(task.getUserId(), task.getSize(), 
+        refundCompensationService.safeRefund(task.getUserId(), task.getPoints(), 
                 promptId, "execution_error_refund_failed");
-        redisService.removeStartedTask(promptId);
         // 通过WebSocket通知用户错误信息
-        wsNoticeService.sendToUser(task.getWsClientId(), JSON.toJSONString(data));
+        wsNoticeService.sendTaskEvent(task, data);
     }
 
     /**
@@ -115,24 +291,22 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
             return;
         }
         String promptId = data.get("prompt_id").toString();
-        ComfyuiTask task = redisService.getStartedTask(promptId);
-        
-        // 【关键】释放信号量，允许新任务提交
-        releaseRunSemaphore("任务中断，");
-        
+        clearPreviewTarget(promptId);
+        // 只有取出任务记录的一方处理，重复到达的中断消息直接忽略
+        ComfyuiTask task = redisService.claimStartedTask(promptId);
         if(task==null){
-            // 任务可能已经过期或被清理，直接返回避免NPE
-            log.warn("收到中断消息，但任务已不存在（可能超时过期）: {}", promptId);
+            log.warn("收到中断消息，但任务已处理或不存在: {}", promptId);
             return;
         }
         
-        // 注意：积分退款已在cancelTask方法中处理，这里只需清理任务记录
-        redisService.removeStartedTask(promptId);
+        // 【关键】释放信号量，允许新任务提交
+        // 注意：积分退款已在cancelTask方法中处理
+        releaseRunSemaphore("任务中断，");
         
         // 构造中断消息通知前端
         data.put("type","execution_interrupted");
         // 通过WebSocket通知用户任务已中断
-        wsNoticeService.sendToUser(task.getWsClientId(), JSON.toJSONString(data));
+        wsNoticeService.sendTaskEvent(task, data);
         
         log.info("任务中断完成，promptId: {}", promptId);
     }
@@ -156,36 +330,63 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
             log.warn("收到异常的executed消息，images字段为null或为空");
             return;
         }
-        // 将图片元数据转换为可访问的URL列表（根据ComfyUI静态服务地址拼接）
-        List<String> urls = images.stream().map((image) -> String.format("http://192.168.100.129:8188/view?filename=%s&type=%s&subfolder=", image.get("filename"), image.get("type")))
-                .collect(Collectors.toList());
-        HashMap<String, Object> temp = new HashMap<>();
-        temp.put("type", "imageResult");
-        temp.put("urls", urls);
         if (data.get("prompt_id") == null) {
             log.warn("收到异常的executed消息，prompt_id为null");
             return;
         }
         String promptId = data.get("prompt_id").toString();
-        ComfyuiTask task = redisService.getStartedTask(promptId);
-        
-        releaseRunSemaphore("任务完成，");
-        
+        clearPreviewTarget(promptId);
+        // 只有取出任务记录的一方处理，重复到达的完成消息直接忽略
+        ComfyuiTask task = redisService.claimStartedTask(promptId);
         if (task == null) {
-            // 任务丢失场景下无需继续业务处理
-            log.warn("收到完成消息，但任务已不存在（可能超时过期）: {}", promptId);
+            log.warn("收到完成消息，但任务已处理或不存在: {}", promptId);
             return;
         }
         
+        releaseRunSemaphore("任务完成，");
+        
+        // 图片转存到本地存储后再保存记录并推送，转存失败的图片使用ComfyUI地址
+        completeTask(promptId, task, storeResults(images));
+    }
+
+    /**
+     * 任务成功完成（任务记录已由调用方取出）：扣除积分，图片写入结果存储后保存记录并推送给用户
+     */
+    private void completeTask(String promptId, ComfyuiTask task, CompletableFuture<List<String>> results) {
         // 任务成功完成，扣除积分（从冻结账户转到系统账户）
-        userFundRecordService.pointsDeduction(task.getUserId(), task.getSize());
-        log.info("扣除用户{}的积分: {}", task.getUserId(), task.getSize());
+        userFundRecordService.pointsDeduction(task.getUserId(), task.getPoints());
+        log.info("扣除用户{}的积分: {}", task.getUserId(), task.getPoints());
         
-        // 保存生成的图片到数据库
-        userResultService.saveList(urls,task.getUserId());
-        redisService.removeStartedTask(promptId);
-        // 通过WebSocket推送结果给用户
-        wsNoticeService.sendToUser(task.getWsClientId(), JSON.toJSONString(temp));
+        results.thenAccept(urls -> {
+            // 数据库保存站内路径，推送给前端的是访问URL
+            userResultService.saveList(urls, task.getUserId());
+            HashMap<String, Object> temp = new HashMap<>();
+            temp.put("type", "imageResult");
+            temp.put("urls", urls.stream().map(resultStoreService::publicUrlOf).collect(Collectors.toList()));
+            wsNoticeService.sendTaskEvent(task, temp);
+        }).exceptionally(e -> {
+            log.error("保存生图结果失败，promptId: {}", promptId, e);
+            return null;
+        });
+    }
+
+    /**
+     * 异步转存一组输出图片，返回顺序与输入一致的URL列表
+     */
+    private CompletableFuture<List<String>> storeResults(List<HashMap<String, Object>> images) {
+        String viewUrl = comfyuiPublicUrl() + "view?filename=%s&type=%s&subfolder=";
+        List<CompletableFuture<String>> futures = images.stream().map(image -> {
+            String filename = String.valueOf(image.get("filename"));
+            String type = String.valueOf(image.get("type"));
+            Object subfolder = image.get("subfolder");
+            return resultStoreService.ingestAsync(filename, type, subfolder == null ? "" : subfolder.toString())
+                    .exceptionally(e -> {
+                        log.warn("结果图片转存失败，使用ComfyUI地址: {}, {}", filename, e.getMessage());
+                        return String.format(viewUrl, filename, type);
+                    });
+        }).collect(Collectors.toList());
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
     }
 
     /**
@@ -204,7 +405,49 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
             return;
         }
         // 将进度消息推送给对应的WebSocket客户端
-        wsNoticeService.sendToUser(task.getWsClientId(), JSON.toJSONString(data));
+        wsNoticeService.sendTaskEvent(task, data);
+    }
+
+    /**
+     * ComfyUI对外地址（以/结尾），未配置时使用服务端调用地址
+     */
+    private String comfyuiPublicUrl() {
+        UpstreamProperties.Endpoint comfyui = upstreamProperties.getComfyui();
+        String url = comfyui.getPublicUrl() != null && !comfyui.getPublicUrl().isBlank() ? comfyui.getPublicUrl() : comfyui.getBaseUrl();
+        return url.endsWith("/") ? url : url + "/";
+    }
+
+    private PreviewTarget updatePreviewTarget(String promptId, ComfyuiTask task) {
+        if (task == null || task.getWsClientId() == null) {
+            return null;
+        }
+        PreviewTarget target = new PreviewTarget(promptId, task.getWsClientId(), outputNodesOf(task));
+        previewTarget = target;
+        return target;
+    }
+
+    /**
+     * 工作流中通过WebSocket回传图片的输出节点ID
+     */
+    private Set<String> outputNodesOf(ComfyuiTask task) {
+        Object prompt = task.getComfyuiRequestDto() == null ? null : task.getComfyuiRequestDto().getPrompt();
+        if (!(prompt instanceof Map<?, ?> nodes)) {
+            return Set.of();
+        }
+        Set<String> outputNodes = new HashSet<>();
+        nodes.forEach((nodeId, node) -> {
+            if (node instanceof Map<?, ?> nodeMap && WS_OUTPUT_CLASS_TYPE.equals(nodeMap.get("class_type"))) {
+                outputNodes.add(String.valueOf(nodeId));
+            }
+        });
+        return outputNodes;
+    }
+
+    private void clearPreviewTarget(String promptId) {
+        PreviewTarget target = previewTarget;
+        if (target != null && target.promptId.equals(promptId)) {
+            previewTarget = null;
+        }
     }
 
     private void releaseRunSemaphore(String prefix) {
@@ -212,4 +455,33 @@ public class ComfyuiMessageServiceImpl implements ComfyuiMessageService {
         semaphore.release();
         log.info("{}释放信号量，当前许可数: {}", prefix, semaphore.availablePermits());
     }
+
+    /**
+     * 预览图推送目标，按最小间隔限频；WebSocket输出的工作流同时收集回传的最终图片
+     */
+    private static class PreviewTarget {
+        final String promptId;
+        final String clientId;
+        final Set<String> outputNodes;
+        final AtomicLong lastSentAt = new AtomicLong();
+        final List<CompletableFuture<String>> outputs = new CopyOnWriteArrayList<>();
+        /** 当前执行的节点 */
+        volatile String currentNode;
+
+        PreviewTarget(String promptId, String clientId, Set<String> outputNodes) {
+            this.promptId = promptId;
+            this.clientId = clientId;
+            this.outputNodes = outputNodes;
+        }
+
+        boolean isExecutingOutputNode() {
+            String node = currentNode;
+            return node != null && outputNodes.contains(node);
+        }
+
+        boolean tryAcquire(long now) {
+            long last = lastSentAt.get();
+            return now - last >= PREVIEW_INTERVAL_MS && lastSentAt.compareAndSet(last, now);
+        }
+    }
 }
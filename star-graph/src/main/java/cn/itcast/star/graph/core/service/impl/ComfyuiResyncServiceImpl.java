@@ -0,0 +1,169 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiAsyncApi;
+import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
+import cn.itcast.star.graph.core.service.ComfyuiMessageService;
+import cn.itcast.star.graph.core.service.ComfyuiResyncService;
+import cn.itcast.star.graph.core.service.RedisService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ComfyUI状态同步服务实现
+ *
+ * <p>同步流程：
+ * <ol>
+ *     <li>取出本地认为正在执行的promptId（run_task_*）</li>
+ *     <li>查询ComfyUI的/queue，仍在执行或排队的任务不处理</li>
+ *     <li>其余任务查询/history/{promptId}：成功的补发executed，失败的补发execution_error，
+ *     被中断的补发execution_interrupted</li>
+ *     <li>历史中也不存在（ComfyUI重启导致任务丢失）按执行失败处理，归还积分并释放许可</li>
+ * </ol>
+ * 补发的消息走ComfyuiMessageService的正常处理流程，与实时消息一样通过RedisService#claimStartedTask
+ * 原子地取出任务，补发与实时消息同时到达时只有一方生效
+ */
+@Slf4j
+@Service
+public class ComfyuiResyncServiceImpl implements ComfyuiResyncService {
+
+    @Autowired
+    ComfyuiAsyncApi comfyuiAsyncApi;
+    @Autowired
+    RedisService redisService;
+    @Autowired
+    ComfyuiMessageService comfyuiMessageService;
+
+    @Override
+    public CompletableFuture<Integer> resync() {
+        Set<String> promptIds = redisService.getStartedPromptIds();
+        if (promptIds.isEmpty()) {
+            return CompletableFuture.completedFuture(0);
+        }
+        log.info("ComfyUI重连后同步任务状态，本地执行中任务数: {}", promptIds.size());
+        return comfyuiAsyncApi.getQueueTasks()
+                .thenCompose(response -> {
+                    Set<String> active = activePromptIds(response);
+                    AtomicInteger replayed = new AtomicInteger();
+                    List<CompletableFuture<Void>> futures = new ArrayList<>();
+                    for (String promptId : promptIds) {
+                        if (active.contains(promptId)) {
+                            continue;
+                        }
+                        futures.add(comfyuiAsyncApi.getHistoryTask(promptId)
+                                .thenAccept(history -> {
+                                    if (replay(promptId, history)) {
+                                        replayed.incrementAndGet();
+                                    }
+                                }));
+                    }
+                    return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(v -> replayed.get());
+                })
+                .whenComplete((count, e) -> {
+                    if (e != null) {
+                        log.error("ComfyUI任务状态同步失败: {}", e.getMessage());
+                    } else {
+                        log.info("ComfyUI任务状态同步完成，补发消息数: {}", count);
+                    }
+                });
+    }
+
+    /**
+     * 解析/queue响应中正在执行和排队的promptId（每项格式：[序号, promptId, prompt, extra, outputs]）
+     */
+    private Set<String> activePromptIds(Response<HashMap> response) {
+        if (!response.isSuccessful() || response.body() == null) {
+            throw new IllegalStateException("查询ComfyUI队列失败，HTTP状态码: " + response.code());
+        }
+        Set<String> active = new HashSet<>();
+        for (String key : new String[]{"queue_running", "queue_pending"}) {
+            Object items = response.body().get(key);
+            if (items instanceof List<?> list) {
+                for (Object item : list) {
+                    if (item instanceof List<?> entry && entry.size() > 1) {
+                        active.add(String.valueOf(entry.get(1)));
+                    }
+                }
+            }
+        }
+        return active;
+    }
+
+    /**
+     * 根据历史记录补发消息
+     *
+     * @return 是否补发了消息
+     */
+    @SuppressWarnings("unchecked")
+    private boolean replay(String promptId, Response<HashMap> response) {
+        if (!response.isSuccessful() || response.body() == null) {
+            log.warn("查询ComfyUI历史失败: {}，HTTP状态码: {}", promptId, response.code());
+            return false;
+        }
+        // 任务已被实时消息处理时跳过；仍有并发的可能，最终由处理流程中的claimStartedTask去重
+        if (redisService.getStartedTask(promptId) == null) {
+            return false;
+        }
+        Object entry = response.body().get(promptId);
+        if (!(entry instanceof Map)) {
+            log.warn("ComfyUI中已不存在任务{}（可能已重启），按执行失败处理", promptId);
+            dispatch("execution_error", promptId, new HashMap<>(Map.of("exception_message", "任务在ComfyUI重启时丢失")));
+            return true;
+        }
+        Map<String, Object> history = (Map<String, Object>) entry;
+        Map<String, Object> status = (Map<String, Object>) history.get("status");
+        String statusStr = status == null ? null : String.valueOf(status.get("status_str"));
+        if ("success".equals(statusStr)) {
+            Map<String, Object> outputs = (Map<String, Object>) history.get("outputs");
+            if (outputs != null) {
+                for (Map.Entry<String, Object> output : outputs.entrySet()) {
+                    Map<String, Object> nodeOutput = (Map<String, Object>) output.getValue();
+                    if (nodeOutput != null && nodeOutput.get("images") instanceof List<?> images && !images.isEmpty()) {
+                        HashMap<String, Object> data = new HashMap<>();
+                        data.put("node", output.getKey());
+                        data.put("output", new HashMap<>(nodeOutput));
+                        dispatch("executed", promptId, data);
+                        return true;
+                    }
+                }
+            }
+            log.warn("任务{}执行成功但没有图片输出，按执行失败处理", promptId);
+            dispatch("execution_error", promptId, new HashMap<>());
+            return true;
+        }
+        dispatch(isInterrupted(status) ? "execution_interrupted" : "execution_error", promptId, new HashMap<>());
+        return true;
+    }
+
+    private boolean isInterrupted(Map<String, Object> status) {
+        if (status == null || !(status.get("messages") instanceof List<?> messages)) {
+            return false;
+        }
+        for (Object message : messages) {
+            if (message instanceof List<?> pair && !pair.isEmpty() && "execution_interrupted".equals(pair.get(0))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void dispatch(String type, String promptId, HashMap<String, Object> data) {
+        data.put("prompt_id", promptId);
+        MessageBase messageBase = new MessageBase();
+        messageBase.setType(type);
+        messageBase.setData(data);
+        log.info("补发ComfyUI消息: {} {}", type, promptId);
+        comfyuiMessageService.handleMessage(messageBase);
+    }
+}
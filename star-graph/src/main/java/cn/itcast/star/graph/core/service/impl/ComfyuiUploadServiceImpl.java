@@ -0,0 +1,163 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.core.util.HexUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.ComfyuiUploadService;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * ComfyUI图片上传服务实现
+ *
+ * <p>上传流程：
+ * <ol>
+ *     <li>multipart文件由容器落在临时文件中，先流式计算SHA-256（不把整张图片读入堆内存）</li>
+ *     <li>按 ComfyUI地址+哈希 查Redis，该节点已有相同图片且文件仍存在时直接复用</li>
+ *     <li>否则以 哈希.扩展名 为文件名流式转发到ComfyUI（覆盖同名文件），记录上传结果</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class ComfyuiUploadServiceImpl implements ComfyuiUploadService {
+
+    /** 已上传图片Key前缀 */
+    private static final String UPLOADED_KEY_PREFIX = "comfyui_upload:";
+    /** 上传记录有效期（ComfyUI的input目录可能被清理，复用前还会确认文件仍存在） */
+    private static final Duration UPLOADED_TTL = Duration.ofDays(1);
+    /** 支持的图片格式 */
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/png", "png",
+            "image/jpeg", "jpg",
+            "image/webp", "webp");
+
+    @Autowired
+    ComfyuiApi comfyuiApi;
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    UpstreamProperties upstreamProperties;
+
+    @Override
+    public String uploadImage(MultipartFile file) {
+        if (file == null || file.isEmpty()) {
+            throw new CustomException("请上传图片");
+        }
+        String extension = file.getContentType() == null ? null : EXTENSIONS.get(file.getContentType().toLowerCase());
+        if (extension == null) {
+            throw new CustomException("仅支持PNG、JPEG、WEBP格式的图片");
+        }
+        try {
+            String hash = sha256(file);
+            String uploadedKey = UPLOADED_KEY_PREFIX + upstreamProperties.getComfyui().getBaseUrl() + ":" + hash;
+            String uploaded = stringRedisTemplate.opsForValue().get(uploadedKey);
+            if (uploaded != null) {
+                if (existsOnComfyui(uploaded)) {
+                    log.debug("图片已上传到ComfyUI，直接复用: {}", uploaded);
+                    return uploaded;
+                }
+                log.info("ComfyUI上的图片已被清理，重新上传: {}", uploaded);
+                stringRedisTemplate.delete(uploadedKey);
+            }
+            MultipartBody.Part part = MultipartBody.Part.createFormData("image", hash + "." + extension,
+                    new MultipartFileRequestBody(file));
+            Response<HashMap> response = comfyuiApi.uploadImage(part, RequestBody.create("true", MultipartBody.FORM)).execute();
+            HashMap body = response.body();
+            if (!response.isSuccessful() || body == null || body.get("name") == null) {
+                log.error("上传图片到ComfyUI失败，HTTP状态码: {}", response.code());
+                throw new CustomException("图片上传失败，请稍后重试");
+            }
+            Object subfolder = body.get("subfolder");
+            String name = StrUtil.isBlankIfStr(subfolder) ? body.get("name").toString() : subfolder + "/" + body.get("name");
+            stringRedisTemplate.opsForValue().set(uploadedKey, name, UPLOADED_TTL);
+            return name;
+        } catch (IOException e) {
+            log.error("上传图片到ComfyUI失败: {}", e.getMessage());
+            throw new CustomException("图片上传失败，请稍后重试");
+        }
+    }
+
+    /**
+     * 检查ComfyUI的input目录中是否仍有该图片，只读取响应头，检查失败时按不存在处理
+     *
+     * @param name 上传结果中的文件名（subfolder/name）
+     */
+    private boolean existsOnComfyui(String name) {
+        int slash = name.lastIndexOf('/');
+        String subfolder = slash < 0 ? "" : name.substring(0, slash);
+        String filename = name.substring(slash + 1);
+        try {
+            Response<ResponseBody> response = comfyuiApi.getView(filename, "input", subfolder).execute();
+            try (ResponseBody ignored = response.body()) {
+                return response.isSuccessful();
+            }
+        } catch (IOException e) {
+            log.warn("检查ComfyUI图片失败，重新上传: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private String sha256(MultipartFile file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexUtil.encodeHexStr(digest.digest());
+    }
+
+    /**
+     * 直接从上传文件流式写出的请求体，OkHttp重试时重新打开文件流
+     */
+    private static class MultipartFileRequestBody extends RequestBody {
+        private final MultipartFile file;
+
+        MultipartFileRequestBody(MultipartFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return MediaType.parse(file.getContentType());
+        }
+
+        @Override
+        public long contentLength() {
+            return file.getSize();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            try (Source source = Okio.source(file.getInputStream())) {
+                sink.writeAll(source);
+            }
+        }
+    }
+}
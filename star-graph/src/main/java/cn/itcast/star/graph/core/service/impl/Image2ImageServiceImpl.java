@@ -0,0 +1,76 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiRequestDto;
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.common.Constants;
+import cn.itcast.star.graph.core.dto.request.Image2ImageReqDto;
+import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.*;
+import cn.itcast.star.graph.core.utils.PromptUtils;
+import cn.itcast.star.graph.core.utils.UserUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 图生图服务实现
+ */
+@Slf4j
+@Service
+public class Image2ImageServiceImpl implements Image2ImageService {
+
+    @Autowired
+    ComfyuiUploadService comfyuiUploadService;
+
+    @Autowired
+    TranslateCacheService translateCacheService;
+
+    @Autowired
+    WorkflowRegistryService workflowRegistryService;
+
+    @Autowired
+    ComfyuiCatalogService comfyuiCatalogService;
+
+    @Autowired
+    Text2ImageService text2ImageService;
+
+    @Override
+    public Text2ImageResDto imageToImage(MultipartFile image, Image2ImageReqDto reqDto) throws Exception {
+        if (reqDto.getSize() < 1) {
+            throw new CustomException("请求参数错误！");
+        }
+        if (reqDto.getDenoise() <= 0 || reqDto.getDenoise() > 1) {
+            throw new CustomException("重绘幅度需在0到1之间");
+        }
+        Long userId = UserUtils.getUser().getId();
+        // 先上传参考图（相同图片不重复上传），再组装并校验任务，失败时不冻结积分
+        String imageName = comfyuiUploadService.uploadImage(image);
+
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("seed", reqDto.getSeed());
+        params.put("steps", reqDto.getStep());
+        params.put("cfg", reqDto.getCfg());
+        params.put("sampler", reqDto.samplerName());
+        params.put("scheduler", reqDto.scheduler());
+        params.put("ckpt", reqDto.modelName());
+        params.put("batch", reqDto.getSize());
+        params.put("denoise", reqDto.getDenoise());
+        params.put("image", imageName);
+        params.put("positive", PromptUtils.positive(translateCacheService.translate(userId, reqDto.getPropmt())));
+        params.put("negative", PromptUtils.negative(translateCacheService.translate(userId, reqDto.getReverse())));
+        Map<String, Object> workflow = workflowRegistryService.build(WorkflowRegistryService.IMAGE_TO_IMAGE, params);
+        comfyuiCatalogService.validate(workflow);
+
+        ComfyuiTask comfyuiTask = new ComfyuiTask(reqDto.getClientId(), new ComfyuiRequestDto(Constants.COMFYUI_CLIENT_ID, workflow));
+        comfyuiTask.setUserId(userId);
+        comfyuiTask.setSize(reqDto.getSize());
+        comfyuiTask.setPoints(workflowRegistryService.estimateCost(WorkflowRegistryService.IMAGE_TO_IMAGE, reqDto.getSize()));
+        log.info("用户{}创建图生图任务，参考图: {}", userId, imageName);
+        return text2ImageService.submitTask(comfyuiTask);
+    }
+}
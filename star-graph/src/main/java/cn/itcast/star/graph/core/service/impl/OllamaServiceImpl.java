@@ -1,50 +1,79 @@
 package cn.itcast.star.graph.core.service.impl;
 
+import cn.hutool.core.util.StrUtil;
+import cn.itcast.star.graph.core.pojo.TagTranslateResult;
+import cn.itcast.star.graph.core.resilience.RequestDeadline;
+import cn.itcast.star.graph.core.resilience.UpstreamGuard;
+import cn.itcast.star.graph.core.resilience.UpstreamRejectedException;
 import cn.itcast.star.graph.core.service.OllamaService;
-import cn.itcast.star.graph.ollama.client.api.OllamaApi;
-import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRequest;
-import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRespone;
-import cn.itcast.star.graph.ollama.client.pojo.OllamaMessage;
+import cn.itcast.star.graph.core.service.PromptDictionaryService;
+import cn.itcast.star.graph.core.translate.OllamaTranslateBatcher;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import retrofit2.Call;
-import retrofit2.Response;
 
-import java.io.IOException;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Ollama AI翻译服务实现
  */
+@Slf4j
 @Service
 public class OllamaServiceImpl implements OllamaService {
+    /** 等待翻译结果的最长时间(毫秒) */
+    private static final long TRANSLATE_TIMEOUT_MS = 20000;
+
+    @Autowired
+    OllamaTranslateBatcher ollamaTranslateBatcher;
+    @Autowired
+    PromptDictionaryService promptDictionaryService;
     @Autowired
-    OllamaApi ollamaApi;
+    UpstreamGuard ollamaGuard;
 
     /**
-     * 调用Ollama翻译中文为英文，失败时返回原文
+     * 翻译中文为英文，失败或超时时返回原文（等待时间不超过当前请求的剩余时间预算）
      */
     @Override
     public String translate(String prompt) {
+        CompletableFuture<String> future = translateAsync(prompt);
         try {
-            // 构造翻译请求
-            OllamaMessage ollamaMessage = new OllamaMessage();
-            ollamaMessage.setRole("user");
-            ollamaMessage.setContent("帮我把以下内容翻译成英文:" + prompt);
-            
-            OllamaChatRequest body = new OllamaChatRequest();
-            body.setModel("qwen2.5:0.5b");
-            body.setMessages(List.of(ollamaMessage));
-            
-            // 调用Ollama API进行翻译
-            Call<OllamaChatRespone> chat = ollamaApi.chat(body);
-            Response<OllamaChatRespone> result = chat.execute();
-            OllamaChatRespone ollamaChatRespone = result.body();
-            return ollamaChatRespone.getMessage().getContent();
-        } catch (Exception e) {
-            e.printStackTrace();
+            return future.get(RequestDeadline.remainingMillis(TRANSLATE_TIMEOUT_MS), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(false);
+        } catch (TimeoutException e) {
+            log.warn("Ollama翻译超时，使用原文");
+            future.cancel(false);
+        } catch (ExecutionException e) {
+            log.warn("Ollama翻译失败，使用原文: {}", e.getCause().getMessage());
         }
         // 翻译失败时返回原始文本（降级策略）
         return prompt;
     }
+
+    /**
+     * 异步翻译：词典命中时立即完成，否则交给微批处理器
+     */
+    @Override
+    public CompletableFuture<String> translateAsync(String prompt) {
+        if (StrUtil.isBlank(prompt)) {
+            return CompletableFuture.completedFuture(StrUtil.emptyIfNull(prompt));
+        }
+        // 词典完全覆盖时直接返回，无需调用大模型
+        TagTranslateResult tagResult = promptDictionaryService.translateTags(prompt);
+        if (tagResult.isFullyCovered()) {
+            log.debug("提示词由词典翻译完成，标签数: {}", tagResult.getTotalTags());
+            return CompletableFuture.completedFuture(tagResult.getText());
+        }
+        // Ollama熔断中不进入等待队列，异常完成由调用方决定降级方式（同步翻译使用原文，预翻译不写缓存）
+        if (!ollamaGuard.isCallPermitted()) {
+            return CompletableFuture.failedFuture(new UpstreamRejectedException("Ollama熔断中"));
+        }
+        log.debug("词典覆盖率{}/{}，回退Ollama翻译", tagResult.getCoveredTags(), tagResult.getTotalTags());
+        // 交给微批处理器，与并发的其他翻译请求合并发送
+        return ollamaTranslateBatcher.submit(prompt);
+    }
 }
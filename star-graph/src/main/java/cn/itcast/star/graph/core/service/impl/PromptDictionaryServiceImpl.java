@@ -0,0 +1,213 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.itcast.star.graph.core.pojo.TagTranslateResult;
+import cn.itcast.star.graph.core.service.PromptDictionaryService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * 提示词词典服务实现 - 按整词匹配翻译
+ *
+ * <p>词典由内置词典（classpath:dict/prompt-tags.txt）和可选的外部词典文件组成，
+ * 外部文件修改后定时自动重新加载；加载时构建新的词条快照后整体替换，读取无需加锁。
+ * 标签中的每个中文词（以空格或英文片段分隔）必须与词条完全相同才算覆盖，不做拆字匹配，
+ * 避免单字词条把自由文本拼凑成“完全覆盖”而跳过大模型翻译
+ */
+@Slf4j
+@Service
+public class PromptDictionaryServiceImpl implements PromptDictionaryService {
+
+    /** 内置词典路径 */
+    private static final String BUILTIN_DICT = "dict/prompt-tags.txt";
+    /** 标签分隔符：中英文逗号、顿号、分号、换行 */
+    private static final Pattern TAG_SPLITTER = Pattern.compile("[,，、;；\\n]+");
+
+    /** 外部词典文件路径，为空时只使用内置词典 */
+    @Value("${star-graph.dict.path:}")
+    String externalDictPath;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /** 当前词条（只读快照） */
+    private volatile Map<String, String> entries = Map.of();
+    /** 外部词典文件的最后修改时间，用于判断是否需要重新加载 */
+    private volatile long externalLastModified;
+
+    private final AtomicLong promptCount = new AtomicLong();
+    private final AtomicLong fullyCoveredCount = new AtomicLong();
+    private final AtomicLong tagCount = new AtomicLong();
+    private final AtomicLong coveredTagCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        reload();
+        Gauge.builder("prompt.dict.entries", this, d -> d.entries.size())
+                .description("提示词词典词条数")
+                .register(meterRegistry);
+        FunctionCounter.builder("prompt.dict.prompts", promptCount, AtomicLong::get)
+                .description("经过词典翻译的提示词数")
+                .register(meterRegistry);
+        FunctionCounter.builder("prompt.dict.prompts.covered", fullyCoveredCount, AtomicLong::get)
+                .description("被词典完全覆盖、无需调用大模型的提示词数")
+                .register(meterRegistry);
+        FunctionCounter.builder("prompt.dict.tags", tagCount, AtomicLong::get)
+                .description("经过词典翻译的标签数")
+                .register(meterRegistry);
+        FunctionCounter.builder("prompt.dict.tags.covered", coveredTagCount, AtomicLong::get)
+                .description("被词典覆盖的标签数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public TagTranslateResult translateTags(String prompt) {
+        TagTranslateResult result = new TagTranslateResult();
+        if (StrUtil.isBlank(prompt)) {
+            return result;
+        }
+        Map<String, String> current = this.entries;
+        List<String> translated = new ArrayList<>();
+        int total = 0;
+        int covered = 0;
+        for (String tag : TAG_SPLITTER.split(prompt)) {
+            String trimmed = tag.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            total++;
+            String english = translate(current, trimmed);
+            if (english != null) {
+                covered++;
+                translated.add(english);
+            }
+        }
+        result.setTotalTags(total);
+        result.setCoveredTags(covered);
+        result.setFullyCovered(total > 0 && covered == total);
+        if (result.isFullyCovered()) {
+            result.setText(String.join(", ", translated));
+            fullyCoveredCount.incrementAndGet();
+        }
+        promptCount.incrementAndGet();
+        tagCount.addAndGet(total);
+        coveredTagCount.addAndGet(covered);
+        return result;
+    }
+
+    @Override
+    public synchronized int reload() {
+        Map<String, String> loaded = new LinkedHashMap<>();
+        try (InputStream in = new ClassPathResource(BUILTIN_DICT).getInputStream()) {
+            readEntries(in, loaded);
+        } catch (IOException e) {
+            log.error("加载内置提示词词典失败: {}", BUILTIN_DICT, e);
+        }
+        if (StrUtil.isNotBlank(externalDictPath)) {
+            File file = new File(externalDictPath);
+            if (file.isFile()) {
+                try (InputStream in = Files.newInputStream(file.toPath())) {
+                    readEntries(in, loaded);
+                    externalLastModified = file.lastModified();
+                } catch (IOException e) {
+                    log.error("加载外部提示词词典失败: {}", externalDictPath, e);
+                }
+            } else {
+                log.warn("外部提示词词典不存在: {}", externalDictPath);
+            }
+        }
+        entries = Map.copyOf(loaded);
+        log.info("提示词词典加载完成，词条数: {}", loaded.size());
+        return loaded.size();
+    }
+
+    /**
+     * 每分钟检查外部词典文件，修改后自动重新加载
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void reloadIfModified() {
+        if (StrUtil.isBlank(externalDictPath)) {
+            return;
+        }
+        File file = new File(externalDictPath);
+        if (file.isFile() && file.lastModified() != externalLastModified) {
+            log.info("检测到外部提示词词典变更，重新加载: {}", externalDictPath);
+            reload();
+        }
+    }
+
+    /**
+     * 解析词典文件，格式：中文=english，#开头为注释
+     */
+    private void readEntries(InputStream in, Map<String, String> target) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int idx = line.indexOf('=');
+            if (idx <= 0 || idx == line.length() - 1) {
+                continue;
+            }
+            target.put(line.substring(0, idx).trim(), line.substring(idx + 1).trim());
+        }
+    }
+
+    /**
+     * 翻译单个标签，标签中任一中文词不是完整词条时返回null
+     *
+     * <p>ASCII片段（如"8k"、已是英文的词）原样保留
+     */
+    static String translate(Map<String, String> entries, String tag) {
+        List<String> words = new ArrayList<>();
+        int i = 0;
+        int len = tag.length();
+        while (i < len) {
+            char c = tag.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int start = i;
+            boolean ascii = c < 128;
+            while (i < len && !Character.isWhitespace(tag.charAt(i)) && (tag.charAt(i) < 128) == ascii) {
+                i++;
+            }
+            String word = tag.substring(start, i);
+            if (ascii) {
+                words.add(word);
+                continue;
+            }
+            String english = entries.get(word);
+            if (english == null) {
+                return null;
+            }
+            words.add(english);
+        }
+        return words.isEmpty() ? null : String.join(" ", words);
+    }
+}
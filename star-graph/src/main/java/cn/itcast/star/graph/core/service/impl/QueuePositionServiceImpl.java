@@ -0,0 +1,80 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.service.QueuePositionService;
+import cn.itcast.star.graph.core.service.RedisService;
+import cn.itcast.star.graph.core.service.WsNoticeService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 排队位置推送服务实现
+ *
+ * <p>处理流程：
+ * <ol>
+ *     <li>任务完成、取消、插队时RedisService设置变化标记，多次变化合并为一次推送</li>
+ *     <li>取到标记的实例读取队首MAX_TASKS个任务及其新序号（一次ZRANGE + 一次MGET）</li>
+ *     <li>与上次推送的序号（QUEUE_POSITIONS）比较，只给序号变化的任务推送position事件</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class QueuePositionServiceImpl implements QueuePositionService {
+
+    /** 上次推送的序号：taskId -> 序号 */
+    private static final String POSITIONS_KEY = "QUEUE_POSITIONS";
+    /** 每次最多计算的等待任务数，之后的任务进入该范围后再推送 */
+    private static final int MAX_TASKS = 500;
+
+    @Autowired
+    RedisService redisService;
+    @Autowired
+    WsNoticeService wsNoticeService;
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public int pushChanges() {
+        if (!redisService.consumeQueueChanged()) {
+            return 0;
+        }
+        List<ComfyuiTask> tasks = redisService.getQueueSnapshot(MAX_TASKS);
+        Map<Object, Object> previous = stringRedisTemplate.opsForHash().entries(POSITIONS_KEY);
+        Map<String, String> changed = new HashMap<>();
+        Set<String> waiting = new HashSet<>();
+        for (ComfyuiTask task : tasks) {
+            String index = String.valueOf(task.getIndex());
+            waiting.add(task.getId());
+            if (index.equals(previous.get(task.getId()))) {
+                continue;
+            }
+            changed.put(task.getId(), index);
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "position");
+            event.put("value", task.getIndex());
+            try {
+                wsNoticeService.sendTaskEvent(task, event);
+            } catch (Exception e) {
+                log.warn("推送任务{}的排队序号失败: {}", task.getId(), e.getMessage());
+            }
+        }
+        if (!changed.isEmpty()) {
+            stringRedisTemplate.opsForHash().putAll(POSITIONS_KEY, changed);
+        }
+        // 已出队的任务不再跟踪
+        Object[] stale = previous.keySet().stream().filter(id -> !waiting.contains(id)).toArray();
+        if (stale.length > 0) {
+            stringRedisTemplate.opsForHash().delete(POSITIONS_KEY, stale);
+        }
+        log.debug("推送排队序号变化，等待任务数: {}，变化数: {}", tasks.size(), changed.size());
+        return changed.size();
+    }
+}
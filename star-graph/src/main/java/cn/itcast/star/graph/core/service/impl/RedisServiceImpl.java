@@ -8,9 +8,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Redis服务实现 - 使用ZSet实现任务优先级队列
@@ -27,6 +32,18 @@ public class RedisServiceImpl implements RedisService {
     private final static String DISTRIBUTED_QUEUE_KEY = "DISTRIBUTED_QUEUE";
     /** 正在执行任务Key前缀 */
     private final static String RUN_TASK_KEY = "run_task_";
+    /** 排队位置变化标记Key */
+    private final static String QUEUE_CHANGED_KEY = "QUEUE_POSITION_CHANGED";
+    /** 已提交到ComfyUI的promptId集合，与run_task_{promptId}同步维护，避免KEYS扫描 */
+    private final static String STARTED_PROMPT_IDS_KEY = "RUN_TASK_PROMPT_IDS";
+    /** 临时占位符集合（成员为temp_{taskId}），与run_task_temp_{taskId}同步维护 */
+    private final static String TEMP_TASK_IDS_KEY = "RUN_TASK_TEMP_IDS";
+    /** 取出并删除任务记录，同时移出promptId集合；KEYS[1]=任务记录 KEYS[2]=集合 ARGV[1]=promptId */
+    private final static DefaultRedisScript<String> CLAIM_STARTED_SCRIPT = new DefaultRedisScript<>(
+            "local v = redis.call('get', KEYS[1]) "
+                    + "if v then redis.call('del', KEYS[1]) end "
+                    + "redis.call('srem', KEYS[2], ARGV[1]) "
+                    + "return v", String.class);
 
     @Autowired
     StringRedisTemplate stringRedisTemplate;
@@ -91,6 +108,7 @@ public class RedisServiceImpl implements RedisService {
                         JSON.toJSONString(comfyuiTask), 
                         Duration.ofMinutes(10)
                     );
+                    stringRedisTemplate.opsForSet().add(TEMP_TASK_IDS_KEY, "temp_" + taskId);
                     return comfyuiTask;
                 }
                 // 解析失败则跳过
@@ -109,11 +127,13 @@ public class RedisServiceImpl implements RedisService {
         
         // 先创建正式任务，确保任务始终可被查找到（避免取消任务时找不到）
         stringRedisTemplate.opsForValue().set(RUN_TASK_KEY + promptId, JSON.toJSONString(task), Duration.ofMinutes(60));
+        stringRedisTemplate.opsForSet().add(STARTED_PROMPT_IDS_KEY, promptId);
         
         // 再删除临时占位符，避免短暂的重复统计
         if (task.getId() != null) {
             String tempKey = RUN_TASK_KEY + "temp_" + task.getId();
             Boolean deleted = stringRedisTemplate.delete(tempKey);
+            stringRedisTemplate.opsForSet().remove(TEMP_TASK_IDS_KEY, "temp_" + task.getId());
             
             if (Boolean.FALSE.equals(deleted)) {
                 // 临时占位符删除失败，检查是否真的存在
@@ -166,6 +186,10 @@ public class RedisServiceImpl implements RedisService {
         Long removed = stringRedisTemplate.opsForZSet().remove(DISTRIBUTED_QUEUE_KEY, taskId);
         // 删除对应的任务详情数据，返回是否删除成功
         Boolean deleted = stringRedisTemplate.delete(TASK_KEY_PREFIX + taskId);
+        if (removed != null && removed > 0) {
+            // 后面的任务排队序号前移
+            markQueueChanged();
+        }
         // 只有队列和详情都删除成功才返回true
         return removed != null && removed > 0 && deleted != null && deleted;
     }
@@ -177,6 +201,7 @@ public class RedisServiceImpl implements RedisService {
     public boolean increasePriority(String taskId, double increment) {
         // ZSet按score升序；传入正数，这里取负以提升优先级
         Double newScore = stringRedisTemplate.opsForZSet().incrementScore(DISTRIBUTED_QUEUE_KEY, taskId, -increment);
+        markQueueChanged();
         // incrementScore成功返回新分值，失败返回null
         return newScore != null;
     }
@@ -199,15 +224,12 @@ public class RedisServiceImpl implements RedisService {
                 return 1L;
             }
             
-            // 2. 检查是否已提交到ComfyUI执行（遍历所有run_task_*，匹配taskId）
-            java.util.Set<String> runningKeys = stringRedisTemplate.keys(RUN_TASK_KEY + "*");
-            if (runningKeys != null) {
-                for (String key : runningKeys) {
-                    // 跳过临时占位符key（已经检查过了）
-                    if (key.contains("temp_")) {
-                        continue;
-                    }
-                    String json = stringRedisTemplate.opsForValue().get(key);
+            // 2. 检查是否已提交到ComfyUI执行（按promptId集合一次MGET，匹配taskId）
+            Set<String> promptIds = stringRedisTemplate.opsForSet().members(STARTED_PROMPT_IDS_KEY);
+            if (promptIds != null && !promptIds.isEmpty()) {
+                List<String> jsons = stringRedisTemplate.opsForValue()
+                        .multiGet(promptIds.stream().map(id -> RUN_TASK_KEY + id).toList());
+                for (String json : jsons == null ? List.<String>of() : jsons) {
                     if (StrUtil.isNotEmpty(json)) {
                         try {
                             ComfyuiTask task = JSON.parseObject(json, ComfyuiTask.class);
@@ -239,16 +261,128 @@ public class RedisServiceImpl implements RedisService {
      */
     @Override
     public void removeStartedTask(String promptId) {
-        // 删除正在执行的任务详情数据
-        // 删除后run_task_*前缀的key数量会自动减少，无需额外维护
+        // 删除正在执行的任务详情数据（promptId为temp_{taskId}时删除的是临时占位符）
         stringRedisTemplate.delete(RUN_TASK_KEY + promptId);
+        stringRedisTemplate.opsForSet().remove(STARTED_PROMPT_IDS_KEY, promptId);
+        stringRedisTemplate.opsForSet().remove(TEMP_TASK_IDS_KEY, promptId);
+        // 执行数减少，等待中的任务序号前移
+        markQueueChanged();
+    }
+
+    /**
+     * 原子地取出并删除正在执行的任务，重复调用只有一次返回任务
+     */
+    @Override
+    public ComfyuiTask claimStartedTask(String promptId) {
+        String json = stringRedisTemplate.execute(CLAIM_STARTED_SCRIPT,
+                List.of(RUN_TASK_KEY + promptId, STARTED_PROMPT_IDS_KEY), promptId);
+        if (StrUtil.isEmpty(json)) {
+            return null;
+        }
+        // 执行数减少，等待中的任务序号前移
+        markQueueChanged();
+        return JSON.parseObject(json, ComfyuiTask.class);
+    }
+
+    /**
+     * 将任务放回队首：score取当前最小值减1，并删除临时占位符
+     */
+    @Override
+    public void requeueTask(ComfyuiTask comfyuiTask) {
+        Set<ZSetOperations.TypedTuple<String>> head = stringRedisTemplate.opsForZSet().rangeWithScores(DISTRIBUTED_QUEUE_KEY, 0, 0);
+        double score;
+        if (head != null && !head.isEmpty() && head.iterator().next().getScore() != null) {
+            score = head.iterator().next().getScore() - 1;
+        } else {
+            score = stringRedisTemplate.opsForValue().increment(DISTRIBUTED_ID_KEY);
+        }
+        // 先保存详情再入队，避免调度线程弹出时找不到详情
+        stringRedisTemplate.opsForValue().set(TASK_KEY_PREFIX + comfyuiTask.getId(), JSON.toJSONString(comfyuiTask));
+        stringRedisTemplate.opsForZSet().add(DISTRIBUTED_QUEUE_KEY, comfyuiTask.getId(), score);
+        stringRedisTemplate.delete(RUN_TASK_KEY + "temp_" + comfyuiTask.getId());
+        stringRedisTemplate.opsForSet().remove(TEMP_TASK_IDS_KEY, "temp_" + comfyuiTask.getId());
+        markQueueChanged();
+    }
+
+    /**
+     * 获取所有已提交到ComfyUI的任务的promptId
+     *
+     * <p>读取promptId集合，顺带移除任务记录已过期的成员；临时占位符集合同样清理，保持执行数统计准确
+     */
+    @Override
+    public Set<String> getStartedPromptIds() {
+        pruneExpired(TEMP_TASK_IDS_KEY);
+        return pruneExpired(STARTED_PROMPT_IDS_KEY);
+    }
+
+    /**
+     * 移除集合中对应run_task_记录已过期的成员，返回仍然有效的成员
+     */
+    private Set<String> pruneExpired(String setKey) {
+        Set<String> members = stringRedisTemplate.opsForSet().members(setKey);
+        if (members == null || members.isEmpty()) {
+            return new HashSet<>();
+        }
+        List<String> ids = new ArrayList<>(members);
+        List<String> jsons = stringRedisTemplate.opsForValue()
+                .multiGet(ids.stream().map(id -> RUN_TASK_KEY + id).toList());
+        Set<String> alive = new HashSet<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (jsons != null && jsons.get(i) != null) {
+                alive.add(ids.get(i));
+            } else {
+                stringRedisTemplate.opsForSet().remove(setKey, ids.get(i));
+            }
+        }
+        return alive;
+    }
+
+    @Override
+    public boolean consumeQueueChanged() {
+        return stringRedisTemplate.opsForValue().getAndDelete(QUEUE_CHANGED_KEY) != null;
+    }
+
+    /**
+     * 一次ZRANGE + 一次MGET取出队首任务，序号 = 正在执行的任务数 + 队列排名 + 1
+     */
+    @Override
+    public List<ComfyuiTask> getQueueSnapshot(int limit) {
+        Set<String> taskIds = stringRedisTemplate.opsForZSet().range(DISTRIBUTED_QUEUE_KEY, 0, limit - 1);
+        if (taskIds == null || taskIds.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = taskIds.stream().map(id -> TASK_KEY_PREFIX + id).toList();
+        List<String> jsons = stringRedisTemplate.opsForValue().multiGet(keys);
+        long runningCount = getRunningTaskCount();
+        List<ComfyuiTask> tasks = new ArrayList<>(taskIds.size());
+        int rank = 0;
+        for (String taskId : taskIds) {
+            String json = jsons == null ? null : jsons.get(rank);
+            rank++;
+            if (StrUtil.isEmpty(json)) {
+                continue;
+            }
+            ComfyuiTask task = JSON.parseObject(json, ComfyuiTask.class);
+            task.setId(taskId);
+            task.setIndex(runningCount + rank);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * 标记排队位置已变化，由定时任务批量推送新序号
+     */
+    private void markQueueChanged() {
+        stringRedisTemplate.opsForValue().set(QUEUE_CHANGED_KEY, "1");
     }
 
     /**
-     * 获取正在执行的任务数量
+     * 获取正在执行的任务数量：已提交的promptId集合 + 临时占位符集合，两次SCARD，不扫描Key
      */
     private Long getRunningTaskCount() {
-        java.util.Set<String> keys = stringRedisTemplate.keys(RUN_TASK_KEY + "*");
-        return keys != null ? (long) keys.size() : 0L;
+        Long started = stringRedisTemplate.opsForSet().size(STARTED_PROMPT_IDS_KEY);
+        Long temp = stringRedisTemplate.opsForSet().size(TEMP_TASK_IDS_KEY);
+        return (started != null ? started : 0L) + (temp != null ? temp : 0L);
     }
 }
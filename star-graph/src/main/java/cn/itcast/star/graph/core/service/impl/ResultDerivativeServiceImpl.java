@@ -0,0 +1,290 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.mapper.UserResultArchiveMapper;
+import cn.itcast.star.graph.core.mapper.UserResultMapper;
+import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.service.ResultDerivativeService;
+import cn.itcast.star.graph.core.service.ResultStoreService;
+import cn.itcast.star.graph.core.service.UserResultCacheService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生图结果派生文件服务实现
+ *
+ * <p>处理流程：
+ * <ol>
+ *     <li>结果入库后、或查询列表发现缺少缩略图时提交到有界的CPU线程池</li>
+ *     <li>旧记录仍指向ComfyUI /view 时先在结果存储的I/O线程池转存到本地并更新原图地址</li>
+ *     <li>生成缩略图（最长边256）和展示图（最长边1024），优先WebP，运行环境没有WebP编码器时使用JPEG</li>
+ *     <li>派生文件写入结果存储，地址回写sg_user_result</li>
+ *     <li>转存或生成失败的记录在Redis中标记一天，期间列表查询不再重复提交</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class ResultDerivativeServiceImpl implements ResultDerivativeService {
+
+    /** 缩略图最长边 */
+    static final int THUMB_SIZE = 256;
+    /** 展示图最长边 */
+    static final int DISPLAY_SIZE = 1024;
+    /** 有损压缩质量 */
+    private static final float QUALITY = 0.8f;
+    /** 等待队列上限，超出时跳过，下次查询列表时再补生成 */
+    private static final int MAX_PENDING = 100;
+    /** 生成失败标记，如ComfyUI上已清理的旧图片 */
+    private static final String FAILED_KEY = "result_derivative_failed:";
+    /** 失败标记有效期，过期后再尝试一次 */
+    private static final long FAILED_TTL_HOURS = 24;
+
+    @Autowired
+    ResultStoreService resultStoreService;
+    @Autowired
+    UserResultMapper userResultMapper;
+    @Autowired
+    UserResultCacheService userResultCacheService;
+    @Autowired
+    UserResultArchiveMapper userResultArchiveMapper;
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+
+    /** 正在生成的记录ID，避免列表反复查询时重复提交 */
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private ThreadPoolExecutor derivativeExecutor;
+    /** 派生文件格式(webp/jpg) */
+    private String format;
+
+    @PostConstruct
+    public void init() {
+        ImageIO.setUseCache(false);
+        format = ImageIO.getImageWritersByFormatName("webp").hasNext() ? "webp" : "jpg";
+        // 图片缩放是CPU密集操作，最多占用一半的CPU
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        derivativeExecutor = new ThreadPoolExecutor(threads, threads,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+                r -> {
+                    Thread t = new Thread(r, "result-derivative");
+                    t.setDaemon(true);
+                    t.setPriority(Thread.NORM_PRIORITY - 1);
+                    return t;
+                });
+        log.info("结果图片派生格式: {}，线程数: {}", format, threads);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        derivativeExecutor.shutdown();
+    }
+
+    @Override
+    public void generateAsync(List<UserResult> results) {
+        List<UserResult> pending = new ArrayList<>();
+        for (UserResult result : results) {
+            if (result.getId() != null && result.getThumbUrl() == null) {
+                pending.add(result);
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<String> failed = stringRedisTemplate.opsForValue()
+                .multiGet(pending.stream().map(r -> FAILED_KEY + r.getId()).toList());
+        for (int i = 0; i < pending.size(); i++) {
+            UserResult result = pending.get(i);
+            if (failed != null && failed.get(i) != null) {
+                continue;
+            }
+            if (!inFlight.add(result.getId())) {
+                continue;
+            }
+            String key = resultStoreService.keyOf(result.getUrl());
+            if (key != null) {
+                submit(result, key, null);
+            } else {
+                ingestLegacy(result);
+            }
+        }
+    }
+
+    /**
+     * 提交到CPU线程池缩放，storedUrl非空时表示原图刚转存，需一并回写原图地址
+     */
+    private void submit(UserResult result, String key, String storedUrl) {
+        Long id = result.getId();
+        try {
+            derivativeExecutor.execute(() -> {
+                try {
+                    generate(result, key, storedUrl);
+                } catch (Exception e) {
+                    markFailed(id, e.getMessage());
+                } finally {
+                    inFlight.remove(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(id);
+            log.debug("派生图片线程池已满，跳过记录{}", id);
+        }
+    }
+
+    void generate(UserResult result, String key, String storedUrl) throws IOException {
+        Path source = resultStoreService.resolve(key);
+        BufferedImage image = source == null ? null : ImageIO.read(source.toFile());
+        if (image == null) {
+            throw new IOException("无法读取结果图片: " + key);
+        }
+        UserResult update = new UserResult();
+        update.setId(result.getId());
+        update.setUrl(storedUrl);
+        String displayKey = resultStoreService.storeDerivative(key, "display", format, encode(resize(image, DISPLAY_SIZE)));
+        String thumbKey = resultStoreService.storeDerivative(key, "thumb", format, encode(resize(image, THUMB_SIZE)));
+        update.setDisplayUrl(resultStoreService.urlOf(displayKey));
+        update.setThumbUrl(resultStoreService.urlOf(thumbKey));
+        // 热表中不存在时为已归档的记录
+        if (userResultMapper.updateById(update) == 0) {
+            userResultArchiveMapper.updateDerivatives(update);
+        }
+        // 原地替换首页缓存中的这条记录，列表请求继续命中缓存
+        if (result.getUserId() != null) {
+            UserResult cached = new UserResult();
+            cached.setId(result.getId());
+            cached.setUserId(result.getUserId());
+            cached.setCreatedTime(result.getCreatedTime());
+            cached.setCollect(result.getCollect());
+            cached.setUrl(storedUrl != null ? storedUrl : resultStoreService.urlOf(key));
+            cached.setThumbUrl(update.getThumbUrl());
+            cached.setDisplayUrl(update.getDisplayUrl());
+            userResultCacheService.update(cached);
+        }
+    }
+
+    /**
+     * 旧记录的ComfyUI /view 地址在结果存储的I/O线程池转存到本地，完成后再提交缩放，
+     * 下载不占用CPU线程池
+     */
+    private void ingestLegacy(UserResult result) {
+        Long id = result.getId();
+        String url = result.getUrl();
+        String filename = null;
+        MultiValueMap<String, String> params = null;
+        if (url != null && url.contains("/view?")) {
+            params = UriComponentsBuilder.fromUriString(url).build().getQueryParams();
+            filename = params.getFirst("filename");
+        }
+        if (filename == null) {
+            inFlight.remove(id);
+            markFailed(id, "无法解析的结果地址: " + url);
+            return;
+        }
+        resultStoreService.ingestAsync(filename, params.getFirst("type"), params.getFirst("subfolder"))
+                .whenComplete((storedUrl, e) -> {
+                    if (e == null) {
+                        submit(result, resultStoreService.keyOf(storedUrl), storedUrl);
+                        return;
+                    }
+                    inFlight.remove(id);
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof RejectedExecutionException) {
+                        log.debug("结果转存线程池已满，跳过记录{}", id);
+                    } else {
+                        markFailed(id, "旧结果图片转存失败（ComfyUI上可能已清理）: " + cause.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 记录生成失败，有效期内列表查询不再重复提交该记录
+     */
+    private void markFailed(Long id, String reason) {
+        log.warn("生成派生图片失败，记录{}: {}", id, reason);
+        try {
+            stringRedisTemplate.opsForValue().set(FAILED_KEY + id, "1", FAILED_TTL_HOURS, TimeUnit.HOURS);
+        } catch (RuntimeException e) {
+            log.debug("记录派生失败标记失败，记录{}: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * 按最长边等比缩小，缩小比例较大时逐次减半以保证画质；结果为不带透明通道的RGB图
+     */
+    static BufferedImage resize(BufferedImage source, int maxSize) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        double scale = Math.min(1.0, (double) maxSize / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        BufferedImage current = source;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.setColor(Color.WHITE);
+                g.fillRect(0, 0, width, height);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(format);
+        if (!writers.hasNext()) {
+            throw new IOException("没有可用的图片编码器: " + format);
+        }
+        ImageWriter writer = writers.next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteCompressed()) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            String[] types = param.getCompressionTypes();
+            if (param.getCompressionType() == null && types != null && types.length > 0) {
+                param.setCompressionType(types[0]);
+            }
+            param.setCompressionQuality(QUALITY);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+}
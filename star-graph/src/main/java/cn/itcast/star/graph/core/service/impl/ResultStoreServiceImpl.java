@@ -0,0 +1,244 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.core.util.HexUtil;
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.core.service.ResultStoreService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ResponseBody;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * 生图结果存储服务实现
+ *
+ * <p>转存流程：
+ * <ol>
+ *     <li>ComfyUI /view 响应体边下载边计算SHA-256，写入存储目录下的临时文件</li>
+ *     <li>按哈希前两位分目录（root/ab/abcdef....png），目标已存在时丢弃临时文件（去重）</li>
+ *     <li>不存在时原子重命名为目标文件，读者不会看到写了一半的文件</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class ResultStoreServiceImpl implements ResultStoreService {
+
+    /** 转存线程数 */
+    private static final int INGEST_THREADS = 4;
+    /** 转存等待队列上限，超出时调用方退回ComfyUI地址 */
+    private static final int MAX_PENDING = 200;
+    /** 站内图片路径前缀，与ResultImageController的映射一致 */
+    static final String PATH_PREFIX = "/api/1.0/images/";
+    /** 存储Key格式：64位十六进制SHA-256 + 可选派生类型 + 图片扩展名 */
+    private static final Pattern KEY_PATTERN = Pattern.compile("^[0-9a-f]{64}(\\.(thumb|display))?\\.(png|jpg|jpeg|webp|gif)$");
+
+    @Autowired
+    ComfyuiApi comfyuiApi;
+
+    /** 本地存储根目录 */
+    @Value("${star-graph.result-store.root:./data/results}")
+    String root;
+
+    /** 浏览器访问图片的URL前缀，只在返回给前端时拼接 */
+    @Value("${star-graph.result-store.public-url:/api/1.0/images/}")
+    String publicUrl;
+
+    private Path rootPath;
+    private ThreadPoolExecutor ingestExecutor;
+
+    @PostConstruct
+    public void init() throws IOException {
+        rootPath = Paths.get(root).toAbsolutePath().normalize();
+        Files.createDirectories(rootPath);
+        ingestExecutor = new ThreadPoolExecutor(INGEST_THREADS, INGEST_THREADS,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_PENDING),
+                r -> {
+                    Thread t = new Thread(r, "result-ingest");
+                    t.setDaemon(true);
+                    return t;
+                });
+        log.info("生图结果存储目录: {}", rootPath);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ingestExecutor.shutdown();
+    }
+
+    @Override
+    public String ingest(String filename, String type, String subfolder) throws IOException {
+        Path temp = Files.createTempFile(rootPath, "ingest-", ".tmp");
+        try {
+            Response<ResponseBody> response = comfyuiApi.getView(filename, type, subfolder == null ? "" : subfolder).execute();
+            if (!response.isSuccessful() || response.body() == null) {
+                if (response.errorBody() != null) {
+                    response.errorBody().close();
+                }
+                throw new IOException("下载ComfyUI图片失败，HTTP状态码: " + response.code());
+            }
+            MessageDigest digest = sha256();
+            try (ResponseBody body = response.body();
+                 InputStream in = new DigestInputStream(body.byteStream(), digest)) {
+                Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return commit(temp, HexUtil.encodeHexStr(digest.digest()) + extension(filename));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public CompletableFuture<String> storeAsync(byte[] data, String extension) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return urlOf(store(data, extension));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }, ingestExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String store(byte[] data, String extension) throws IOException {
+        String key = HexUtil.encodeHexStr(sha256().digest(data)) + extension("." + extension);
+        if (Files.exists(pathOf(key))) {
+            return key;
+        }
+        Path temp = Files.createTempFile(rootPath, "ingest-", ".tmp");
+        try {
+            Files.write(temp, data);
+            return commit(temp, key);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 临时文件原子重命名为目标文件，目标已存在时丢弃（去重）
+     */
+    private String commit(Path temp, String key) throws IOException {
+        Path target = pathOf(key);
+        if (Files.exists(target)) {
+            log.debug("结果图片已存在，跳过写入: {}", key);
+            return key;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 相同内容被并发写入，保留先到的文件
+        }
+        return key;
+    }
+
+    @Override
+    public CompletableFuture<String> ingestAsync(String filename, String type, String subfolder) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return urlOf(ingest(filename, type, subfolder));
+                } catch (IOException e) {
+                    throw new IllegalStateException(e.getMessage(), e);
+                }
+            }, ingestExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public Path resolve(String key) {
+        if (key == null || !KEY_PATTERN.matcher(key).matches()) {
+            return null;
+        }
+        Path path = pathOf(key);
+        return Files.isRegularFile(path) ? path : null;
+    }
+
+    @Override
+    public String storeDerivative(String key, String variant, String extension, byte[] data) throws IOException {
+        String derivedKey = key.substring(0, key.indexOf('.')) + "." + variant + "." + extension;
+        if (!KEY_PATTERN.matcher(derivedKey).matches()) {
+            throw new IllegalArgumentException("非法的派生文件Key: " + derivedKey);
+        }
+        Path target = pathOf(derivedKey);
+        if (Files.exists(target)) {
+            return derivedKey;
+        }
+        Files.createDirectories(target.getParent());
+        Path temp = Files.createTempFile(rootPath, "derive-", ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return derivedKey;
+    }
+
+    @Override
+    public String keyOf(String url) {
+        int index = url == null ? -1 : url.lastIndexOf(PATH_PREFIX);
+        if (index < 0) {
+            return null;
+        }
+        String key = url.substring(index + PATH_PREFIX.length());
+        return KEY_PATTERN.matcher(key).matches() ? key : null;
+    }
+
+    @Override
+    public String urlOf(String key) {
+        return PATH_PREFIX + key;
+    }
+
+    @Override
+    public String publicUrlOf(String url) {
+        String key = keyOf(url);
+        return key == null ? url : publicUrl + key;
+    }
+
+    private Path pathOf(String key) {
+        return rootPath.resolve(key.substring(0, 2)).resolve(key);
+    }
+
+    /**
+     * 取原文件扩展名，不支持的格式按PNG处理（ComfyUI默认输出PNG）
+     */
+    private String extension(String filename) {
+        int dot = filename == null ? -1 : filename.lastIndexOf('.');
+        String ext = dot < 0 ? "" : filename.substring(dot).toLowerCase(Locale.ROOT);
+        return KEY_PATTERN.matcher("0".repeat(64) + ext).matches() ? ext : ".png";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.service.TaskEventLogService;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 任务事件日志服务实现
+ *
+ * <p>存储结构：
+ * <ul>
+ *     <li>task_events:{taskId} - ZSet，score为序号，member为 序号|事件JSON（序号保证member唯一，
+ *     事件JSON中不含序号，读取时由Java补上）</li>
+ *     <li>task_events_meta:{taskId} - Hash，seq为当前序号，user为任务所属用户，
+ *     raw/sent为累计的未编码/实际字节数</li>
+ * </ul>
+ * 追加、裁剪和续期在一个Lua脚本中完成，单次往返
+ */
+@Slf4j
+@Service
+public class TaskEventLogServiceImpl implements TaskEventLogService {
+
+    /** 事件日志Key前缀 */
+    private static final String EVENTS_KEY_PREFIX = "task_events:";
+    /** 元数据Key前缀 */
+    private static final String META_KEY_PREFIX = "task_events_meta:";
+    /** 每个任务保留的事件数 */
+    private static final int MAX_EVENTS = 200;
+    /** 事件日志有效期 */
+    private static final Duration EVENTS_TTL = Duration.ofHours(1);
+    /** 序号与事件JSON的分隔符 */
+    private static final char SEPARATOR = '|';
+    /** 先占用序号，再写入事件，最后裁剪并续期；推送的JSON比存储的多出 ,"seq":序号 */
+    private static final DefaultRedisScript<Long> APPEND_SCRIPT = new DefaultRedisScript<>(
+            "local seq = redis.call('hincrby', KEYS[2], 'seq', 1) "
+                    + "redis.call('hset', KEYS[2], 'user', ARGV[1]) "
+                    + "redis.call('zadd', KEYS[1], seq, seq .. '|' .. ARGV[2]) "
+                    + "redis.call('hincrby', KEYS[2], 'raw', ARGV[5]) "
+                    + "redis.call('hincrby', KEYS[2], 'sent', string.len(ARGV[2]) + string.len(tostring(seq)) + 7) "
+                    + "redis.call('zremrangebyrank', KEYS[1], 0, -tonumber(ARGV[3]) - 1) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[4]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[4]) "
+                    + "return seq",
+            Long.class);
+
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+
+    @Override
+    public long append(String taskId, Long userId, Map<String, Object> event, int rawBytes) {
+        // 存储的事件不含序号，序号由脚本分配后写回事件
+        event.remove("seq");
+        event.put("taskId", taskId);
+        Long seq = stringRedisTemplate.execute(APPEND_SCRIPT,
+                List.of(EVENTS_KEY_PREFIX + taskId, META_KEY_PREFIX + taskId),
+                String.valueOf(userId), JSON.toJSONString(event),
+                String.valueOf(MAX_EVENTS), String.valueOf(EVENTS_TTL.toMillis()), String.valueOf(rawBytes));
+        long value = seq == null ? 0 : seq;
+        event.put("seq", value);
+        return value;
+    }
+
+    @Override
+    public List<String> readAfter(String taskId, long afterSeq) {
+        Set<String> members = stringRedisTemplate.opsForZSet()
+                .rangeByScore(EVENTS_KEY_PREFIX + taskId, afterSeq + 1, Double.POSITIVE_INFINITY);
+        if (members == null || members.isEmpty()) {
+            return List.of();
+        }
+        List<String> events = new ArrayList<>(members.size());
+        for (String member : members) {
+            int index = member.indexOf(SEPARATOR);
+            if (index < 0) {
+                continue;
+            }
+            JSONObject event = JSON.parseObject(member.substring(index + 1));
+            event.put("seq", Long.parseLong(member.substring(0, index)));
+            events.add(event.toJSONString());
+        }
+        return events;
+    }
+
+    @Override
+    public long[] trafficOf(String taskId) {
+        List<Object> values = stringRedisTemplate.opsForHash().multiGet(META_KEY_PREFIX + taskId, List.of("raw", "sent"));
+        return new long[]{toLong(values.get(0)), toLong(values.get(1))};
+    }
+
+    private long toLong(Object value) {
+        return value == null ? 0 : Long.parseLong(value.toString());
+    }
+
+    @Override
+    public Long ownerOf(String taskId) {
+        Object user = stringRedisTemplate.opsForHash().get(META_KEY_PREFIX + taskId, "user");
+        if (user == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(user.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
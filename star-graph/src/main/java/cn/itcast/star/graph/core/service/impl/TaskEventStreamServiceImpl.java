@@ -0,0 +1,288 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.service.TaskEventLogService;
+import cn.itcast.star.graph.core.service.TaskEventStreamService;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 任务事件SSE推送服务实现
+ *
+ * <p>处理流程：
+ * <ol>
+ *     <li>WsNoticeService写入事件日志后，以 taskId|seq|事件JSON 的格式发布到task_events_pub频道</li>
+ *     <li>每个实例只订阅这一个频道，收到后按taskId找到本地的SSE连接推送，没有订阅者的事件直接忽略</li>
+ *     <li>新连接先订阅再读取事件日志补发，按序号去重，不会漏掉两者之间的事件</li>
+ *     <li>任务结束（结果、失败、中断）后推送最后一条事件并关闭连接</li>
+ * </ol>
+ * 连接在等待期间不占用Servlet线程，只保留SseEmitter和少量状态；每HEARTBEAT_SECONDS发送注释行保活。
+ * 实时事件和保活都进入连接自己的有界队列，由sse-send线程池发送，队列溢出时关闭连接由客户端重连补发
+ */
+@Slf4j
+@Service
+public class TaskEventStreamServiceImpl implements TaskEventStreamService {
+
+    /** 任务事件广播频道 */
+    private static final String TOPIC = "task_events_pub";
+    /** 连接最长保持时间(毫秒) */
+    private static final long EMITTER_TIMEOUT_MS = 30 * 60 * 1000L;
+    /** 保活间隔(秒) */
+    private static final long HEARTBEAT_SECONDS = 15;
+    /** 推送线程数 */
+    private static final int SENDER_THREADS = 4;
+    /** 每个连接最多排队的事件数，超出时关闭连接 */
+    private static final int MAX_QUEUED = 256;
+    /** 任务结束事件 */
+    private static final Set<String> TERMINAL_TYPES = Set.of("imageResult", "execution_error", "execution_interrupted");
+
+    @Autowired
+    RedissonClient redissonClient;
+    @Autowired
+    TaskEventLogService taskEventLogService;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /** taskId -> 本地SSE连接 */
+    private final Map<String, Set<Watcher>> watchers = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "sse-heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+    /** 推送线程池，Redisson订阅线程只负责入队 */
+    private final ExecutorService sender = Executors.newFixedThreadPool(SENDER_THREADS, r -> {
+        Thread t = new Thread(r, "sse-send");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private RTopic topic;
+    private Counter overflowCounter;
+    private int listenerId;
+
+    @PostConstruct
+    public void start() {
+        topic = redissonClient.getTopic(TOPIC, StringCodec.INSTANCE);
+        listenerId = topic.addListener(String.class, (channel, message) -> onMessage(message));
+        heartbeat.scheduleWithFixedDelay(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+        Gauge.builder("sse.connections", watchers, w -> w.values().stream().mapToInt(Set::size).sum())
+                .description("本实例的任务事件SSE连接数")
+                .register(meterRegistry);
+        overflowCounter = Counter.builder("sse.overflow")
+                .description("推送队列溢出而关闭的SSE连接数")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void stop() {
+        heartbeat.shutdownNow();
+        topic.removeListener(listenerId);
+        sender.shutdown();
+        watchers.values().forEach(set -> set.forEach(w -> w.emitter.complete()));
+    }
+
+    @Override
+    public SseEmitter subscribe(String taskId, long afterSeq) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Watcher watcher = new Watcher(taskId, emitter, afterSeq);
+        watchers.computeIfAbsent(taskId, k -> new CopyOnWriteArraySet<>()).add(watcher);
+        emitter.onCompletion(() -> remove(watcher));
+        emitter.onTimeout(() -> remove(watcher));
+        emitter.onError(e -> remove(watcher));
+        // 先订阅后补发，序号去重
+        watcher.replay(taskEventLogService.readAfter(taskId, afterSeq));
+        return emitter;
+    }
+
+    @Override
+    public void publish(String taskId, long seq, String event) {
+        topic.publish(taskId + "|" + seq + "|" + event);
+    }
+
+    private void onMessage(String message) {
+        int first = message.indexOf('|');
+        int second = first < 0 ? -1 : message.indexOf('|', first + 1);
+        if (second < 0) {
+            return;
+        }
+        Set<Watcher> local = watchers.get(message.substring(0, first));
+        if (local == null || local.isEmpty()) {
+            return;
+        }
+        long seq = Long.parseLong(message.substring(first + 1, second));
+        String event = message.substring(second + 1);
+        String type = JSON.parseObject(event).getString("type");
+        Event pending = new Event(seq, event, type);
+        for (Watcher watcher : local) {
+            watcher.offer(pending);
+        }
+    }
+
+    private void sendHeartbeats() {
+        watchers.values().forEach(set -> set.forEach(w -> w.offer(Event.PING)));
+    }
+
+    private void remove(Watcher watcher) {
+        watchers.computeIfPresent(watcher.taskId, (k, set) -> {
+            set.remove(watcher);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    /**
+     * 一个SSE连接：事件先进入有界队列，由推送线程池按序发送，慢客户端不会阻塞订阅线程；
+     * 记录已推送的最后序号，保证补发和实时事件不重复、不乱序
+     */
+    private class Watcher {
+        final String taskId;
+        final SseEmitter emitter;
+        /** 已推送的最后序号，只在补发线程或推送任务中读写 */
+        long lastSeq;
+        private final Deque<Event> queue = new ArrayDeque<>();
+        /** 补发历史事件期间实时事件只排队，补发结束后再推送 */
+        private boolean replaying = true;
+        /** 是否已有推送任务在执行 */
+        private boolean draining;
+        private boolean overflowed;
+        private volatile boolean closed;
+
+        Watcher(String taskId, SseEmitter emitter, long lastSeq) {
+            this.taskId = taskId;
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+        }
+
+        /**
+         * 在请求线程中补发历史事件，结束后开始推送排队的实时事件
+         */
+        void replay(List<String> history) {
+            for (String event : history) {
+                JSONObject json = JSON.parseObject(event);
+                write(new Event(json.getLongValue("seq"), event, json.getString("type")));
+            }
+            synchronized (this) {
+                replaying = false;
+                if (queue.isEmpty() && !overflowed) {
+                    return;
+                }
+                draining = true;
+            }
+            schedule();
+        }
+
+        void offer(Event event) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                if (event.isPing() && !queue.isEmpty()) {
+                    return;
+                }
+                if (queue.size() >= MAX_QUEUED) {
+                    // 客户端消费过慢，关闭连接，客户端带Last-Event-ID重连后从事件日志补发
+                    closed = true;
+                    overflowed = true;
+                    queue.clear();
+                    overflowCounter.increment();
+                    remove(this);
+                } else {
+                    queue.add(event);
+                }
+                if (replaying || draining) {
+                    return;
+                }
+                draining = true;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 服务关闭中
+                closed = true;
+                remove(this);
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Event next;
+                synchronized (this) {
+                    next = closed ? null : queue.poll();
+                    if (next == null) {
+                        draining = false;
+                        if (!overflowed) {
+                            return;
+                        }
+                        overflowed = false;
+                        break;
+                    }
+                }
+                write(next);
+            }
+            emitter.complete();
+        }
+
+        private void write(Event event) {
+            if (closed || (!event.isPing() && event.seq <= lastSeq)) {
+                return;
+            }
+            try {
+                if (event.isPing()) {
+                    emitter.send(SseEmitter.event().comment("ping"));
+                    return;
+                }
+                lastSeq = event.seq;
+                emitter.send(SseEmitter.event().id(String.valueOf(event.seq)).data(event.data, MediaType.APPLICATION_JSON));
+                if (TERMINAL_TYPES.contains(event.type)) {
+                    closed = true;
+                    emitter.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // 客户端已断开
+                closed = true;
+                remove(this);
+            }
+        }
+    }
+
+    /**
+     * 待推送的事件，seq为负数表示保活注释
+     */
+    private record Event(long seq, String data, String type) {
+        static final Event PING = new Event(-1, null, null);
+
+        boolean isPing() {
+            return seq < 0;
+        }
+    }
+}
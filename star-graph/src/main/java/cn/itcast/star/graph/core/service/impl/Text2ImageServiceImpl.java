@@ -2,35 +2,40 @@ package cn.itcast.star.graph.core.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiAsyncApi;
 import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiModel;
 import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiRequestDto;
 import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
 import cn.itcast.star.graph.core.common.Constants;
 import cn.itcast.star.graph.core.dto.common.PageResult;
 import cn.itcast.star.graph.core.dto.request.Text2ImageCancelReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImageEventsReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageListReqDto;
+import cn.itcast.star.graph.core.dto.request.Text2ImagePreTranslateReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImagePriorityReqDto;
 import cn.itcast.star.graph.core.dto.request.Text2ImageReqDto;
 import cn.itcast.star.graph.core.dto.respone.Text2ImageResDto;
 import cn.itcast.star.graph.core.exception.CustomException;
 import cn.itcast.star.graph.core.pojo.UserResult;
 import cn.itcast.star.graph.core.service.*;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
+import cn.itcast.star.graph.core.utils.PromptUtils;
 import cn.itcast.star.graph.core.utils.UserUtils;
 import com.alibaba.fastjson2.JSON;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
-import retrofit2.Response;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -41,10 +46,13 @@ import java.util.concurrent.TimeUnit;
 public class Text2ImageServiceImpl implements Text2ImageService {
     
     @Autowired
-    OllamaService ollamaService;
+    TranslateCacheService translateCacheService;
     
     @Autowired
-    FreemarkerService freemarkerService;
+    WorkflowRegistryService workflowRegistryService;
+    
+    @Autowired
+    ComfyuiCatalogService comfyuiCatalogService;
     
     @Autowired
     RedisService redisService;
@@ -54,20 +62,32 @@ public class Text2ImageServiceImpl implements Text2ImageService {
     
     @Autowired
     UserResultService userResultService;
+    @Autowired
+    UserResultCacheService userResultCacheService;
     
     @Autowired
     StringRedisTemplate stringRedisTemplate;
     
     @Autowired
-    ComfyuiApi comfyuiApi;
+    ComfyuiAsyncApi comfyuiAsyncApi;
     
     @Autowired
     RefundCompensationService refundCompensationService;
     
+    @Autowired
+    WsNoticeService wsNoticeService;
+    
+    @Autowired
+    TaskEventLogService taskEventLogService;
+    
+    @Autowired
+    TaskEventStreamService taskEventStreamService;
+    
     private static final String LOCK_KEY_PREFIX = "lock:task:";
     private static final long LOCK_TIMEOUT = 10;
     private static final int PRIORITY_COST = 5;
     private static final double PRIORITY_INCREMENT = 10.0;
+    private static final int FIRST_PAGE = 1;
     private static final int MIN_PAGE_SIZE = 1;
     private static final int MAX_PAGE_SIZE = 20;
     private static final int DEFAULT_PAGE_SIZE = 10;
@@ -87,19 +107,23 @@ public class Text2ImageServiceImpl implements Text2ImageService {
         comfyuiModel.setWidth(text2ImageReqDto.width());
         comfyuiModel.setHeight(text2ImageReqDto.height());
 
-        // 处理提示词：添加画质增强前缀并翻译（避免中英混合导致模型理解偏差）
-        comfyuiModel.setPropmt("(8k, best quality, masterpiece),(high detailed skin)," + ollamaService.translate(text2ImageReqDto.getPropmt()));
+        // 处理提示词：添加画质增强前缀并翻译（避免中英混合导致模型理解偏差），优先命中预翻译缓存
+        Long userId = UserUtils.getUser().getId();
+        comfyuiModel.setPropmt(PromptUtils.positive(translateCacheService.translate(userId, text2ImageReqDto.getPropmt())));
         // 处理负面提示词：翻译并添加常见负面关键词（降低坏脸/多指等概率）
-        comfyuiModel.setReverse(ollamaService.translate(text2ImageReqDto.getReverse()) + ",bad face,naked,bad finger,bad arm,bad leg,bad eye");
+        comfyuiModel.setReverse(PromptUtils.negative(translateCacheService.translate(userId, text2ImageReqDto.getReverse())));
 
-        // 使用Freemarker生成ComfyUI工作流JSON（模板化工作流便于统一维护）
-        String prompt = freemarkerService.renderText2Image(comfyuiModel);
-        ComfyuiRequestDto comfyuiRequestDto = new ComfyuiRequestDto(Constants.COMFYUI_CLIENT_ID, JSON.parseObject(prompt));
+        // 将参数写入预编译的工作流模板（按类型写入JSON值，提示词中的引号不会破坏结构）
+        Map<String, Object> workflow = workflowRegistryService.buildText2Image(comfyuiModel);
+        // 按ComfyUI节点目录校验模型、采样器等参数，非法参数在入队前拒绝
+        comfyuiCatalogService.validate(workflow);
+        ComfyuiRequestDto comfyuiRequestDto = new ComfyuiRequestDto(Constants.COMFYUI_CLIENT_ID, workflow);
 
         // 封装任务对象：包含WS客户端ID、请求体、用户与图片数量等
         ComfyuiTask comfyuiTask = new ComfyuiTask(text2ImageReqDto.getClientId(), comfyuiRequestDto);
-        comfyuiTask.setUserId(UserUtils.getUser().getId());
+        comfyuiTask.setUserId(userId);
         comfyuiTask.setSize(text2ImageReqDto.getSize());
+        comfyuiTask.setPoints(workflowRegistryService.estimateCost(WorkflowRegistryService.TEXT_TO_IMAGE, text2ImageReqDto.getSize()));
         return comfyuiTask;
     }
 
@@ -112,22 +136,33 @@ public class Text2ImageServiceImpl implements Text2ImageService {
             throw new CustomException("请求参数错误！");
         }
         
-        Long userId = UserUtils.getUser().getId();
-        // 先冻结积分：任务完成时扣除；失败/异常时归还
-        userFundRecordService.pointsFreeze(userId, text2ImageReqDto.getSize());
+        // 先组装并校验任务，参数不合法时不冻结积分
+        ComfyuiTask comfyuiTask = getComfyuiTask(text2ImageReqDto);
+        return submitTask(comfyuiTask);
+    }
+
+    /**
+     * 冻结积分并入队
+     */
+    @Override
+    public Text2ImageResDto submitTask(ComfyuiTask comfyuiTask) throws Exception {
+        Long userId = comfyuiTask.getUserId();
+        // 冻结积分：任务完成时扣除；失败/异常时归还
+        userFundRecordService.pointsFreeze(userId, comfyuiTask.getPoints());
         
         try {
-            // 组装任务并入队到Redis优先级队列
-            ComfyuiTask comfyuiTask = getComfyuiTask(text2ImageReqDto);
+            // 入队到Redis优先级队列
             comfyuiTask = redisService.addQueueTask(comfyuiTask);
+            // 记录入队事件，客户端断线重连后可从该事件开始补发
+            sendQueueEvent(comfyuiTask, "queued", comfyuiTask.getIndex());
             Text2ImageResDto text2ImageResDto = new Text2ImageResDto();
             text2ImageResDto.setPid(comfyuiTask.getId());
             text2ImageResDto.setQueueIndex(comfyuiTask.getIndex());
             return text2ImageResDto;
         } catch (Exception e) {
-            log.error("创建文生图任务失败，归还用户{}的积分{}", userId, text2ImageReqDto.getSize(), e);
+            log.error("创建生图任务失败，归还用户{}的积分{}", userId, comfyuiTask.getPoints(), e);
             // 入队失败或系统异常：归还冻结积分（失败会自动补偿，无需阻塞用户）
-            refundCompensationService.safeRefund(userId, text2ImageReqDto.getSize(), 
+            refundCompensationService.safeRefund(userId, comfyuiTask.getPoints(), 
                     "create_task_" + System.currentTimeMillis(), "create_task_failed_refund");
             // 抛出原始异常，告知用户任务创建失败（退款会在后台处理）
             throw e;
@@ -137,11 +172,14 @@ public class Text2ImageServiceImpl implements Text2ImageService {
     /**
      * 取消文生图任务（智能取消：队列中的直接删除，执行中的调用中断接口）
      *
+     * <p>执行中的任务异步调用中断接口（重试间隔递增，不占用请求线程），中断完成后再退款并释放锁
+     *
      * @param cancelReqDto 取消请求参数
-     * @throws Exception 处理异常
+     * @return 取消完成的Future，业务异常以CustomException异常完成
+     * @throws Exception 参数、锁、权限等同步校验失败时直接抛出
      */
     @Override
-    public void cancelTask(Text2ImageCancelReqDto cancelReqDto) throws Exception {
+    public CompletableFuture<Void> cancelTask(Text2ImageCancelReqDto cancelReqDto) throws Exception {
         String tempId = cancelReqDto.getTempId();
         if (tempId == null || tempId.trim().isEmpty()) {
             throw new CustomException("任务ID不能为空");
@@ -159,6 +197,8 @@ public class Text2ImageServiceImpl implements Text2ImageService {
             throw new CustomException("操作过于频繁，请稍后再试");
         }
         
+        // 锁是否已交给异步中断流程释放
+        boolean lockHandedOver = false;
         try {
             // 检查任务状态：getTaskRank返回1表示正在执行，>1表示在队列中，null表示不存在
             Long currentRank = redisService.getTaskRank(tempId);
@@ -186,26 +226,12 @@ public class Text2ImageServiceImpl implements Text2ImageService {
                     throw new CustomException("无权限操作该任务");
                 }
                 
-                // 第一步：调用中断接口（带重试机制）
-                boolean interruptSuccess = interruptTaskWithRetry(tempId, currentUserId);
-                
-                if (!interruptSuccess) {
-                    // 中断失败（重试多次后仍失败），不退款
-                    log.error("用户{}中断任务{}失败（已重试{}次），任务将继续执行，不退款", 
-                            currentUserId, tempId, INTERRUPT_MAX_RETRIES);
-                    throw new CustomException("任务中断失败，请稍后重试");
-                }
-                
-                // 第二步：中断成功后再退款
-                log.info("用户{}成功中断任务{}，开始归还积分", currentUserId, tempId);
-                boolean refundSuccess = refundCompensationService.safeRefund(
-                        runningTask.getUserId(), runningTask.getSize(), tempId, "interrupt_refund_failed");
-                
-                if (!refundSuccess) {
-                    // 退款失败，已自动加入补偿队列
-                    throw new CustomException("任务已中断，积分正在处理中，请稍后查看账户余额");
-                }
-                return;
+                // 第一步：异步调用中断接口（带重试机制）；第二步：中断成功后再退款；最后释放锁
+                CompletableFuture<Void> future = interruptTaskWithRetry(tempId, currentUserId, 1)
+                        .thenAccept(interruptSuccess -> refundAfterInterrupt(interruptSuccess, runningTask, tempId, currentUserId))
+                        .whenComplete((v, e) -> safeUnlock(lockKey, lockValue));
+                lockHandedOver = true;
+                return future;
             }
             
             // 任务在队列中（排名>1），直接删除并退款
@@ -230,27 +256,55 @@ public class Text2ImageServiceImpl implements Text2ImageService {
             
             // 归还冻结的积分（取消不扣费）
             boolean refundSuccess = refundCompensationService.safeRefund(
-                    queueTask.getUserId(), queueTask.getSize(), tempId, "queue_cancel_refund_failed");
+                    queueTask.getUserId(), queueTask.getPoints(), tempId, "queue_cancel_refund_failed");
             
             if (!refundSuccess) {
                 // 退款失败，已自动加入补偿队列
                 throw new CustomException("任务已取消，积分正在处理中，请稍后查看账户余额");
             }
+            return CompletableFuture.completedFuture(null);
         } catch (CustomException e) {
             throw e;
         } catch (Exception e) {
             log.error("用户{}取消任务{}发生系统异常", currentUserId, tempId, e);
             throw new CustomException("任务取消失败");
         } finally {
-            try {
-                // 释放分布式锁（使用Lua脚本保证原子性）
-                unlock(lockKey, lockValue);
-            } catch (Exception e) {
-                log.error("释放锁失败: lockKey={}", lockKey, e);
+            if (!lockHandedOver) {
+                safeUnlock(lockKey, lockValue);
             }
         }
     }
 
+    /**
+     * 中断完成后退款，中断失败（重试多次后仍失败）时不退款
+     */
+    private void refundAfterInterrupt(boolean interruptSuccess, ComfyuiTask runningTask, String tempId, Long currentUserId) {
+        if (!interruptSuccess) {
+            log.error("用户{}中断任务{}失败（已重试{}次），任务将继续执行，不退款", 
+                    currentUserId, tempId, INTERRUPT_MAX_RETRIES);
+            throw new CustomException("任务中断失败，请稍后重试");
+        }
+        log.info("用户{}成功中断任务{}，开始归还积分", currentUserId, tempId);
+        boolean refundSuccess = refundCompensationService.safeRefund(
+                runningTask.getUserId(), runningTask.getPoints(), tempId, "interrupt_refund_failed");
+        if (!refundSuccess) {
+            // 退款失败，已自动加入补偿队列
+            throw new CustomException("任务已中断，积分正在处理中，请稍后查看账户余额");
+        }
+    }
+
+    /**
+     * 释放分布式锁，失败只记录日志，避免掩盖原始异常
+     */
+    private void safeUnlock(String lockKey, String lockValue) {
+        try {
+            // 释放分布式锁（使用Lua脚本保证原子性）
+            unlock(lockKey, lockValue);
+        } catch (Exception e) {
+            log.error("释放锁失败: lockKey={}", lockKey, e);
+        }
+    }
+
     /**
      * 尝试获取分布式锁
      * 
@@ -287,6 +341,8 @@ public class Text2ImageServiceImpl implements Text2ImageService {
     /**
      * 获取用户文生图历史列表
      *
+     * <p>请求带cursor时使用游标分页，否则使用页码分页
+     *
      * @param listReqDto 请求分页参数
      * @return 分页结果
      */
@@ -294,32 +350,60 @@ public class Text2ImageServiceImpl implements Text2ImageService {
     public PageResult<List<UserResult>> getUserImageList(Text2ImageListReqDto listReqDto) {
         // 从ThreadLocal中获取当前登录用户ID
         Long userId = UserUtils.getUser().getId();
+        if (listReqDto.getCursor() != null) {
+            return getUserImageListByCursor(userId, listReqDto);
+        }
 
         // 参数校验：获取请求的页码和每页数量
         Integer pageNum = listReqDto.getPageNum();
         Integer pageSize = listReqDto.getPageSize();
         // 如果页码小于最小值，设置为最小值（1）
-        if (pageNum < MIN_PAGE_SIZE) {
-            pageNum = MIN_PAGE_SIZE;
+        if (pageNum < FIRST_PAGE) {
+            pageNum = FIRST_PAGE;
         }
         // 如果每页数量超出合理范围，设置为默认值（10）
         if (pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
             pageSize = DEFAULT_PAGE_SIZE;
         }
 
-        // 构建 MyBatis Plus 的分页对象
-        Page<UserResult> page = new Page<>(pageNum, pageSize);
-        // 构建 Lambda 查询条件包装器
-        LambdaQueryWrapper<UserResult> queryWrapper = new LambdaQueryWrapper<>();
-        // 设置查询条件：只查询当前用户的记录，按创建时间倒序
-        queryWrapper.eq(UserResult::getUserId, userId)
-                .orderByDesc(UserResult::getCreatedTime);
+        // 第一页读取缓存，总数读取计数器
+        if (pageNum == FIRST_PAGE) {
+            List<UserResult> records = userResultCacheService.getFirstPage(userId, pageSize,
+                    limit -> userResultService.listAfter(userId, null, limit));
+            userResultService.ensureDerivatives(records);
+            userResultService.toPublicUrls(records);
+            return PageResult.ok(userResultService.countOf(userId), records);
+        }
 
-        // 执行分页查询
-        IPage<UserResult> resultPage = userResultService.page(page, queryWrapper);
+        // 其余页合并查询热表和归档表，总数与第一页一样读取计数器
+        List<UserResult> records = userResultService.listPage(userId, pageNum, pageSize);
+        // 旧记录没有缩略图时异步补生成，本次返回原图地址
+        userResultService.ensureDerivatives(records);
+        userResultService.toPublicUrls(records);
+        return PageResult.ok(userResultService.countOf(userId), records);
+    }
 
-        // 转换为自定义分页结果返回
-        return PageResult.ok(resultPage.getTotal(), resultPage.getRecords());
+    /**
+     * 游标分页：多查一条判断是否还有下一页，总数只在请求时从计数器读取
+     */
+    private PageResult<List<UserResult>> getUserImageListByCursor(Long userId, Text2ImageListReqDto listReqDto) {
+        Integer pageSize = listReqDto.getPageSize();
+        if (pageSize == null || pageSize < MIN_PAGE_SIZE || pageSize > MAX_PAGE_SIZE) {
+            pageSize = DEFAULT_PAGE_SIZE;
+        }
+        HistoryCursor cursor = HistoryCursor.decode(listReqDto.getCursor());
+        List<UserResult> records = cursor == null
+                ? userResultCacheService.getFirstPage(userId, pageSize + 1, limit -> userResultService.listAfter(userId, null, limit))
+                : userResultService.listAfter(userId, cursor, pageSize + 1);
+        String nextCursor = null;
+        if (records.size() > pageSize) {
+            records = records.subList(0, pageSize);
+            nextCursor = HistoryCursor.encode(records.get(pageSize - 1));
+        }
+        userResultService.ensureDerivatives(records);
+        userResultService.toPublicUrls(records);
+        long total = Boolean.TRUE.equals(listReqDto.getWithTotal()) ? userResultService.countOf(userId) : -1;
+        return PageResult.ok(total, records, nextCursor);
     }
 
     /**
@@ -408,6 +492,9 @@ public class Text2ImageServiceImpl implements Text2ImageService {
                 // 记录插队成功日志，包含排名变化和消耗积分
                 log.info("用户{}插队成功: 任务{}从队列第{}名提升到第{}名，消耗积分{}", 
                         currentUserId, tempId, queueRank + 1, newRank, PRIORITY_COST);
+                if (newRank != null) {
+                    sendQueueEvent(queueTask, "position", newRank);
+                }
                 // 返回新的排名位置（如果查询失败默认返回1）
                 return newRank != null ? newRank : 1L;
             } catch (CustomException e) {
@@ -465,6 +552,78 @@ public class Text2ImageServiceImpl implements Text2ImageService {
         return rank;
     }
 
+    /**
+     * 读取任务事件日志，客户端断线重连后补发错过的事件
+     */
+    @Override
+    public List<String> getTaskEvents(Text2ImageEventsReqDto eventsReqDto) {
+        String tempId = eventsReqDto.getTempId();
+        if (tempId == null || tempId.trim().isEmpty()) {
+            throw new CustomException("任务ID不能为空");
+        }
+        Long owner = taskEventLogService.ownerOf(tempId);
+        if (owner == null) {
+            return List.of();
+        }
+        if (!owner.equals(UserUtils.getUser().getId())) {
+            throw new CustomException("无权限操作该任务");
+        }
+        long afterSeq = eventsReqDto.getAfterSeq() == null ? 0 : eventsReqDto.getAfterSeq();
+        return taskEventLogService.readAfter(tempId, afterSeq);
+    }
+
+    /**
+     * 以SSE方式订阅任务事件，校验任务归属后交给TaskEventStreamService
+     */
+    @Override
+    public SseEmitter streamTaskEvents(Text2ImageEventsReqDto eventsReqDto) {
+        String tempId = eventsReqDto.getTempId();
+        if (tempId == null || tempId.trim().isEmpty()) {
+            throw new CustomException("任务ID不能为空");
+        }
+        Long owner = taskEventLogService.ownerOf(tempId);
+        if (owner == null) {
+            throw new CustomException("任务不存在或已完成");
+        }
+        if (!owner.equals(UserUtils.getUser().getId())) {
+            throw new CustomException("无权限操作该任务");
+        }
+        long afterSeq = eventsReqDto.getAfterSeq() == null ? 0 : eventsReqDto.getAfterSeq();
+        return taskEventStreamService.subscribe(tempId, afterSeq);
+    }
+
+    /**
+     * 推送排队相关事件，失败不影响主流程
+     */
+    private void sendQueueEvent(ComfyuiTask comfyuiTask, String type, long index) {
+        try {
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", type);
+            event.put("value", index);
+            wsNoticeService.sendTaskEvent(comfyuiTask, event);
+        } catch (Exception e) {
+            log.warn("推送任务{}的{}事件失败: {}", comfyuiTask.getId(), type, e.getMessage());
+        }
+    }
+
+    /**
+     * 预翻译提示词（防抖，结果写入翻译缓存）
+     */
+    @Override
+    public void preTranslate(Text2ImagePreTranslateReqDto preTranslateReqDto) {
+        Long userId = UserUtils.getUser().getId();
+        translateCacheService.preTranslate(userId, "propmt", preTranslateReqDto.getPropmt());
+        translateCacheService.preTranslate(userId, "reverse", preTranslateReqDto.getReverse());
+    }
+
+    /**
+     * 获取可选的模型、采样器、调度器
+     */
+    @Override
+    public Map<String, List<String>> getOptions() {
+        return comfyuiCatalogService.getOptions();
+    }
+
     /**
      * 查找正在执行的任务
      * 
@@ -527,45 +686,46 @@ public class Text2ImageServiceImpl implements Text2ImageService {
     }
     
     /**
-     * 带重试机制的中断任务
+     * 带重试机制的异步中断任务
+     * 
+     * <p>失败后按 重试间隔 × 已尝试次数 延迟重试，等待期间不占用任何线程
      * 
      * @param tempId 任务ID
      * @param currentUserId 当前用户ID
+     * @param attempt 当前第几次尝试
      * @return 是否中断成功
      */
-    private boolean interruptTaskWithRetry(String tempId, Long currentUserId) {
-        for (int attempt = 1; attempt <= INTERRUPT_MAX_RETRIES; attempt++) {
-            try {
-                log.info("用户{}尝试中断任务{}，第{}次尝试", currentUserId, tempId, attempt);
-                Response<Void> response = comfyuiApi.interruptTask().execute();
-                
-                if (response.isSuccessful()) {
+    private CompletableFuture<Boolean> interruptTaskWithRetry(String tempId, Long currentUserId, int attempt) {
+        log.info("用户{}尝试中断任务{}，第{}次尝试", currentUserId, tempId, attempt);
+        return comfyuiAsyncApi.interruptTask()
+                .handle((response, e) -> {
+                    if (e != null) {
+                        log.warn("用户{}中断任务{}异常（第{}次）: {}", 
+                                currentUserId, tempId, attempt, e.getMessage());
+                        return false;
+                    }
+                    if (!response.isSuccessful()) {
+                        log.warn("用户{}中断任务{}失败（第{}次），HTTP状态码: {}", 
+                                currentUserId, tempId, attempt, response.code());
+                        return false;
+                    }
                     log.info("用户{}成功中断任务{}（第{}次尝试成功）", currentUserId, tempId, attempt);
                     return true;
-                } else {
-                    log.warn("用户{}中断任务{}失败（第{}次），HTTP状态码: {}", 
-                            currentUserId, tempId, attempt, response.code());
-                }
-            } catch (Exception e) {
-                log.warn("用户{}中断任务{}异常（第{}次）: {}", 
-                        currentUserId, tempId, attempt, e.getMessage());
-            }
-            
-            // 如果不是最后一次尝试，等待后重试
-            if (attempt < INTERRUPT_MAX_RETRIES) {
-                try {
-                    Thread.sleep(INTERRUPT_RETRY_DELAY_MS);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    log.warn("中断重试等待被打断");
-                    break;
-                }
-            }
-        }
-        
-        // 所有重试都失败
-        log.error("用户{}中断任务{}失败，已重试{}次", currentUserId, tempId, INTERRUPT_MAX_RETRIES);
-        return false;
+                })
+                .thenCompose(success -> {
+                    if (success) {
+                        return CompletableFuture.completedFuture(true);
+                    }
+                    if (attempt >= INTERRUPT_MAX_RETRIES) {
+                        // 所有重试都失败
+                        log.error("用户{}中断任务{}失败，已重试{}次", currentUserId, tempId, INTERRUPT_MAX_RETRIES);
+                        return CompletableFuture.completedFuture(false);
+                    }
+                    // 延迟后重试，间隔随次数递增
+                    Executor delayed = CompletableFuture.delayedExecutor(INTERRUPT_RETRY_DELAY_MS * attempt, TimeUnit.MILLISECONDS);
+                    return CompletableFuture.supplyAsync(() -> attempt + 1, delayed)
+                            .thenCompose(next -> interruptTaskWithRetry(tempId, currentUserId, next));
+                });
     }
     
 }
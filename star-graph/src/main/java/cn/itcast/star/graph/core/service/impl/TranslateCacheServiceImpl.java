@@ -0,0 +1,188 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.SecureUtil;
+import cn.itcast.star.graph.core.resilience.RequestDeadline;
+import cn.itcast.star.graph.core.service.OllamaService;
+import cn.itcast.star.graph.core.service.TranslateCacheService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 翻译缓存服务实现
+ *
+ * <p>预翻译流程：
+ * <ol>
+ *     <li>前端在用户输入时调用预翻译接口，服务端按用户+字段防抖</li>
+ *     <li>防抖结束后异步翻译，结果写入Redis（按用户和文本MD5作为Key）</li>
+ *     <li>新文本到达时取消旧的防抖定时器和进行中的Ollama调用</li>
+ *     <li>提交任务时先查缓存，其次等待相同文本的进行中预翻译，最后才同步翻译</li>
+ * </ol>
+ */
+@Slf4j
+@Service
+public class TranslateCacheServiceImpl implements TranslateCacheService {
+
+    /** 翻译缓存Key前缀 */
+    private static final String CACHE_KEY_PREFIX = "translate_cache:";
+    /** 缓存有效期 */
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+    /** 防抖时间(毫秒) */
+    private static final long DEBOUNCE_MS = 400;
+    /** 等待进行中预翻译的最长时间(毫秒) */
+    private static final long JOIN_TIMEOUT_MS = 20000;
+    /** 超过该长度的文本不做预翻译 */
+    private static final int MAX_TEXT_LENGTH = 1000;
+    /** 预翻译支持的字段 */
+    private static final List<String> FIELDS = List.of("propmt", "reverse");
+
+    @Autowired
+    OllamaService ollamaService;
+
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+
+    /** 进行中的预翻译，Key为 userId:field */
+    private final Map<String, PendingPreTranslate> pendings = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService debounceScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "pre-translate-debounce");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        debounceScheduler.shutdownNow();
+    }
+
+    @Override
+    public void preTranslate(Long userId, String field, String text) {
+        if (userId == null || !FIELDS.contains(field) || StrUtil.isBlank(text) || text.length() > MAX_TEXT_LENGTH) {
+            return;
+        }
+        String pendingKey = userId + ":" + field;
+        PendingPreTranslate next = new PendingPreTranslate(text);
+        PendingPreTranslate[] replaced = new PendingPreTranslate[1];
+        // 文本未变化时保留原有的预翻译，替换和比较在同一次原子操作中完成
+        PendingPreTranslate current = pendings.compute(pendingKey, (k, previous) -> {
+            if (previous != null && previous.text.equals(text)) {
+                return previous;
+            }
+            replaced[0] = previous;
+            return next;
+        });
+        if (current != next) {
+            return;
+        }
+        if (replaced[0] != null) {
+            replaced[0].cancel();
+        }
+        next.timer = debounceScheduler.schedule(() -> startTranslate(userId, pendingKey, next),
+                DEBOUNCE_MS, TimeUnit.MILLISECONDS);
+        if (next.cancelled) {
+            // 定时器设置前已被更新的文本取消
+            next.timer.cancel(false);
+        }
+    }
+
+    private void startTranslate(Long userId, String pendingKey, PendingPreTranslate pending) {
+        if (pending.cancelled) {
+            return;
+        }
+        String cacheKey = cacheKey(userId, pending.text);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(cacheKey))) {
+            pendings.remove(pendingKey, pending);
+            return;
+        }
+        CompletableFuture<String> future = ollamaService.translateAsync(pending.text);
+        pending.inFlight = future;
+        if (pending.cancelled) {
+            future.cancel(false);
+        }
+        future.whenComplete((result, e) -> {
+            pendings.remove(pendingKey, pending);
+            // 未翻译的原文不缓存，避免Ollama恢复后仍命中原文
+            if (e == null && StrUtil.isNotBlank(result) && !result.equals(pending.text)) {
+                stringRedisTemplate.opsForValue().setIfAbsent(cacheKey, result, CACHE_TTL);
+                log.debug("预翻译完成，用户{}，文本长度{}", userId, pending.text.length());
+            }
+        });
+    }
+
+    @Override
+    public String translate(Long userId, String text) {
+        if (StrUtil.isBlank(text)) {
+            return StrUtil.emptyIfNull(text);
+        }
+        String cacheKey = cacheKey(userId, text);
+        String cached = stringRedisTemplate.opsForValue().get(cacheKey);
+        if (cached != null) {
+            log.debug("翻译缓存命中，用户{}", userId);
+            return cached;
+        }
+        // 相同文本的预翻译仍在进行中，直接等待其结果
+        for (String field : FIELDS) {
+            PendingPreTranslate pending = pendings.get(userId + ":" + field);
+            CompletableFuture<String> inFlight = pending != null && pending.text.equals(text) ? pending.inFlight : null;
+            if (inFlight != null) {
+                try {
+                    return inFlight.get(RequestDeadline.remainingMillis(JOIN_TIMEOUT_MS), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return text;
+                } catch (Exception e) {
+                    log.warn("等待预翻译结果失败，重新翻译: {}", e.getMessage());
+                }
+            }
+        }
+        String result = ollamaService.translate(text);
+        if (!text.equals(result)) {
+            stringRedisTemplate.opsForValue().set(cacheKey, result, CACHE_TTL);
+        }
+        return result;
+    }
+
+    private String cacheKey(Long userId, String text) {
+        return CACHE_KEY_PREFIX + userId + ":" + SecureUtil.md5(text);
+    }
+
+    /**
+     * 一次预翻译：防抖定时器 + 进行中的翻译
+     */
+    private static class PendingPreTranslate {
+        final String text;
+        volatile ScheduledFuture<?> timer;
+        volatile CompletableFuture<String> inFlight;
+        volatile boolean cancelled;
+
+        PendingPreTranslate(String text) {
+            this.text = text;
+        }
+
+        void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> t = timer;
+            if (t != null) {
+                t.cancel(false);
+            }
+            CompletableFuture<String> f = inFlight;
+            if (f != null) {
+                f.cancel(false);
+            }
+        }
+    }
+}
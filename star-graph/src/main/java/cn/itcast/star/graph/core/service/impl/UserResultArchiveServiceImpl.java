@@ -0,0 +1,37 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.mapper.UserResultArchiveMapper;
+import cn.itcast.star.graph.core.service.UserResultArchiveService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 用户历史记录归档服务实现
+ *
+ * <p>每批在同一事务内先复制再删除，查询方任何时刻只会在热表或归档表之一看到该记录
+ */
+@Slf4j
+@Service
+public class UserResultArchiveServiceImpl implements UserResultArchiveService {
+
+    @Autowired
+    UserResultArchiveMapper userResultArchiveMapper;
+
+    @Override
+    @Transactional
+    public int archiveChunk(LocalDateTime cutoff, int chunkSize) {
+        List<Long> ids = userResultArchiveMapper.selectColdIds(cutoff, chunkSize);
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        userResultArchiveMapper.copyToArchive(ids);
+        int deleted = userResultArchiveMapper.deleteFromHot(ids);
+        log.debug("归档历史记录{}条", deleted);
+        return deleted;
+    }
+}
@@ -0,0 +1,198 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.service.UserResultCacheService;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * 用户历史记录首页缓存实现
+ *
+ * <p>Redis List {@code user_result_page1:{userId}} 按(created_time, id)倒序保存最新的CAPACITY条记录，
+ * 每条为紧凑的JSON数组[id, 创建时间, 收藏, 原图, 缩略图, 展示图]。
+ * 缓存不足CAPACITY条时即为该用户的全部记录，因此命中时无需再查数据库。
+ *
+ * <p>并发一致性：
+ * <ul>
+ *     <li>每次写入、替换或清除都递增版本号，回填脚本只在版本号未变化时写入，
+ *     避免查询数据库期间变化的记录被旧结果覆盖</li>
+ *     <li>提交后才插入头部，期间未命中的读请求可能已从数据库回填了同一条记录，插入时按ID去重</li>
+ * </ul>
+ */
+@Slf4j
+@Service
+public class UserResultCacheServiceImpl implements UserResultCacheService {
+
+    /** 缓存容量：最大分页条数 + 1（游标分页多查一条判断下一页） */
+    static final int CAPACITY = 21;
+    private static final String PAGE_KEY_PREFIX = "user_result_page1:";
+    private static final String VERSION_KEY_PREFIX = "user_result_page1_ver:";
+    private static final Duration TTL = Duration.ofDays(1);
+
+    /** 缓存条目的ID：JSON数组的第一个元素 */
+    private static final String ID_PATTERN = "'^%[(%-?%d+),'";
+
+    /** KEYS[1]=列表 KEYS[2]=版本号；ARGV[1]=容量 ARGV[2]=有效期 ARGV[3..]=按插入顺序的新记录 */
+    private static final DefaultRedisScript<Long> PREPEND_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('incr', KEYS[2]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[2]) "
+                    + "if redis.call('exists', KEYS[1]) == 0 then return 0 end "
+                    + "local cached = {} "
+                    + "for _, v in ipairs(redis.call('lrange', KEYS[1], 0, -1)) do "
+                    + "local id = string.match(v, " + ID_PATTERN + ") "
+                    + "if id then cached[id] = true end end "
+                    + "for i = 3, #ARGV do "
+                    + "local id = string.match(ARGV[i], " + ID_PATTERN + ") "
+                    + "if not (id and cached[id]) then redis.call('lpush', KEYS[1], ARGV[i]) end end "
+                    + "redis.call('ltrim', KEYS[1], 0, tonumber(ARGV[1]) - 1) "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    /** KEYS[1]=列表 KEYS[2]=版本号；ARGV[1]=读取前的版本号 ARGV[2]=有效期 ARGV[3..]=倒序的记录 */
+    private static final DefaultRedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "if (redis.call('get', KEYS[2]) or '0') ~= ARGV[1] then return 0 end "
+                    + "redis.call('del', KEYS[1]) "
+                    + "for i = 3, #ARGV do redis.call('rpush', KEYS[1], ARGV[i]) end "
+                    + "redis.call('pexpire', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+
+    /** KEYS[1]=列表 KEYS[2]=版本号；ARGV[1]=条目前缀"[id," ARGV[2]=新条目 ARGV[3]=有效期 */
+    private static final DefaultRedisScript<Long> UPDATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('incr', KEYS[2]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[3]) "
+                    + "for i, v in ipairs(redis.call('lrange', KEYS[1], 0, -1)) do "
+                    + "if string.sub(v, 1, #ARGV[1]) == ARGV[1] then "
+                    + "redis.call('lset', KEYS[1], i - 1, ARGV[2]) return 1 end end "
+                    + "return 0", Long.class);
+
+    /** KEYS[1]=列表 KEYS[2]=版本号；ARGV[1]=有效期 */
+    private static final DefaultRedisScript<Long> EVICT_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[1]) "
+                    + "redis.call('incr', KEYS[2]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[1]) "
+                    + "return 1", Long.class);
+
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @Override
+    public List<UserResult> getFirstPage(Long userId, int limit, IntFunction<List<UserResult>> loader) {
+        if (limit > CAPACITY) {
+            return loader.apply(limit);
+        }
+        List<String> cached = null;
+        String version = null;
+        try {
+            cached = stringRedisTemplate.opsForList().range(PAGE_KEY_PREFIX + userId, 0, limit - 1);
+            if (cached == null || cached.isEmpty()) {
+                version = stringRedisTemplate.opsForValue().get(VERSION_KEY_PREFIX + userId);
+            }
+        } catch (Exception e) {
+            log.warn("读取用户{}历史首页缓存失败: {}", userId, e.getMessage());
+        }
+        if (cached != null && !cached.isEmpty()) {
+            meterRegistry.counter("user.result.page1.cache", "result", "hit").increment();
+            List<UserResult> results = new ArrayList<>(cached.size());
+            for (String item : cached) {
+                results.add(decode(userId, item));
+            }
+            return results;
+        }
+        meterRegistry.counter("user.result.page1.cache", "result", "miss").increment();
+        List<UserResult> loaded = loader.apply(CAPACITY);
+        fill(userId, version == null ? "0" : version, loaded);
+        return loaded.size() > limit ? new ArrayList<>(loaded.subList(0, limit)) : loaded;
+    }
+
+    private void fill(Long userId, String version, List<UserResult> results) {
+        if (results.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(results.size() + 2);
+        args.add(version);
+        args.add(String.valueOf(TTL.toMillis()));
+        results.forEach(r -> args.add(encode(r)));
+        try {
+            stringRedisTemplate.execute(FILL_SCRIPT, keys(userId), args.toArray());
+        } catch (Exception e) {
+            log.warn("回填用户{}历史首页缓存失败: {}", userId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void prepend(Long userId, List<UserResult> results) {
+        List<String> args = new ArrayList<>(results.size() + 2);
+        args.add(String.valueOf(CAPACITY));
+        args.add(String.valueOf(TTL.toMillis()));
+        results.forEach(r -> args.add(encode(r)));
+        try {
+            stringRedisTemplate.execute(PREPEND_SCRIPT, keys(userId), args.toArray());
+        } catch (Exception e) {
+            log.warn("更新用户{}历史首页缓存失败，清除缓存: {}", userId, e.getMessage());
+            evict(userId);
+        }
+    }
+
+    @Override
+    public void update(UserResult result) {
+        try {
+            stringRedisTemplate.execute(UPDATE_SCRIPT, keys(result.getUserId()),
+                    "[" + result.getId() + ",", encode(result), String.valueOf(TTL.toMillis()));
+        } catch (Exception e) {
+            log.warn("更新用户{}历史首页缓存失败，清除缓存: {}", result.getUserId(), e.getMessage());
+            evict(result.getUserId());
+        }
+    }
+
+    @Override
+    public void evict(Long userId) {
+        try {
+            stringRedisTemplate.execute(EVICT_SCRIPT, keys(userId), String.valueOf(TTL.toMillis()));
+        } catch (Exception e) {
+            log.warn("清除用户{}历史首页缓存失败: {}", userId, e.getMessage());
+        }
+    }
+
+    private List<String> keys(Long userId) {
+        return List.of(PAGE_KEY_PREFIX + userId, VERSION_KEY_PREFIX + userId);
+    }
+
+    static String encode(UserResult result) {
+        JSONArray array = new JSONArray(6);
+        array.add(result.getId());
+        array.add(result.getCreatedTime() == null ? null : result.getCreatedTime().toString());
+        array.add(result.getCollect());
+        array.add(result.getUrl());
+        array.add(result.getThumbUrl());
+        array.add(result.getDisplayUrl());
+        return array.toJSONString();
+    }
+
+    static UserResult decode(Long userId, String item) {
+        JSONArray array = JSON.parseArray(item);
+        UserResult result = new UserResult();
+        result.setId(array.getLong(0));
+        String createdTime = array.getString(1);
+        result.setCreatedTime(createdTime == null ? null : LocalDateTime.parse(createdTime));
+        result.setUserId(userId);
+        result.setCollect(array.getInteger(2));
+        result.setUrl(array.getString(3));
+        result.setThumbUrl(array.getString(4));
+        result.setDisplayUrl(array.getString(5));
+        return result;
+    }
+}
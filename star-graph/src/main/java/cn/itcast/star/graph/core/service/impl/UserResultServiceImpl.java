@@ -1,21 +1,39 @@
 package cn.itcast.star.graph.core.service.impl;
 
+import cn.itcast.star.graph.core.mapper.UserResultArchiveMapper;
 import cn.itcast.star.graph.core.mapper.UserResultMapper;
 import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.service.ResultDerivativeService;
+import cn.itcast.star.graph.core.service.ResultStoreService;
 import cn.itcast.star.graph.core.service.UserFundRecordService;
+import cn.itcast.star.graph.core.service.UserResultCacheService;
 import cn.itcast.star.graph.core.service.UserResultService;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * 用户生图结果服务实现
+ *
+ * <p>历史记录总数保存在Redis计数器中，插入提交后递增；计数器不存在时才统计一次数据库
+ *
+ * <p>90天前的记录由UserResultArchiveJob移入归档表，游标分页读完热表后继续读归档表，页码分页合并查询两个表
  */
 @Service
 @Transactional
@@ -23,19 +41,147 @@ import java.util.stream.Collectors;
 public class UserResultServiceImpl extends ServiceImpl<UserResultMapper, UserResult> implements UserResultService {
     @Autowired
     UserFundRecordService userFundRecordService;
+    @Autowired
+    ResultDerivativeService resultDerivativeService;
+    @Autowired
+    ResultStoreService resultStoreService;
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    UserResultCacheService userResultCacheService;
+    @Autowired
+    UserResultArchiveMapper userResultArchiveMapper;
+
+    /** 历史记录计数器Key前缀 */
+    private static final String COUNT_KEY_PREFIX = "user_result_count:";
+    /** 计数器有效期，过期后重新统计以修正偏差 */
+    private static final Duration COUNT_TTL = Duration.ofDays(7);
+    /** 计数器存在时才递增，避免从0开始计数 */
+    private static final DefaultRedisScript<Long> INCR_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('incrby', KEYS[1], ARGV[1]) end return -1",
+            Long.class);
 
     /**
      * 批量保存图片URL到用户历史记录
      */
     @Override
     public void saveList(List<String> urls, Long userId) {
+        // 创建时间截断到秒，缓存中的记录与数据库一致，游标可以互用
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
         List<UserResult> userResults = urls.stream().map((url) -> {
             UserResult userResult = new UserResult();
             userResult.setUserId(userId);
             userResult.setUrl(url);
             userResult.setCollect(0);
+            userResult.setCreatedTime(now);
             return userResult;
         }).collect(Collectors.toList());
         this.saveBatch(userResults);
+        // 事务提交后再生成缩略图、更新首页缓存和计数，避免回写时记录尚不可见
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterSave(userResults, userId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                afterSave(userResults, userId);
+            }
+        });
+    }
+
+    private void afterSave(List<UserResult> userResults, Long userId) {
+        userResultCacheService.prepend(userId, userResults);
+        resultDerivativeService.generateAsync(userResults);
+        try {
+            stringRedisTemplate.execute(INCR_IF_EXISTS_SCRIPT, List.of(COUNT_KEY_PREFIX + userId),
+                    String.valueOf(userResults.size()));
+        } catch (Exception e) {
+            // 计数失败时删除计数器，下次查询重新统计
+            log.warn("更新用户{}历史记录计数失败: {}", userId, e.getMessage());
+            stringRedisTemplate.delete(COUNT_KEY_PREFIX + userId);
+        }
+    }
+
+    /**
+     * 为缺少缩略图的记录补生成派生图片
+     */
+    @Override
+    public void ensureDerivatives(List<UserResult> userResults) {
+        resultDerivativeService.generateAsync(userResults);
+    }
+
+    /**
+     * 数据库中保存的是站内路径（旧记录可能是完整URL），按当前配置的访问前缀拼接
+     */
+    @Override
+    public void toPublicUrls(List<UserResult> userResults) {
+        for (UserResult userResult : userResults) {
+            userResult.setUrl(resultStoreService.publicUrlOf(userResult.getUrl()));
+            userResult.setThumbUrl(resultStoreService.publicUrlOf(userResult.getThumbUrl()));
+            userResult.setDisplayUrl(resultStoreService.publicUrlOf(userResult.getDisplayUrl()));
+        }
+    }
+
+    /**
+     * 游标分页查询，依赖(user_id, created_time, id)索引，不做OFFSET和COUNT
+     *
+     * <p>该索引不覆盖查询的全部列，按索引定位和排序后每条记录回表一次，回表次数不超过limit
+     *
+     * <p>归档记录都早于热表记录，热表不足一页时从热表最后一条继续查询归档表
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserResult> listAfter(Long userId, HistoryCursor cursor, int limit) {
+        LambdaQueryWrapper<UserResult> queryWrapper = new LambdaQueryWrapper<>();
+        queryWrapper.eq(UserResult::getUserId, userId);
+        if (cursor != null) {
+            queryWrapper.and(w -> w.lt(UserResult::getCreatedTime, cursor.getCreatedTime())
+                    .or(o -> o.eq(UserResult::getCreatedTime, cursor.getCreatedTime())
+                            .lt(UserResult::getId, cursor.getId())));
+        }
+        queryWrapper.orderByDesc(UserResult::getCreatedTime)
+                .orderByDesc(UserResult::getId)
+                .last("LIMIT " + limit);
+        List<UserResult> results = this.list(queryWrapper);
+        if (results.size() >= limit) {
+            return results;
+        }
+        HistoryCursor archiveCursor = results.isEmpty() ? cursor : HistoryCursor.of(results.get(results.size() - 1));
+        List<UserResult> archived = userResultArchiveMapper.listAfter(userId, archiveCursor, limit - results.size());
+        if (archived.isEmpty()) {
+            return results;
+        }
+        List<UserResult> merged = new ArrayList<>(results.size() + archived.size());
+        merged.addAll(results);
+        merged.addAll(archived);
+        return merged;
+    }
+
+    /**
+     * 页码分页查询，热表和归档表合并后按OFFSET取一页，页码越大扫描的记录越多，深分页应使用游标
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserResult> listPage(Long userId, int pageNum, int pageSize) {
+        long offset = (long) (pageNum - 1) * pageSize;
+        return userResultArchiveMapper.listPage(userId, offset, pageSize, offset + pageSize);
+    }
+
+    /**
+     * 读取历史记录计数器，不存在时统计一次并写入
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long countOf(Long userId) {
+        String key = COUNT_KEY_PREFIX + userId;
+        String cached = stringRedisTemplate.opsForValue().get(key);
+        if (cached != null) {
+            return Long.parseLong(cached);
+        }
+        long count = this.count(new LambdaQueryWrapper<UserResult>().eq(UserResult::getUserId, userId))
+                + userResultArchiveMapper.countByUserId(userId);
+        stringRedisTemplate.opsForValue().setIfAbsent(key, String.valueOf(count), COUNT_TTL);
+        return count;
     }
 }
\ No newline at end of file
@@ -0,0 +1,220 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiModel;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowParamType;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowSlot;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowTemplate;
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.WorkflowRegistryService;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONObject;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 工作流注册中心实现
+ *
+ * <p>描述文件格式（JSON）：
+ * <pre>
+ * {
+ *   "name": "t2i", "title": "文生图", "cost": 1,
+ *   "params": {"seed": {"node": "3", "input": "seed", "type": "LONG"}, ...},
+ *   "workflow": { ComfyUI API格式的工作流 }
+ * }
+ * </pre>
+ * 内置描述文件位于classpath:workflows，外部目录中的同名工作流会覆盖内置工作流；
+ * 外部目录变更后定时重新加载，编译出新的注册表后整体替换，读取无需加锁。
+ * 单个描述文件不合法时保留该工作流的旧版本，不影响其他工作流
+ */
+@Slf4j
+@Service
+public class WorkflowRegistryServiceImpl implements WorkflowRegistryService {
+
+    /** 内置工作流描述文件 */
+    private static final String BUILTIN_PATTERN = "classpath*:workflows/*.json";
+
+    /** 外部工作流目录，为空时只使用内置工作流 */
+    @Value("${star-graph.workflow.path:}")
+    String externalWorkflowPath;
+
+    /** 文生图是否使用WebSocket输出的工作流 */
+    @Value("${star-graph.workflow.ws-output:false}")
+    boolean wsOutput;
+
+    /** 当前注册表（只读快照） */
+    private volatile Map<String, WorkflowTemplate> templates = Map.of();
+    /** 外部目录的文件签名（文件名+修改时间），用于判断是否需要重新加载 */
+    private volatile String externalSignature = "";
+
+    @PostConstruct
+    public void init() {
+        reload();
+        if (!templates.containsKey(TEXT_TO_IMAGE)) {
+            throw new IllegalStateException("缺少文生图工作流: " + TEXT_TO_IMAGE);
+        }
+    }
+
+    @Override
+    public WorkflowTemplate getTemplate(String name) {
+        WorkflowTemplate template = templates.get(name);
+        if (template == null) {
+            throw new CustomException("工作流不存在: " + name);
+        }
+        return template;
+    }
+
+    @Override
+    public Collection<WorkflowTemplate> listTemplates() {
+        return templates.values();
+    }
+
+    @Override
+    public Map<String, Object> build(String name, Map<String, Object> params) {
+        return getTemplate(name).build(params);
+    }
+
+    @Override
+    public Map<String, Object> buildText2Image(ComfyuiModel comfyuiModel) {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("seed", comfyuiModel.getSeed());
+        params.put("steps", comfyuiModel.getStep());
+        params.put("cfg", comfyuiModel.getCfg());
+        params.put("sampler", comfyuiModel.getSamplerName());
+        params.put("scheduler", comfyuiModel.getScheduler());
+        params.put("ckpt", comfyuiModel.getModelName());
+        params.put("width", comfyuiModel.getWidth());
+        params.put("height", comfyuiModel.getHeight());
+        params.put("batch", comfyuiModel.getSize());
+        params.put("positive", comfyuiModel.getPropmt());
+        params.put("negative", comfyuiModel.getReverse());
+        return build(resolve(TEXT_TO_IMAGE), params);
+    }
+
+    @Override
+    public int estimateCost(String name, int size) {
+        return getTemplate(resolve(name)).getCost() * size;
+    }
+
+    /**
+     * 开启WebSocket输出时文生图使用t2i-ws工作流
+     */
+    private String resolve(String name) {
+        return TEXT_TO_IMAGE.equals(name) && wsOutput && templates.containsKey(TEXT_TO_IMAGE_WS) ? TEXT_TO_IMAGE_WS : name;
+    }
+
+    @Override
+    public synchronized int reload() {
+        Map<String, WorkflowTemplate> loaded = new LinkedHashMap<>();
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources(BUILTIN_PATTERN);
+            for (Resource resource : resources) {
+                try (InputStream in = resource.getInputStream()) {
+                    register(loaded, StreamUtils.copyToString(in, StandardCharsets.UTF_8), resource.getDescription());
+                }
+            }
+        } catch (IOException e) {
+            log.error("加载内置工作流失败", e);
+        }
+        File[] externalFiles = listExternalFiles();
+        for (File file : externalFiles) {
+            try {
+                register(loaded, Files.readString(file.toPath(), StandardCharsets.UTF_8), file.getPath());
+            } catch (IOException e) {
+                log.error("读取外部工作流失败: {}", file, e);
+            }
+        }
+        externalSignature = signature(externalFiles);
+        this.templates = Collections.unmodifiableMap(loaded);
+        log.info("工作流加载完成: {}", loaded.keySet());
+        return loaded.size();
+    }
+
+    /**
+     * 每分钟检查外部工作流目录，变更后自动重新加载
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void reloadIfModified() {
+        if (StrUtil.isBlank(externalWorkflowPath)) {
+            return;
+        }
+        if (!signature(listExternalFiles()).equals(externalSignature)) {
+            log.info("检测到外部工作流变更，重新加载: {}", externalWorkflowPath);
+            reload();
+        }
+    }
+
+    /**
+     * 解析并编译单个描述文件，失败时保留同名工作流的旧版本
+     */
+    private void register(Map<String, WorkflowTemplate> target, String content, String source) {
+        String name = null;
+        try {
+            JSONObject descriptor = JSON.parseObject(content);
+            name = descriptor.getString("name");
+            if (StrUtil.isBlank(name)) {
+                throw new IllegalArgumentException("缺少name");
+            }
+            JSONObject workflow = descriptor.getJSONObject("workflow");
+            if (workflow == null) {
+                throw new IllegalArgumentException("缺少workflow");
+            }
+            List<WorkflowSlot> slots = new ArrayList<>();
+            JSONObject params = descriptor.getJSONObject("params");
+            if (params != null) {
+                for (String param : params.keySet()) {
+                    JSONObject slot = params.getJSONObject(param);
+                    slots.add(new WorkflowSlot(param, slot.getString("node"), slot.getString("input"),
+                            WorkflowParamType.valueOf(slot.getString("type").toUpperCase())));
+                }
+            }
+            int cost = descriptor.containsKey("cost") ? descriptor.getIntValue("cost") : 1;
+            target.put(name, new WorkflowTemplate(name, descriptor.getString("title"), cost, workflow, slots));
+        } catch (Exception e) {
+            log.error("工作流描述文件不合法: {}，原因: {}", source, e.getMessage());
+            WorkflowTemplate previous = name == null ? null : templates.get(name);
+            if (previous != null) {
+                target.put(name, previous);
+            }
+        }
+    }
+
+    private File[] listExternalFiles() {
+        if (StrUtil.isBlank(externalWorkflowPath)) {
+            return new File[0];
+        }
+        File[] files = new File(externalWorkflowPath).listFiles((dir, fileName) -> fileName.endsWith(".json"));
+        if (files == null) {
+            return new File[0];
+        }
+        Arrays.sort(files);
+        return files;
+    }
+
+    private String signature(File[] files) {
+        StringBuilder sb = new StringBuilder();
+        for (File file : files) {
+            sb.append(file.getName()).append(':').append(file.lastModified()).append(';');
+        }
+        return sb.toString();
+    }
+}
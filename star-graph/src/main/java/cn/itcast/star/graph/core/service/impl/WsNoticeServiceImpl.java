@@ -1,26 +1,161 @@
 package cn.itcast.star.graph.core.service.impl;
 
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.common.Constants;
+import cn.itcast.star.graph.core.service.TaskEventLogService;
+import cn.itcast.star.graph.core.service.TaskEventStreamService;
 import cn.itcast.star.graph.core.service.WsNoticeService;
+import cn.itcast.star.graph.core.wserver.TaskEventCodec;
+import cn.itcast.star.graph.core.wserver.WsRelay;
+import cn.itcast.star.graph.core.wserver.WsRelayMessage;
+import cn.itcast.star.graph.core.wserver.WsSessionRegistry;
+import com.alibaba.fastjson2.JSON;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * WebSocket消息推送服务实现
+ *
+ * <p>多实例部署时客户端的STOMP会话不一定在当前实例：
+ * 先通过WsSessionRegistry定位会话所在实例，本实例直接投递，否则经WsRelay转发
  */
+@Slf4j
 @Service
 public class WsNoticeServiceImpl implements WsNoticeService {
     // WebSocket消息主题路径
     public final static String COMFYUI_QUEUE_TOPIC = "/topic/messages";
+    // 预览图主题路径
+    public final static String COMFYUI_PREVIEW_TOPIC = "/topic/preview";
+    // 任务结束事件
+    private final static Set<Object> TERMINAL_TYPES = Set.of("imageResult", "execution_error", "execution_interrupted");
 
     @Autowired
     SimpMessagingTemplate simpMessagingTemplate;
+    @Autowired
+    WsSessionRegistry wsSessionRegistry;
+    @Autowired
+    WsRelay wsRelay;
+    @Autowired
+    TaskEventLogService taskEventLogService;
+    @Autowired
+    TaskEventStreamService taskEventStreamService;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        wsRelay.setDeliverer(this::deliver);
+    }
 
     /**
      * 向指定客户端推送消息（点对点）
      */
     @Override
     public void sendToUser(String clientId, String message) {
-        simpMessagingTemplate.convertAndSendToUser(clientId, COMFYUI_QUEUE_TOPIC, message);
+        route(WsRelayMessage.text(clientId, COMFYUI_QUEUE_TOPIC, message));
+    }
+
+    /**
+     * 推送任务事件，事件日志写入失败时仍然推送（客户端只是无法按序号补发）
+     *
+     * <p>进度和排队序号使用TaskEventCodec紧凑编码；同一事件同时广播给订阅该任务的SSE连接。
+     * 编码前后的字节数按任务累计，任务结束时记录到ws.task.bytes指标
+     */
+    @Override
+    public void sendTaskEvent(ComfyuiTask task, Map<String, Object> event) {
+        // 编码前的字节数按带上seq和taskId后的原始结构计算；复制一份，不修改调用方的Map
+        Map<String, Object> raw = new HashMap<>(event);
+        raw.put("seq", 0);
+        raw.put("taskId", task.getId());
+        int rawBytes = JSON.toJSONString(raw).getBytes(StandardCharsets.UTF_8).length;
+        Map<String, Object> encoded = TaskEventCodec.encode(raw);
+        long seq = 0;
+        try {
+            seq = taskEventLogService.append(task.getId(), task.getUserId(), encoded, rawBytes);
+        } catch (Exception e) {
+            log.warn("写入任务事件日志失败，任务: {}, {}", task.getId(), e.getMessage());
+            encoded.putIfAbsent("taskId", task.getId());
+        }
+        String json = JSON.toJSONString(encoded);
+        meterRegistry.summary("ws.event.bytes", "type", String.valueOf(event.get("type")),
+                "encoding", encoded == raw ? "raw" : "compact").record(json.getBytes(StandardCharsets.UTF_8).length);
+        if (TERMINAL_TYPES.contains(event.get("type"))) {
+            recordTraffic(task.getId());
+        }
+        sendToUser(task.getWsClientId(), json);
+        if (seq > 0) {
+            try {
+                taskEventStreamService.publish(task.getId(), seq, json);
+            } catch (Exception e) {
+                log.warn("广播任务事件失败，任务: {}, {}", task.getId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 任务结束时记录该任务编码前后的推送字节数
+     */
+    private void recordTraffic(String taskId) {
+        try {
+            long[] traffic = taskEventLogService.trafficOf(taskId);
+            if (traffic[0] == 0) {
+                return;
+            }
+            meterRegistry.summary("ws.task.bytes", "encoding", "raw").record(traffic[0]);
+            meterRegistry.summary("ws.task.bytes", "encoding", "compact").record(traffic[1]);
+            log.debug("任务{}推送字节数：编码前{}，编码后{}", taskId, traffic[0], traffic[1]);
+        } catch (Exception e) {
+            log.debug("读取任务{}推送字节数失败: {}", taskId, e.getMessage());
+        }
+    }
+
+    /**
+     * 向指定客户端推送预览图
+     *
+     * <p>content-type为application/octet-stream时STOMP帧以WebSocket二进制消息发出，
+     * 图片格式放在image-type头中
+     */
+    @Override
+    public void sendPreviewToUser(String clientId, byte[] image, String mimeType) {
+        route(WsRelayMessage.binary(clientId, COMFYUI_PREVIEW_TOPIC, image, mimeType));
+    }
+
+    /**
+     * 按会话所在实例路由：本实例或位置未知时本地投递，否则转发
+     */
+    private void route(WsRelayMessage message) {
+        String instanceId = wsSessionRegistry.locate(message.getClientId());
+        if (instanceId == null || Constants.INSTANCE_ID.equals(instanceId)) {
+            deliver(message);
+        } else {
+            wsRelay.relay(instanceId, message);
+        }
+    }
+
+    /**
+     * 投递到本实例的STOMP会话
+     */
+    private void deliver(WsRelayMessage message) {
+        if (message.getBinary() == null) {
+            simpMessagingTemplate.convertAndSendToUser(message.getClientId(), message.getDestination(), message.getText());
+            return;
+        }
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
+        accessor.setContentType(MimeTypeUtils.APPLICATION_OCTET_STREAM);
+        accessor.setNativeHeader("image-type", message.getMimeType());
+        accessor.setLeaveMutable(true);
+        simpMessagingTemplate.convertAndSendToUser(message.getClientId(), message.getDestination(),
+                message.getBinary(), accessor.getMessageHeaders());
     }
 }
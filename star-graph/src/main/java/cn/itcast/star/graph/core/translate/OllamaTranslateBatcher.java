@@ -0,0 +1,288 @@
+package cn.itcast.star.graph.core.translate;
+
+import cn.itcast.star.graph.core.resilience.RequestDeadline;
+import cn.itcast.star.graph.ollama.client.api.OllamaApi;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRequest;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRespone;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaMessage;
+import com.alibaba.fastjson2.JSON;
+import com.alibaba.fastjson2.JSONArray;
+import com.alibaba.fastjson2.JSONObject;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ollama翻译微批处理器 - 合并并发的翻译请求，减少对同一模型的串行调用
+ *
+ * <p>处理流程：
+ * <ol>
+ *     <li>调用方提交待翻译文本，得到CompletableFuture</li>
+ *     <li>收集线程在几毫秒的窗口内聚合请求（最多MAX_BATCH_SIZE条，相同文本合并）</li>
+ *     <li>多条文本以JSON数组形式一次发给模型，要求返回等长的JSON数组</li>
+ *     <li>解析失败或数量不一致时，回退为逐条翻译</li>
+ * </ol>
+ */
+@Slf4j
+@Component
+public class OllamaTranslateBatcher {
+
+    /** 翻译模型 */
+    static final String MODEL = "qwen2.5:0.5b";
+    /** 聚合窗口(毫秒) */
+    private static final long BATCH_WINDOW_MS = 5;
+    /** 单批最大条数 */
+    private static final int MAX_BATCH_SIZE = 16;
+    /** 同时在途的批次数 */
+    private static final int MAX_CONCURRENT_BATCHES = 4;
+    /** 等待队列上限，超出时直接拒绝（调用方降级为原文） */
+    private static final int MAX_PENDING = 1000;
+
+    private static final String BATCH_INSTRUCTION = "你是翻译引擎。把用户给出的JSON数组中的每一项翻译成英文，"
+            + "只输出JSON对象{\"translations\":[...]}，数组长度和顺序必须与输入一致，不要输出任何解释。";
+
+    @Autowired
+    OllamaApi ollamaApi;
+
+    private final BlockingQueue<PendingTranslation> pending = new LinkedBlockingQueue<>(MAX_PENDING);
+    private ThreadPoolExecutor batchExecutor;
+    private Thread collector;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    public void start() {
+        // 在途批次满时由收集线程自己执行，形成背压
+        batchExecutor = new ThreadPoolExecutor(MAX_CONCURRENT_BATCHES, MAX_CONCURRENT_BATCHES,
+                60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(MAX_CONCURRENT_BATCHES),
+                r -> {
+                    Thread t = new Thread(r, "ollama-translate-batch");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        collector = new Thread(this::collectLoop, "ollama-translate-collector");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        collector.interrupt();
+        batchExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交待翻译文本
+     *
+     * @param text 中文文本
+     * @return 翻译结果，失败时异常完成
+     */
+    public CompletableFuture<String> submit(String text) {
+        PendingTranslation translation = new PendingTranslation(text, RequestDeadline.current());
+        if (!pending.offer(translation)) {
+            translation.future.completeExceptionally(new RejectedExecutionException("翻译等待队列已满"));
+        }
+        return translation.future;
+    }
+
+    /**
+     * 收集线程：阻塞等待第一条请求，然后在窗口期内继续聚合
+     */
+    private void collectLoop() {
+        while (running) {
+            try {
+                PendingTranslation first = pending.take();
+                List<PendingTranslation> batch = new ArrayList<>(MAX_BATCH_SIZE);
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MS);
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    PendingTranslation next = pending.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                // 调用方已超时或取消的请求不再发送
+                batch.removeIf(p -> p.future.isDone());
+                if (!batch.isEmpty()) {
+                    batchExecutor.execute(() -> translateBatch(batch));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("翻译请求聚合异常", e);
+            }
+        }
+    }
+
+    private void translateBatch(List<PendingTranslation> batch) {
+        // 相同文本只翻译一次
+        Map<String, List<PendingTranslation>> grouped = new LinkedHashMap<>();
+        for (PendingTranslation p : batch) {
+            grouped.computeIfAbsent(p.text, k -> new ArrayList<>()).add(p);
+        }
+        List<String> texts = new ArrayList<>(grouped.keySet());
+        if (texts.size() > 1) {
+            try {
+                List<String> results = chatBatch(texts, batch);
+                if (results != null) {
+                    for (int i = 0; i < texts.size(); i++) {
+                        String translated = results.get(i);
+                        grouped.get(texts.get(i)).forEach(p -> p.future.complete(translated));
+                    }
+                    log.debug("批量翻译完成，条数: {}", texts.size());
+                    return;
+                }
+                log.warn("批量翻译结果解析失败，回退逐条翻译，条数: {}", texts.size());
+            } catch (Exception e) {
+                log.warn("批量翻译调用失败，回退逐条翻译: {}", e.getMessage());
+            }
+        }
+        for (String text : texts) {
+            List<PendingTranslation> waiters = grouped.get(text);
+            if (waiters.stream().allMatch(p -> p.future.isDone())) {
+                continue;
+            }
+            try {
+                String result = chatSingle(text, waiters);
+                waiters.forEach(p -> p.future.complete(result));
+            } catch (Exception e) {
+                waiters.forEach(p -> p.future.completeExceptionally(e));
+            }
+        }
+    }
+
+    /**
+     * 单条翻译
+     */
+    String chatSingle(String text, List<PendingTranslation> waiters) throws IOException {
+        OllamaMessage message = new OllamaMessage();
+        message.setRole("user");
+        message.setContent("帮我把以下内容翻译成英文:" + text);
+
+        OllamaChatRequest body = new OllamaChatRequest();
+        body.setModel(MODEL);
+        body.setMessages(List.of(message));
+        return execute(body, waiters);
+    }
+
+    /**
+     * 批量翻译，结果数量与输入不一致时返回null
+     */
+    List<String> chatBatch(List<String> texts, List<PendingTranslation> waiters) throws IOException {
+        OllamaMessage system = new OllamaMessage();
+        system.setRole("system");
+        system.setContent(BATCH_INSTRUCTION);
+        OllamaMessage user = new OllamaMessage();
+        user.setRole("user");
+        user.setContent(JSON.toJSONString(texts));
+
+        OllamaChatRequest body = new OllamaChatRequest();
+        body.setModel(MODEL);
+        body.setFormat("json");
+        body.setMessages(List.of(system, user));
+        String content = execute(body, waiters);
+        try {
+            JSONObject json = JSON.parseObject(content);
+            JSONArray translations = json == null ? null : json.getJSONArray("translations");
+            if (translations == null || translations.size() != texts.size()) {
+                return null;
+            }
+            List<String> results = new ArrayList<>(texts.size());
+            for (int i = 0; i < translations.size(); i++) {
+                String value = translations.getString(i);
+                if (value == null || value.isBlank()) {
+                    return null;
+                }
+                results.add(value.trim());
+            }
+            return results;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * 执行Ollama调用，等待该请求的调用方全部取消时中断HTTP请求
+     *
+     * <p>批处理线程上没有请求的时间预算，按等待方中最晚的截止时间设置整个调用的超时
+     */
+    private String execute(OllamaChatRequest body, List<PendingTranslation> waiters) throws IOException {
+        Call<OllamaChatRespone> call = ollamaApi.chat(body);
+        Long deadline = latestDeadline(waiters);
+        if (deadline != null) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new InterruptedIOException("翻译请求的时间预算已用完");
+            }
+            call.timeout().timeout(remaining, TimeUnit.MILLISECONDS);
+        }
+        for (PendingTranslation waiter : waiters) {
+            waiter.future.whenComplete((result, e) -> {
+                if (waiters.stream().allMatch(p -> p.future.isCancelled())) {
+                    call.cancel();
+                }
+            });
+        }
+        Response<OllamaChatRespone> response = call.execute();
+        OllamaChatRespone chatRespone = response.body();
+        if (!response.isSuccessful() || chatRespone == null || chatRespone.getMessage() == null) {
+            throw new IOException("Ollama响应异常，HTTP状态码: " + response.code());
+        }
+        return chatRespone.getMessage().getContent();
+    }
+
+    /**
+     * 等待方中最晚的截止时间，有等待方没有截止时间时返回null
+     */
+    private static Long latestDeadline(List<PendingTranslation> waiters) {
+        Long latest = null;
+        for (PendingTranslation waiter : waiters) {
+            if (waiter.deadline == null) {
+                return null;
+            }
+            if (latest == null || waiter.deadline > latest) {
+                latest = waiter.deadline;
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * 等待翻译的请求
+     */
+    private static class PendingTranslation {
+        final String text;
+        /** 提交时所在请求的截止时间戳，非HTTP请求提交时为null */
+        final Long deadline;
+        final CompletableFuture<String> future = new CompletableFuture<>();
+
+        PendingTranslation(String text, Long deadline) {
+            this.text = text;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package cn.itcast.star.graph.core.utils;
+
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.pojo.UserResult;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * 历史记录分页游标 - 记录上一页最后一条的(created_time, id)，对前端不透明
+ *
+ * <p>编码格式：Base64Url("创建时间|ID")
+ */
+public final class HistoryCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime createdTime;
+    private final Long id;
+
+    private HistoryCursor(LocalDateTime createdTime, Long id) {
+        this.createdTime = createdTime;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedTime() {
+        return createdTime;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * 以该记录为位置的游标
+     */
+    public static HistoryCursor of(UserResult last) {
+        return new HistoryCursor(last.getCreatedTime(), last.getId());
+    }
+
+    /**
+     * 以该记录为上一页末尾生成游标
+     */
+    public static String encode(UserResult last) {
+        String raw = last.getCreatedTime() + SEPARATOR + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游标，空字符串表示第一页，返回null
+     */
+    public static HistoryCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            return new HistoryCursor(LocalDateTime.parse(raw.substring(0, index)), Long.parseLong(raw.substring(index + 1)));
+        } catch (RuntimeException e) {
+            throw new CustomException("分页游标无效");
+        }
+    }
+}
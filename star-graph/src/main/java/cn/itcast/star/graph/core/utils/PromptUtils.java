@@ -0,0 +1,26 @@
+package cn.itcast.star.graph.core.utils;
+
+/**
+ * 提示词工具类 - 文生图、图生图共用的画质前缀和负面关键词
+ */
+public class PromptUtils {
+
+    /** 画质增强前缀 */
+    private static final String QUALITY_PREFIX = "(8k, best quality, masterpiece),(high detailed skin),";
+    /** 常见负面关键词（降低坏脸/多指等概率） */
+    private static final String NEGATIVE_SUFFIX = ",bad face,naked,bad finger,bad arm,bad leg,bad eye";
+
+    /**
+     * 正向提示词：已翻译的用户提示词前加画质增强前缀
+     */
+    public static String positive(String translated) {
+        return QUALITY_PREFIX + translated;
+    }
+
+    /**
+     * 负面提示词：已翻译的用户负面提示词后加常见负面关键词
+     */
+    public static String negative(String translated) {
+        return translated + NEGATIVE_SUFFIX;
+    }
+}
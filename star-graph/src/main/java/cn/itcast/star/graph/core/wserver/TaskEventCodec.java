@@ -0,0 +1,54 @@
+package cn.itcast.star.graph.core.wserver;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 任务事件紧凑编码 - 进度和排队序号消息占推送流量的大头，只保留前端需要的字段
+ *
+ * <p>v1格式（seq和taskId由事件日志写入）：
+ * <ul>
+ *     <li>进度：{"v":1,"t":"p","d":[当前步数,总步数],"seq":..,"taskId":..}</li>
+ *     <li>排队序号：{"v":1,"t":"q","d":[序号],"seq":..,"taskId":..}</li>
+ * </ul>
+ * 其他事件（入队、开始、结果、错误）保持原有结构
+ */
+public final class TaskEventCodec {
+
+    /** 当前编码版本 */
+    public static final int VERSION = 1;
+    /** 进度 */
+    public static final String TYPE_PROGRESS = "p";
+    /** 排队序号 */
+    public static final String TYPE_POSITION = "q";
+
+    private TaskEventCodec() {
+    }
+
+    /**
+     * 编码事件，不支持紧凑编码的事件原样返回
+     */
+    public static Map<String, Object> encode(Map<String, Object> event) {
+        Object type = event.get("type");
+        if ("progress".equals(type)) {
+            return compact(TYPE_PROGRESS, List.of(number(event.get("value")), number(event.get("max"))));
+        }
+        if ("position".equals(type)) {
+            return compact(TYPE_POSITION, List.of(number(event.get("value"))));
+        }
+        return event;
+    }
+
+    private static Map<String, Object> compact(String type, List<Object> data) {
+        Map<String, Object> compact = new LinkedHashMap<>();
+        compact.put("v", VERSION);
+        compact.put("t", type);
+        compact.put("d", data);
+        return compact;
+    }
+
+    private static Object number(Object value) {
+        return value == null ? 0 : value;
+    }
+}
@@ -0,0 +1,186 @@
+package cn.itcast.star.graph.core.wserver;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.WebSocketHandlerDecoratorFactory;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * STOMP出站保护 - 慢客户端优先丢弃过时的进度类消息，结果消息从不丢弃
+ *
+ * <p>工作方式：
+ * <ol>
+ *     <li>包装每个WebSocket会话，记录当前这次发送开始的时间</li>
+ *     <li>一次发送超过CONGESTED_MS未完成即视为拥塞，此时出站通道直接丢弃该会话的预览图、
+ *     进度和排队序号消息（新的进度会覆盖旧的，丢弃不影响最终状态）</li>
+ *     <li>结果、错误等消息照常进入发送缓冲区；缓冲区超过上限时由Spring关闭会话，
+ *     客户端重连后从任务事件日志补发，结果不会丢失</li>
+ * </ol>
+ * 会话数、拥塞会话数、出站通道积压数和丢弃数通过指标暴露
+ */
+@Slf4j
+@Component
+public class WsOutboundGuard implements ExecutorChannelInterceptor, WebSocketHandlerDecoratorFactory {
+
+    /** 单次发送超过该时间(毫秒)视为会话拥塞 */
+    private static final long CONGESTED_MS = 1000;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /** WebSocket会话ID（即STOMP的simpSessionId） -> 发送状态 */
+    private final Map<String, SendState> sessions = new ConcurrentHashMap<>();
+    /** 出站通道中已提交但尚未处理的消息数 */
+    private final AtomicInteger pending = new AtomicInteger();
+
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("ws.sessions", sessions, Map::size)
+                .description("本实例的STOMP会话数")
+                .register(meterRegistry);
+        Gauge.builder("ws.sessions.congested", this, g -> g.congestedCount(System.currentTimeMillis()))
+                .description("发送拥塞的STOMP会话数")
+                .register(meterRegistry);
+        Gauge.builder("ws.outbound.pending", pending, AtomicInteger::get)
+                .description("出站通道积压的消息数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public WebSocketHandler decorate(WebSocketHandler handler) {
+        return new WebSocketHandlerDecorator(handler) {
+            @Override
+            public void afterConnectionEstablished(WebSocketSession session) throws Exception {
+                // permessage-deflate由Tomcat在握手时协商，这里只统计客户端是否启用
+                boolean deflate = session.getExtensions().stream()
+                        .anyMatch(e -> "permessage-deflate".equals(e.getName()));
+                meterRegistry.counter("ws.handshakes", "deflate", String.valueOf(deflate)).increment();
+                SendState state = new SendState();
+                sessions.put(session.getId(), state);
+                super.afterConnectionEstablished(new TrackedSession(session, state));
+            }
+
+            @Override
+            public void afterConnectionClosed(WebSocketSession session, CloseStatus closeStatus) throws Exception {
+                sessions.remove(session.getId());
+                super.afterConnectionClosed(session, closeStatus);
+            }
+        };
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() == SimpMessageType.MESSAGE) {
+            SendState state = accessor.getSessionId() == null ? null : sessions.get(accessor.getSessionId());
+            if (state != null && state.isCongested(System.currentTimeMillis())) {
+                String kind = droppableKind(message, accessor);
+                if (kind != null) {
+                    dropped(kind).increment();
+                    log.debug("会话{}发送拥塞，丢弃{}消息", accessor.getSessionId(), kind);
+                    return null;
+                }
+            }
+        }
+        pending.incrementAndGet();
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        // 出站线程池队列已满被拒绝，不会再有afterMessageHandled回调
+        if (ex != null) {
+            pending.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler handler, Exception ex) {
+        pending.decrementAndGet();
+    }
+
+    /**
+     * 可丢弃的消息类型：预览图、进度、排队序号；其他消息返回null
+     */
+    private String droppableKind(Message<?> message, SimpMessageHeaderAccessor accessor) {
+        if (MimeTypeUtils.APPLICATION_OCTET_STREAM.equals(accessor.getContentType())) {
+            return "preview";
+        }
+        if (message.getPayload() instanceof byte[] payload && payload.length < 1024) {
+            String text = new String(payload, StandardCharsets.UTF_8);
+            // 兼容TaskEventCodec的紧凑编码
+            if (text.contains("\"type\":\"progress\"") || text.contains("\"t\":\"p\"")) {
+                return "progress";
+            }
+            if (text.contains("\"type\":\"position\"") || text.contains("\"t\":\"q\"")) {
+                return "position";
+            }
+        }
+        return null;
+    }
+
+    private Counter dropped(String kind) {
+        return meterRegistry.counter("ws.outbound.dropped", "type", kind);
+    }
+
+    private long congestedCount(long now) {
+        return sessions.values().stream().filter(s -> s.isCongested(now)).count();
+    }
+
+    /**
+     * 会话发送状态：sendingSince为当前发送的开始时间，0表示空闲
+     */
+    private static class SendState {
+        volatile long sendingSince;
+
+        boolean isCongested(long now) {
+            long since = sendingSince;
+            return since > 0 && now - since > CONGESTED_MS;
+        }
+    }
+
+    /**
+     * 记录发送开始/结束时间的会话包装（Spring的并发发送装饰器保证同一时刻只有一个线程在发送）
+     */
+    private static class TrackedSession extends WebSocketSessionDecorator {
+        private final SendState state;
+
+        TrackedSession(WebSocketSession session, SendState state) {
+            super(session);
+            this.state = state;
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) throws IOException {
+            state.sendingSince = System.currentTimeMillis();
+            try {
+                super.sendMessage(message);
+            } finally {
+                state.sendingSince = 0;
+            }
+        }
+    }
+}
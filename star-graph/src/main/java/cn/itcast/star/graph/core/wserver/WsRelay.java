@@ -0,0 +1,138 @@
+package cn.itcast.star.graph.core.wserver;
+
+import cn.itcast.star.graph.core.common.Constants;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * WebSocket消息跨实例转发 - 基于Redis发布订阅
+ *
+ * <p>每个实例订阅自己的频道 ws_relay:{实例ID}。发往其他实例的消息先按目标实例排队，
+ * 由刷新线程每隔FLUSH_INTERVAL_MS批量发布（每批最多MAX_BATCH_SIZE条），
+ * 进度等高频消息因此不会逐条占用一次Redis往返。
+ * 消息使用Redisson默认的二进制编解码，预览图无需Base64
+ */
+@Slf4j
+@Component
+public class WsRelay {
+
+    /** 转发频道前缀 */
+    private static final String TOPIC_PREFIX = "ws_relay:";
+    /** 批量发布间隔(毫秒) */
+    private static final long FLUSH_INTERVAL_MS = 20;
+    /** 单批最大条数 */
+    private static final int MAX_BATCH_SIZE = 200;
+    /** 每个目标实例的待发送上限，超出时丢弃（目标实例可能已下线） */
+    private static final int MAX_PENDING = 5000;
+
+    @Autowired
+    RedissonClient redissonClient;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /** 目标实例ID -> 待发送消息 */
+    private final Map<String, BlockingQueue<WsRelayMessage>> outbox = new ConcurrentHashMap<>();
+    /** 收到转发消息后的本地投递逻辑，由WsNoticeService注册 */
+    private volatile Consumer<WsRelayMessage> deliverer;
+
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ws-relay-flush");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private int listenerId;
+    private Counter relayedOut;
+    private Counter relayedIn;
+    private Counter dropped;
+
+    @PostConstruct
+    public void start() {
+        relayedOut = meterRegistry.counter("ws.relay.messages", "direction", "out");
+        relayedIn = meterRegistry.counter("ws.relay.messages", "direction", "in");
+        dropped = meterRegistry.counter("ws.relay.dropped");
+        listenerId = topicOf(Constants.INSTANCE_ID).addListener(ArrayList.class, (channel, batch) -> {
+            Consumer<WsRelayMessage> target = deliverer;
+            for (Object message : batch) {
+                relayedIn.increment();
+                if (target != null) {
+                    target.accept((WsRelayMessage) message);
+                }
+            }
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        flusher.shutdownNow();
+        topicOf(Constants.INSTANCE_ID).removeListener(listenerId);
+    }
+
+    /**
+     * 注册本地投递逻辑
+     */
+    public void setDeliverer(Consumer<WsRelayMessage> deliverer) {
+        this.deliverer = deliverer;
+    }
+
+    /**
+     * 转发消息到目标实例（异步批量发送）
+     */
+    public void relay(String instanceId, WsRelayMessage message) {
+        BlockingQueue<WsRelayMessage> queue = outbox.computeIfAbsent(instanceId,
+                k -> new ArrayBlockingQueue<>(MAX_PENDING));
+        if (!queue.offer(message)) {
+            dropped.increment();
+            log.warn("转发队列已满，丢弃发往实例{}的消息，客户端: {}", instanceId, message.getClientId());
+        }
+    }
+
+    private void flush() {
+        for (Map.Entry<String, BlockingQueue<WsRelayMessage>> entry : outbox.entrySet()) {
+            BlockingQueue<WsRelayMessage> queue = entry.getValue();
+            while (!queue.isEmpty()) {
+                ArrayList<WsRelayMessage> batch = new ArrayList<>(Math.min(queue.size(), MAX_BATCH_SIZE));
+                queue.drainTo(batch, MAX_BATCH_SIZE);
+                try {
+                    long receivers = topicOf(entry.getKey()).publish(batch);
+                    if (receivers == 0) {
+                        // 目标实例已下线，客户端会重连到其他实例
+                        dropped.increment(batch.size());
+                        log.debug("实例{}无订阅者，丢弃{}条消息", entry.getKey(), batch.size());
+                    } else {
+                        relayedOut.increment(batch.size());
+                    }
+                } catch (Exception e) {
+                    dropped.increment(batch.size());
+                    log.error("转发消息到实例{}失败: {}", entry.getKey(), e.getMessage());
+                }
+            }
+            // 已空的队列移除，避免下线实例的队列长期残留
+            if (queue.isEmpty()) {
+                outbox.remove(entry.getKey(), queue);
+            }
+        }
+    }
+
+    private RTopic topicOf(String instanceId) {
+        return redissonClient.getTopic(TOPIC_PREFIX + instanceId);
+    }
+}
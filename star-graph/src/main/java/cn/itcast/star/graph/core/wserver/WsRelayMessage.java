@@ -0,0 +1,49 @@
+package cn.itcast.star.graph.core.wserver;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+
+/**
+ * 跨实例转发的WebSocket消息
+ *
+ * <p>文本消息使用text，预览图等二进制消息使用binary+mimeType
+ */
+@Data
+@NoArgsConstructor
+public class WsRelayMessage implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /** 目标客户端ID */
+    private String clientId;
+
+    /** 用户目的地，如/topic/messages */
+    private String destination;
+
+    /** 文本内容 */
+    private String text;
+
+    /** 二进制内容 */
+    private byte[] binary;
+
+    /** 二进制内容的格式，如image/jpeg */
+    private String mimeType;
+
+    public static WsRelayMessage text(String clientId, String destination, String text) {
+        WsRelayMessage message = new WsRelayMessage();
+        message.setClientId(clientId);
+        message.setDestination(destination);
+        message.setText(text);
+        return message;
+    }
+
+    public static WsRelayMessage binary(String clientId, String destination, byte[] binary, String mimeType) {
+        WsRelayMessage message = new WsRelayMessage();
+        message.setClientId(clientId);
+        message.setDestination(destination);
+        message.setBinary(binary);
+        message.setMimeType(mimeType);
+        return message;
+    }
+}
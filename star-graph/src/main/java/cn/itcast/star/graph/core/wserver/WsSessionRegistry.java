@@ -0,0 +1,114 @@
+package cn.itcast.star.graph.core.wserver;
+
+import cn.itcast.star.graph.core.common.Constants;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.messaging.AbstractSubProtocolEvent;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WebSocket会话注册表 - 记录每个clientId的STOMP会话所在的应用实例
+ *
+ * <p>本实例的会话保存在内存中（clientId -> 会话数），同时写入Redis
+ * （ws_session:{clientId} -> 实例ID，带过期时间并定时续期），
+ * 实例宕机后记录自动过期，不会把消息一直转发给已下线的实例
+ */
+@Slf4j
+@Component
+public class WsSessionRegistry {
+
+    /** 会话归属Key前缀 */
+    private static final String SESSION_KEY_PREFIX = "ws_session:";
+    /** 会话归属有效期，续期间隔为其三分之一 */
+    private static final Duration SESSION_TTL = Duration.ofSeconds(90);
+    /** 仅当归属仍是本实例时才删除（客户端可能已重连到其他实例） */
+    private static final DefaultRedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Autowired
+    StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    /** 本实例上的会话：clientId -> 会话数（同一客户端重连时新旧会话可能短暂并存） */
+    private final Map<String, Integer> localSessions = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initMetrics() {
+        Gauge.builder("ws.sessions.local", localSessions, Map::size)
+                .description("本实例上的WebSocket客户端数")
+                .register(meterRegistry);
+    }
+
+    @EventListener
+    public void onConnected(SessionConnectedEvent event) {
+        String clientId = clientIdOf(event);
+        if (clientId == null) {
+            return;
+        }
+        localSessions.merge(clientId, 1, Integer::sum);
+        stringRedisTemplate.opsForValue().set(SESSION_KEY_PREFIX + clientId, Constants.INSTANCE_ID, SESSION_TTL);
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        String clientId = clientIdOf(event);
+        if (clientId == null) {
+            return;
+        }
+        Integer remaining = localSessions.computeIfPresent(clientId, (k, count) -> count > 1 ? count - 1 : null);
+        if (remaining == null) {
+            stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(SESSION_KEY_PREFIX + clientId), Constants.INSTANCE_ID);
+        }
+    }
+
+    /**
+     * 为本实例上的会话续期
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void refresh() {
+        for (String clientId : localSessions.keySet()) {
+            stringRedisTemplate.opsForValue().set(SESSION_KEY_PREFIX + clientId, Constants.INSTANCE_ID, SESSION_TTL);
+        }
+    }
+
+    /**
+     * 客户端是否连接在本实例
+     */
+    public boolean isLocal(String clientId) {
+        return localSessions.containsKey(clientId);
+    }
+
+    /**
+     * 查询客户端会话所在的实例
+     *
+     * @return 实例ID，客户端未连接时返回null
+     */
+    public String locate(String clientId) {
+        if (isLocal(clientId)) {
+            return Constants.INSTANCE_ID;
+        }
+        return stringRedisTemplate.opsForValue().get(SESSION_KEY_PREFIX + clientId);
+    }
+
+    private String clientIdOf(AbstractSubProtocolEvent event) {
+        Principal user = event.getUser();
+        return user == null ? null : user.getName();
+    }
+}
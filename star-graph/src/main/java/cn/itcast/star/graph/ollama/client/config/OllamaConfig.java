@@ -1,17 +1,15 @@
 package cn.itcast.star.graph.ollama.client.config;
 
+import cn.itcast.star.graph.core.resilience.UpstreamGuard;
 import cn.itcast.star.graph.ollama.client.api.OllamaApi;
+import cn.itcast.star.graph.upstream.UpstreamClientFactory;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import okhttp3.OkHttpClient;
-import okhttp3.logging.HttpLoggingInterceptor;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import retrofit2.Retrofit;
 import retrofit2.converter.jackson.JacksonConverterFactory;
 
-import java.io.IOException;
-import java.util.concurrent.TimeUnit;
-
 /**
  * Ollama客户端配置类
  * 
@@ -27,27 +25,16 @@ public class OllamaConfig {
      * 创建OllamaApi客户端Bean
      * 
      * @param objectMapper JSON转换器
+     * @param upstreamClientFactory 共享的上游客户端工厂
+     * @param upstreamProperties 上游配置（star-graph.upstream.ollama）
+     * @param ollamaGuard 熔断器和舱壁
      * @return OllamaApi接口实例
-     * @throws IOException 初始化失败时抛出
      */
     @Bean
-    public OllamaApi ollamaApi(ObjectMapper objectMapper) throws IOException {
-        HttpLoggingInterceptor loggingInterceptor = new HttpLoggingInterceptor();
-        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY);
-
-        OkHttpClient okHttpClient = new OkHttpClient.Builder()
-                .addInterceptor(loggingInterceptor)
-                .retryOnConnectionFailure(true)
-                .connectTimeout(30, TimeUnit.SECONDS)
-                .build();
-        
-        Retrofit retrofit = new Retrofit.Builder()
-                .baseUrl(String.format("http://192.168.100.129:11434"))
-                .client(okHttpClient)
-                .addConverterFactory(JacksonConverterFactory.create(objectMapper))
-                .build();
-        
-        return retrofit.create(OllamaApi.class);
+    public OllamaApi ollamaApi(ObjectMapper objectMapper, UpstreamClientFactory upstreamClientFactory,
+                               UpstreamProperties upstreamProperties, @Qualifier("ollamaGuard") UpstreamGuard ollamaGuard) {
+        return upstreamClientFactory.createRetrofit("ollama", upstreamProperties.getOllama(), ollamaGuard,
+                JacksonConverterFactory.create(objectMapper)).create(OllamaApi.class);
     }
 
 }
@@ -0,0 +1,81 @@
+package cn.itcast.star.graph.upstream;
+
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okio.Buffer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采样日志拦截器 - 替代HttpLoggingInterceptor.Level.BODY
+ *
+ * <p>只按采样率记录部分调用；请求/响应体截断到固定长度，图片等二进制内容只记录长度；
+ * 日志格式化和输出交给单独的线程，队列满时直接丢弃，不阻塞调用线程
+ */
+@Slf4j
+public class SampledLoggingInterceptor implements Interceptor {
+
+    /** 所有上游共享的日志线程 */
+    private static final ThreadPoolExecutor LOG_EXECUTOR = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(256), r -> {
+                Thread t = new Thread(r, "upstream-log");
+                t.setDaemon(true);
+                return t;
+            }, new ThreadPoolExecutor.DiscardPolicy());
+
+    private final String name;
+    private final double sampleRate;
+    private final int maxBodyBytes;
+
+    public SampledLoggingInterceptor(String name, double sampleRate, int maxBodyBytes) {
+        this.name = name;
+        this.sampleRate = sampleRate;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        if (sampleRate <= 0 || ThreadLocalRandom.current().nextDouble() >= sampleRate || !log.isDebugEnabled()) {
+            return chain.proceed(request);
+        }
+        String requestBody = requestBody(request);
+        long start = System.nanoTime();
+        Response response = chain.proceed(request);
+        long tookMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        String responseBody = isText(response.body() == null ? null : response.body().contentType())
+                ? response.peekBody(maxBodyBytes).string()
+                : "(" + (response.body() == null ? 0 : response.body().contentLength()) + " bytes)";
+        LOG_EXECUTOR.execute(() -> log.debug("[{}] {} {} -> {} ({}ms)\n请求: {}\n响应: {}", name, request.method(),
+                request.url(), response.code(), tookMs, requestBody, responseBody));
+        return response;
+    }
+
+    private String requestBody(Request request) throws IOException {
+        if (request.body() == null) {
+            return "";
+        }
+        long length = request.body().contentLength();
+        if (!isText(request.body().contentType()) || length < 0 || length > maxBodyBytes) {
+            return "(" + length + " bytes)";
+        }
+        Buffer buffer = new Buffer();
+        request.body().writeTo(buffer);
+        return buffer.readString(StandardCharsets.UTF_8);
+    }
+
+    private boolean isText(MediaType mediaType) {
+        if (mediaType == null) {
+            return false;
+        }
+        return "text".equals(mediaType.type()) || mediaType.subtype().contains("json");
+    }
+}
@@ -0,0 +1,56 @@
+package cn.itcast.star.graph.upstream;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import retrofit2.Invocation;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上游耗时指标拦截器 - 按接口方法记录耗时直方图（upstream.requests）
+ *
+ * <p>接口名取自Retrofit的Invocation标签（如ComfyuiApi.addQueueTask），
+ * 不使用URL作为标签，避免路径参数导致指标数量膨胀
+ */
+public class UpstreamMetricsInterceptor implements Interceptor {
+
+    private final String name;
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamMetricsInterceptor(String name, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        long start = System.nanoTime();
+        String outcome = "IO_ERROR";
+        try {
+            Response response = chain.proceed(request);
+            outcome = String.valueOf(response.code());
+            return response;
+        } finally {
+            Timer.builder("upstream.requests")
+                    .tag("upstream", name)
+                    .tag("endpoint", endpoint(request))
+                    .tag("status", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private String endpoint(Request request) {
+        Invocation invocation = request.tag(Invocation.class);
+        if (invocation == null) {
+            return request.method();
+        }
+        return invocation.method().getDeclaringClass().getSimpleName() + "." + invocation.method().getName();
+    }
+}
@@ -0,0 +1,69 @@
+package cn.itcast.star.graph.upstream;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上游服务配置（star-graph.upstream）
+ *
+ * <p>地址、连接池、并发上限、熔断参数和日志采样均可在配置文件中调整，不再硬编码
+ *
+ * @author itcast
+ * @since 1.0
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "star-graph.upstream")
+public class UpstreamProperties {
+
+    /** ComfyUI */
+    private Endpoint comfyui = new Endpoint();
+
+    /** Ollama */
+    private Endpoint ollama = new Endpoint();
+
+    @Data
+    public static class Endpoint {
+        /** 服务端调用地址，如 http://127.0.0.1:8188/ */
+        private String baseUrl;
+        /** WebSocket地址（仅ComfyUI） */
+        private String wsUrl;
+        /** 浏览器访问的地址（仅ComfyUI，用于拼接结果图片URL），为空时使用baseUrl */
+        private String publicUrl;
+
+        /** 连接超时(毫秒) */
+        private long connectTimeoutMs = 5000;
+        /** 单次调用默认超时(毫秒)，实际超时不超过请求剩余时间预算 */
+        private long readTimeoutMs = 30000;
+        /** 整个调用的超时(毫秒) */
+        private long callTimeoutMs = 30000;
+
+        /** 连接池最大空闲连接数 */
+        private int maxIdleConnections = 8;
+        /** 空闲连接保活时间(毫秒) */
+        private long keepAliveMs = 300000;
+        /** 异步调用最大并发数 */
+        private int maxRequests = 32;
+        /** 异步调用单主机最大并发数 */
+        private int maxRequestsPerHost = 16;
+
+        /** 熔断统计窗口（最近N次调用） */
+        private int breakerWindow = 20;
+        /** 窗口内最少调用次数 */
+        private int breakerMinimumCalls = 5;
+        /** 熔断失败率阈值(0~1) */
+        private double failureRateThreshold = 0.5;
+        /** 熔断持续时间(毫秒) */
+        private long openDurationMs = 30000;
+        /** 舱壁：最大在途调用数 */
+        private int maxConcurrentCalls = 8;
+        /** 舱壁：等待许可的最长时间(毫秒) */
+        private long bulkheadWaitMs = 200;
+
+        /** 请求日志采样率(0~1)，0表示不记录 */
+        private double logSampleRate = 0.01;
+        /** 日志中请求/响应体的最大字节数 */
+        private int logMaxBodyBytes = 2048;
+    }
+}
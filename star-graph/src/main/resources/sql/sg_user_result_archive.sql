@@ -0,0 +1,12 @@
+-- 历史记录归档表：由UserResultArchiveJob把90天前的记录分批移入，结构（含列顺序和索引）与sg_user_result保持一致
+-- sg_user_result以后的表结构变更需要同步到归档表
+-- 执行顺序：必须在以下脚本之后执行，CREATE TABLE ... LIKE 只复制执行当时的热表结构
+--   1. sg_user_result_derivatives.sql   （thumb_url、display_url列；copyToArchive使用SELECT *，列必须一致）
+--   2. sg_user_result_history_index.sql （idx_user_created_id，归档表的游标分页同样依赖该索引）
+--   3. sg_user_result_archive.sql       （本脚本）
+-- 如果归档表已按旧结构建好，需要对sg_user_result_archive补执行前两个脚本中的ALTER
+CREATE TABLE IF NOT EXISTS sg_user_result_archive LIKE sg_user_result;
+
+-- 归档任务按创建时间顺序扫描热表
+ALTER TABLE sg_user_result
+    ADD INDEX idx_created_time (created_time);
@@ -0,0 +1,4 @@
+-- 生图结果派生文件：缩略图和压缩后的展示图，由ResultDerivativeService异步生成
+ALTER TABLE sg_user_result
+    ADD COLUMN thumb_url VARCHAR(255) NULL COMMENT '缩略图地址' AFTER url,
+    ADD COLUMN display_url VARCHAR(255) NULL COMMENT '展示图地址' AFTER thumb_url;
@@ -0,0 +1,5 @@
+-- 历史记录游标分页：按(user_id, created_time, id)倒序定位，避免深分页的OFFSET扫描和COUNT
+-- 查询为SELECT *，该索引不是覆盖索引：定位后按索引顺序读取LIMIT条，每条回表一次取其余列，
+-- 回表次数只与每页条数有关，与翻到第几页无关
+ALTER TABLE sg_user_result
+    ADD INDEX idx_user_created_id (user_id, created_time, id);
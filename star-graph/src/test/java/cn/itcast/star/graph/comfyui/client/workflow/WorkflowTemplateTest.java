@@ -0,0 +1,89 @@
+package cn.itcast.star.graph.comfyui.client.workflow;
+
+import com.alibaba.fastjson2.JSON;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WorkflowTemplate 单元测试
+ */
+class WorkflowTemplateTest {
+
+    private static final String WORKFLOW = "{"
+            + "\"3\":{\"inputs\":{\"seed\":0,\"cfg\":7,\"model\":[\"4\",0]},\"class_type\":\"KSampler\"},"
+            + "\"4\":{\"inputs\":{\"ckpt_name\":\"a.safetensors\"},\"class_type\":\"CheckpointLoaderSimple\"},"
+            + "\"6\":{\"inputs\":{\"text\":\"\"},\"class_type\":\"CLIPTextEncode\"}}";
+
+    private WorkflowTemplate template;
+
+    @BeforeEach
+    void setUp() {
+        template = new WorkflowTemplate("test", "测试", 1, JSON.parseObject(WORKFLOW), List.of(
+                new WorkflowSlot("seed", "3", "seed", WorkflowParamType.LONG),
+                new WorkflowSlot("cfg", "3", "cfg", WorkflowParamType.DOUBLE),
+                new WorkflowSlot("positive", "6", "text", WorkflowParamType.STRING)));
+    }
+
+    /**
+     * 测试提示词中的引号和反斜杠不会破坏JSON
+     */
+    @Test
+    void testBuild_QuoteEscaping() {
+        Map<String, Object> workflow = template.build(Map.of("positive", "a \"red\" car\\"));
+
+        String json = JSON.toJSONString(workflow);
+        assertEquals("a \"red\" car\\", JSON.parseObject(json).getJSONObject("6").getJSONObject("inputs").getString("text"));
+    }
+
+    /**
+     * 测试类型转换
+     */
+    @Test
+    void testBuild_TypeConversion() {
+        Map<String, Object> workflow = template.build(Map.of("seed", "123", "cfg", 8));
+
+        Map<String, Object> inputs = WorkflowTemplate.inputsOf(workflow, "3");
+        assertEquals(123L, inputs.get("seed"));
+        assertEquals(8.0, inputs.get("cfg"));
+    }
+
+    /**
+     * 测试生成的工作流互不影响，未修改的节点与模板共享
+     */
+    @Test
+    void testBuild_CopyIsolation() {
+        Map<String, Object> first = template.build(Map.of("seed", 1L));
+        Map<String, Object> second = template.build(Map.of("seed", 2L));
+
+        assertEquals(1L, WorkflowTemplate.inputsOf(first, "3").get("seed"));
+        assertEquals(2L, WorkflowTemplate.inputsOf(second, "3").get("seed"));
+        assertEquals(0, WorkflowTemplate.inputsOf(template.getWorkflow(), "3").get("seed"));
+        assertSame(template.getWorkflow().get("4"), first.get("4"));
+        assertThrows(UnsupportedOperationException.class, () -> template.getWorkflow().put("x", 1));
+    }
+
+    /**
+     * 测试槽位校验
+     */
+    @Test
+    void testInvalidSlot() {
+        assertThrows(IllegalArgumentException.class, () -> new WorkflowTemplate("bad", "测试", 1, JSON.parseObject(WORKFLOW),
+                List.of(new WorkflowSlot("steps", "3", "steps", WorkflowParamType.INT))));
+        assertThrows(IllegalArgumentException.class, () -> template.build(Map.of("unknown", 1)));
+    }
+
+    /**
+     * 测试节点连线校验
+     */
+    @Test
+    void testInvalidLink() {
+        String broken = WORKFLOW.replace("[\"4\",0]", "[\"9\",0]");
+        assertThrows(IllegalArgumentException.class,
+                () -> new WorkflowTemplate("broken", "测试", 1, JSON.parseObject(broken), List.of()));
+    }
+}
@@ -0,0 +1,63 @@
+package cn.itcast.star.graph.core.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CircuitBreaker 单元测试
+ */
+class CircuitBreakerTest {
+
+    /**
+     * 测试失败率超过阈值后熔断
+     */
+    @Test
+    void testOpenOnFailureRate() {
+        CircuitBreaker breaker = new CircuitBreaker(10, 4, 0.5, 60000);
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        assertFalse(breaker.isCallPermitted());
+    }
+
+    /**
+     * 测试半开状态只放行一次试探，成功后恢复
+     */
+    @Test
+    void testHalfOpenTrial() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 1, 0.5, 10);
+        breaker.onFailure();
+        Thread.sleep(20);
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    /**
+     * 测试试探失败后重新熔断
+     */
+    @Test
+    void testHalfOpenFailure() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(10, 1, 0.5, 10);
+        breaker.onFailure();
+        Thread.sleep(20);
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+}
@@ -0,0 +1,107 @@
+package cn.itcast.star.graph.core.resilience;
+
+import okhttp3.Call;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+/**
+ * UpstreamGuard 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class UpstreamGuardTest {
+
+    @Mock
+    private Interceptor.Chain chain;
+
+    @Mock
+    private Call call;
+
+    private Bulkhead bulkhead;
+    private UpstreamGuard guard;
+    private final Request request = new Request.Builder().url("http://127.0.0.1:8188/view").build();
+
+    @BeforeEach
+    void setUp() {
+        bulkhead = new Bulkhead(1, 0);
+        guard = new UpstreamGuard("ComfyUI", new CircuitBreaker(10, 10, 0.5, 60000), bulkhead, 5000);
+        when(chain.request()).thenReturn(request);
+        when(chain.withReadTimeout(anyInt(), any(TimeUnit.class))).thenReturn(chain);
+        when(chain.withWriteTimeout(anyInt(), any(TimeUnit.class))).thenReturn(chain);
+    }
+
+    /**
+     * 测试响应体关闭前一直占用舱壁许可
+     */
+    @Test
+    void testPermitHeldUntilBodyClosed() throws IOException {
+        when(chain.proceed(request)).thenReturn(response("image-bytes"));
+
+        Response response = guard.intercept(chain);
+
+        assertEquals(1, bulkhead.getInFlight());
+        UpstreamRejectedException ex = assertThrows(UpstreamRejectedException.class, () -> guard.intercept(chain));
+        assertTrue(ex.getMessage().contains("在途调用已满"));
+
+        assertEquals("image-bytes", response.body().string());
+
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    /**
+     * 测试重复关闭只归还一次许可
+     */
+    @Test
+    void testPermitReleasedOnce() throws Exception {
+        when(chain.proceed(request)).thenReturn(response("a"));
+
+        Response response = guard.intercept(chain);
+        response.body().source().close();
+        response.close();
+        response.body().close();
+
+        assertEquals(0, bulkhead.getInFlight());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+    }
+
+    /**
+     * 测试调用异常时立即归还许可
+     */
+    @Test
+    void testPermitReleasedOnFailure() throws IOException {
+        when(chain.proceed(request)).thenThrow(new IOException("connection reset"));
+        when(chain.call()).thenReturn(call);
+        when(call.isCanceled()).thenReturn(false);
+
+        assertThrows(IOException.class, () -> guard.intercept(chain));
+
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    private Response response(String body) {
+        return new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .body(ResponseBody.create(body, MediaType.get("application/octet-stream")))
+                .build();
+    }
+}
@@ -0,0 +1,104 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.comfyui.client.workflow.WorkflowTemplate;
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.WorkflowRegistryService;
+import com.alibaba.fastjson2.JSON;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * ComfyuiCatalogServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ComfyuiCatalogServiceImplTest {
+
+    private static final String OBJECT_INFO = "{"
+            + "\"CheckpointLoaderSimple\":{\"input\":{\"required\":{\"ckpt_name\":[[\"a.safetensors\",\"b.safetensors\"]]}}},"
+            + "\"KSampler\":{\"input\":{\"required\":{\"seed\":[\"INT\",{\"min\":0}],"
+            + "\"sampler_name\":[\"COMBO\",{\"options\":[\"euler\",\"dpmpp_2m\"]}],\"scheduler\":[[\"normal\",\"karras\"]]}}},"
+            + "\"LoadImage\":{\"input\":{\"required\":{\"image\":[[\"example.png\"],{\"image_upload\":true}]}}}}";
+
+    private static final String LOAD_IMAGE = "{\"11\":{\"class_type\":\"LoadImage\",\"inputs\":{\"image\":\"%s\"}}}";
+
+    @Mock
+    private ComfyuiApi comfyuiApi;
+
+    @Mock
+    private WorkflowRegistryService workflowRegistryService;
+
+    @InjectMocks
+    private ComfyuiCatalogServiceImpl catalogService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws IOException {
+        HashMap<String, Object> objectInfo = JSON.parseObject(OBJECT_INFO, HashMap.class);
+        WorkflowTemplate i2i = new WorkflowTemplate("i2i", "图生图", 1, JSON.parseObject(String.format(LOAD_IMAGE, "example.png")), List.of());
+        when(workflowRegistryService.listTemplates()).thenReturn(List.of(i2i));
+        when(comfyuiApi.getNodeInfo(anyString())).thenAnswer(invocation -> {
+            String classType = invocation.getArgument(0);
+            HashMap<String, Object> body = new HashMap<>();
+            body.put(classType, objectInfo.get(classType));
+            Call<HashMap> call = mock(Call.class);
+            when(call.execute()).thenReturn(Response.success(body));
+            return call;
+        });
+        catalogService.refresh();
+    }
+
+    /**
+     * 测试解析新旧两种枚举格式
+     */
+    @Test
+    void testGetOptions() {
+        Map<String, List<String>> options = catalogService.getOptions();
+
+        assertEquals(List.of("a.safetensors", "b.safetensors"), options.get("models"));
+        assertEquals(List.of("euler", "dpmpp_2m"), options.get("samplers"));
+        assertEquals(List.of("normal", "karras"), options.get("schedulers"));
+    }
+
+    /**
+     * 测试校验 - 合法参数通过，非法模型被拒绝，未缓存的节点不校验
+     */
+    @Test
+    void testValidate() {
+        Map<String, Object> valid = JSON.parseObject("{"
+                + "\"3\":{\"class_type\":\"KSampler\",\"inputs\":{\"seed\":1,\"sampler_name\":\"euler\",\"scheduler\":\"karras\"}},"
+                + "\"4\":{\"class_type\":\"CheckpointLoaderSimple\",\"inputs\":{\"ckpt_name\":\"a.safetensors\"}},"
+                + "\"9\":{\"class_type\":\"SaveImage\",\"inputs\":{\"filename_prefix\":\"x\"}}}");
+        assertDoesNotThrow(() -> catalogService.validate(valid));
+
+        Map<String, Object> invalid = JSON.parseObject(
+                "{\"4\":{\"class_type\":\"CheckpointLoaderSimple\",\"inputs\":{\"ckpt_name\":\"missing.safetensors\"}}}");
+        assertThrows(CustomException.class, () -> catalogService.validate(invalid));
+    }
+
+    /**
+     * 测试校验 - 刚上传的参考图不在上次刷新的输入目录列表中，也不被拒绝
+     */
+    @Test
+    void testValidate_UploadedImageSkipped() {
+        Map<String, Object> workflow = JSON.parseObject(String.format(LOAD_IMAGE, "ba7816bf.png"));
+
+        assertDoesNotThrow(() -> catalogService.validate(workflow));
+        assertFalse(ComfyuiCatalogServiceImpl.parseEnums(JSON.parseObject(OBJECT_INFO).getJSONObject("LoadImage")).containsKey("image"));
+    }
+}
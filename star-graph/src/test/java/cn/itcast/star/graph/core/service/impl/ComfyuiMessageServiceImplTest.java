@@ -0,0 +1,200 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiRequestDto;
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.comfyui.client.pojo.MessageBase;
+import cn.itcast.star.graph.core.service.RedisService;
+import cn.itcast.star.graph.core.service.RefundCompensationService;
+import cn.itcast.star.graph.core.service.ResultStoreService;
+import cn.itcast.star.graph.core.service.UserFundRecordService;
+import cn.itcast.star.graph.core.service.UserResultService;
+import cn.itcast.star.graph.core.service.WsNoticeService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.redisson.api.RSemaphore;
+import org.redisson.api.RedissonClient;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ComfyuiMessageServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ComfyuiMessageServiceImplTest {
+
+    @Mock
+    private WsNoticeService wsNoticeService;
+
+    @Mock
+    private RedisService redisService;
+
+    @Mock
+    private ResultStoreService resultStoreService;
+
+    @Mock
+    private RedissonClient redissonClient;
+
+    @Mock
+    private UserFundRecordService userFundRecordService;
+
+    @Mock
+    private UserResultService userResultService;
+
+    @Mock
+    private RefundCompensationService refundCompensationService;
+
+    @InjectMocks
+    private ComfyuiMessageServiceImpl messageService;
+
+    /**
+     * 测试预览图推送 - 小于最长边的预览图去掉帧头后原样推送给当前任务的客户端，间隔内的帧丢弃
+     */
+    @Test
+    void testHandlePreview_MappedAndThrottled() throws IOException {
+        byte[] small = png(64, 48);
+        when(redisService.getStartedTask("p1")).thenReturn(task("client-1"));
+        messageService.trackExecution(executing("p1", "3"));
+
+        messageService.handlePreview(frame(1, 2, small));
+        messageService.handlePreview(frame(1, 2, small));
+
+        verify(wsNoticeService, timeout(2000)).sendPreviewToUser(eq("client-1"), aryEq(small), eq("image/png"));
+        verify(wsNoticeService, after(300).times(1)).sendPreviewToUser(anyString(), any(), anyString());
+    }
+
+    /**
+     * 测试大尺寸预览图 - 缩小到最长边256后以JPEG推送
+     */
+    @Test
+    void testHandlePreview_Downscaled() throws IOException {
+        when(redisService.getStartedTask("p1")).thenReturn(task("client-1"));
+        messageService.trackExecution(executing("p1", "3"));
+
+        messageService.handlePreview(frame(1, 2, png(1024, 512)));
+
+        ArgumentCaptor<byte[]> image = ArgumentCaptor.forClass(byte[].class);
+        verify(wsNoticeService, timeout(2000)).sendPreviewToUser(eq("client-1"), image.capture(), eq("image/jpeg"));
+        BufferedImage scaled = ImageIO.read(new ByteArrayInputStream(image.getValue()));
+        assertEquals(256, scaled.getWidth());
+        assertEquals(128, scaled.getHeight());
+    }
+
+    /**
+     * 测试无关联任务、任务结束、非预览事件时不推送
+     */
+    @Test
+    void testHandlePreview_Dropped() {
+        messageService.handlePreview(frame(1, 1, new byte[]{1}));
+
+        when(redisService.getStartedTask("p1")).thenReturn(task("client-1"));
+        messageService.trackExecution(executing("p1", "3"));
+        messageService.handlePreview(frame(2, 1, new byte[]{1}));
+        messageService.trackExecution(executing("p1", null));
+        messageService.handlePreview(frame(1, 1, new byte[]{1}));
+
+        verify(wsNoticeService, never()).sendPreviewToUser(anyString(), any(), anyString());
+    }
+
+    /**
+     * 测试WebSocket回传结果 - 输出节点的图片写入结果存储，执行结束后完成任务
+     */
+    @Test
+    void testWsOutput_StoredAndCompleted() {
+        ComfyuiTask task = task("client-1");
+        task.setUserId(1L);
+        task.setSize(1);
+        task.setComfyuiRequestDto(new ComfyuiRequestDto("c", Map.of("9", Map.of("class_type", "SaveImageWebsocket"))));
+        when(redisService.getStartedTask("p1")).thenReturn(task);
+        when(redisService.claimStartedTask("p1")).thenReturn(task);
+        when(resultStoreService.storeAsync(any(), eq("png"))).thenReturn(CompletableFuture.completedFuture("/api/1.0/images/a.png"));
+        when(resultStoreService.publicUrlOf("/api/1.0/images/a.png")).thenReturn("http://localhost:8080/api/1.0/images/a.png");
+        when(redissonClient.getSemaphore(anyString())).thenReturn(mock(RSemaphore.class));
+
+        messageService.trackExecution(executing("p1", "9"));
+        messageService.handlePreview(frame(1, 2, new byte[]{1, 2}));
+        messageService.trackExecution(executing("p1", null));
+
+        verify(resultStoreService).storeAsync(aryEq(new byte[]{1, 2}), eq("png"));
+        verify(wsNoticeService, never()).sendPreviewToUser(anyString(), any(), anyString());
+        verify(userFundRecordService).pointsDeduction(1L, 1);
+        verify(userResultService).saveList(List.of("/api/1.0/images/a.png"), 1L);
+        verify(wsNoticeService).sendTaskEvent(eq(task), argThat(event -> List.of("http://localhost:8080/api/1.0/images/a.png").equals(event.get("urls"))));
+        verify(redisService).claimStartedTask("p1");
+    }
+
+    /**
+     * 测试重复到达的结束事件 - 只有取出任务记录的一次释放信号量
+     */
+    @Test
+    void testExecutionError_Redelivered() {
+        ComfyuiTask task = task("client-1");
+        task.setUserId(1L);
+        task.setSize(1);
+        RSemaphore semaphore = mock(RSemaphore.class);
+        when(redissonClient.getSemaphore(anyString())).thenReturn(semaphore);
+        when(redisService.claimStartedTask("p1")).thenReturn(task, (ComfyuiTask) null);
+
+        messageService.handleMessage(executionError("p1"));
+        messageService.handleMessage(executionError("p1"));
+
+        verify(semaphore, times(1)).release();
+        verify(refundCompensationService, times(1)).safeRefund(eq(1L), eq(1), eq("p1"), anyString());
+        verify(wsNoticeService, times(1)).sendTaskEvent(eq(task), any());
+    }
+
+    private ComfyuiTask task(String clientId) {
+        ComfyuiTask task = new ComfyuiTask();
+        task.setWsClientId(clientId);
+        return task;
+    }
+
+    private MessageBase executionError(String promptId) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("prompt_id", promptId);
+        MessageBase messageBase = new MessageBase();
+        messageBase.setType("execution_error");
+        messageBase.setData(data);
+        return messageBase;
+    }
+
+    private MessageBase executing(String promptId, String node) {
+        HashMap<String, Object> data = new HashMap<>();
+        data.put("prompt_id", promptId);
+        data.put("node", node);
+        MessageBase messageBase = new MessageBase();
+        messageBase.setType("executing");
+        messageBase.setData(data);
+        return messageBase;
+    }
+
+    private byte[] png(int width, int height) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private ByteBuffer frame(int eventType, int imageType, byte[] image) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + image.length);
+        buffer.putInt(eventType).putInt(imageType).put(image);
+        buffer.flip();
+        return buffer;
+    }
+}
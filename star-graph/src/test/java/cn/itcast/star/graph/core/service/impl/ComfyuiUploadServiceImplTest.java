@@ -0,0 +1,136 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import cn.itcast.star.graph.upstream.UpstreamProperties;
+import okhttp3.MediaType;
+import okhttp3.MultipartBody;
+import okhttp3.RequestBody;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.mock.web.MockMultipartFile;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ComfyuiUploadServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ComfyuiUploadServiceImplTest {
+
+    /** "abc"的SHA-256 */
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+    private static final String UPLOADED_KEY = "comfyui_upload:http://127.0.0.1:8188/:" + ABC_SHA256;
+
+    @Mock
+    private ComfyuiApi comfyuiApi;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private ComfyuiUploadServiceImpl uploadService;
+
+    @BeforeEach
+    void setUp() {
+        UpstreamProperties properties = new UpstreamProperties();
+        properties.getComfyui().setBaseUrl("http://127.0.0.1:8188/");
+        uploadService.upstreamProperties = properties;
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    /**
+     * 测试相同图片去重 - 已上传且ComfyUI上仍存在时直接复用
+     */
+    @Test
+    void testUploadImage_Deduplicated() throws IOException {
+        when(valueOperations.get(UPLOADED_KEY)).thenReturn(ABC_SHA256 + ".png");
+        mockView(Response.success(ResponseBody.create("abc", MediaType.get("image/png"))));
+
+        String name = uploadService.uploadImage(image());
+
+        assertEquals(ABC_SHA256 + ".png", name);
+        verify(comfyuiApi).getView(ABC_SHA256 + ".png", "input", "");
+        verify(comfyuiApi, never()).uploadImage(any(), any());
+    }
+
+    /**
+     * 测试上传记录仍在但ComfyUI已清理文件 - 重新上传并更新记录
+     */
+    @Test
+    void testUploadImage_CachedButMissing() throws IOException {
+        when(valueOperations.get(UPLOADED_KEY)).thenReturn("sub/" + ABC_SHA256 + ".png");
+        mockView(Response.error(404, ResponseBody.create("", MediaType.get("text/plain"))));
+        mockUpload();
+
+        String name = uploadService.uploadImage(image());
+
+        assertEquals(ABC_SHA256 + ".png", name);
+        verify(comfyuiApi).getView(ABC_SHA256 + ".png", "input", "sub");
+        verify(stringRedisTemplate).delete(UPLOADED_KEY);
+        verify(valueOperations).set(UPLOADED_KEY, ABC_SHA256 + ".png", Duration.ofDays(1));
+    }
+
+    /**
+     * 测试流式请求体 - 以哈希命名，内容从文件流写出，不读取整个字节数组
+     */
+    @Test
+    void testUploadImage_StreamingBody() throws IOException {
+        MockMultipartFile file = spy(image());
+        ArgumentCaptor<MultipartBody.Part> part = mockUpload();
+
+        uploadService.uploadImage(file);
+
+        RequestBody body = part.getValue().body();
+        assertEquals(3, body.contentLength());
+        assertEquals("image/png", String.valueOf(body.contentType()));
+        Buffer sink = new Buffer();
+        body.writeTo(sink);
+        assertEquals("abc", sink.readUtf8());
+        assertTrue(part.getValue().headers().get("Content-Disposition").contains("filename=\"" + ABC_SHA256 + ".png\""));
+        verify(file, never()).getBytes();
+    }
+
+    private MockMultipartFile image() {
+        return new MockMultipartFile("image", "a.png", "image/png", "abc".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockView(Response<ResponseBody> response) throws IOException {
+        Call<ResponseBody> call = mock(Call.class);
+        when(call.execute()).thenReturn(response);
+        when(comfyuiApi.getView(anyString(), eq("input"), anyString())).thenReturn(call);
+    }
+
+    @SuppressWarnings("unchecked")
+    private ArgumentCaptor<MultipartBody.Part> mockUpload() throws IOException {
+        HashMap<String, Object> result = new HashMap<>();
+        result.put("name", ABC_SHA256 + ".png");
+        result.put("subfolder", "");
+        Call<HashMap> call = mock(Call.class);
+        when(call.execute()).thenReturn(Response.success(result));
+        ArgumentCaptor<MultipartBody.Part> part = ArgumentCaptor.forClass(MultipartBody.Part.class);
+        when(comfyuiApi.uploadImage(part.capture(), any(RequestBody.class))).thenReturn(call);
+        return part;
+    }
+}
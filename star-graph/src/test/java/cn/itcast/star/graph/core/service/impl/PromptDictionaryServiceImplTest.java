@@ -0,0 +1,109 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.pojo.TagTranslateResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PromptDictionaryServiceImpl 单元测试
+ */
+class PromptDictionaryServiceImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private PromptDictionaryServiceImpl dictionaryService;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        dictionaryService = new PromptDictionaryServiceImpl();
+        dictionaryService.meterRegistry = meterRegistry;
+        dictionaryService.init();
+    }
+
+    /**
+     * 测试标签完全覆盖 - 直接由词典翻译
+     */
+    @Test
+    void testTranslateTags_FullyCovered() {
+        TagTranslateResult result = dictionaryService.translateTags("美女, 长发，海边");
+
+        assertTrue(result.isFullyCovered());
+        assertEquals(3, result.getTotalTags());
+        assertEquals("beautiful woman, long hair, seaside", result.getText());
+    }
+
+    /**
+     * 测试空格分隔的整词与英文片段保留
+     */
+    @Test
+    void testTranslateTags_WholeWordsAndAscii() {
+        TagTranslateResult result = dictionaryService.translateTags("8k, 红色 连衣裙, 双马尾");
+
+        assertTrue(result.isFullyCovered());
+        assertEquals("8k, red dress, twintails", result.getText());
+    }
+
+    /**
+     * 测试不做拆字匹配 - 词条拼接而成的短语不算覆盖
+     */
+    @Test
+    void testTranslateTags_NoSplitMatch() {
+        TagTranslateResult result = dictionaryService.translateTags("红色的连衣裙");
+
+        assertFalse(result.isFullyCovered());
+        assertEquals(0, result.getCoveredTags());
+    }
+
+    /**
+     * 测试自由文本 - 未完全覆盖，需回退Ollama
+     */
+    @Test
+    void testTranslateTags_PartiallyCovered() {
+        TagTranslateResult result = dictionaryService.translateTags("美女, 一个女孩在雨中奔跑");
+
+        assertFalse(result.isFullyCovered());
+        assertNull(result.getText());
+        assertEquals(1, result.getCoveredTags());
+        assertEquals(0.5, result.getCoverage());
+    }
+
+    /**
+     * 测试外部词典 - 单字词条只匹配完整的单字标签，不会覆盖自由文本
+     */
+    @Test
+    void testExternalDict_SingleCharEntry() throws IOException {
+        Path dict = tempDir.resolve("dict.txt");
+        Files.writeString(dict, "蒸汽朋克=steampunk\n跑=run\n", StandardCharsets.UTF_8);
+        dictionaryService.externalDictPath = dict.toString();
+        dictionaryService.reload();
+
+        assertEquals("steampunk, run", dictionaryService.translateTags("蒸汽朋克, 跑").getText());
+        assertFalse(dictionaryService.translateTags("女孩在雨中跑").isFullyCovered());
+    }
+
+    /**
+     * 测试覆盖统计 - 注册为Micrometer指标
+     */
+    @Test
+    void testMetrics() {
+        dictionaryService.translateTags("美女, 长发");
+        dictionaryService.translateTags("美女, 一个女孩在雨中奔跑");
+
+        assertEquals(2, meterRegistry.get("prompt.dict.prompts").functionCounter().count());
+        assertEquals(1, meterRegistry.get("prompt.dict.prompts.covered").functionCounter().count());
+        assertEquals(4, meterRegistry.get("prompt.dict.tags").functionCounter().count());
+        assertEquals(3, meterRegistry.get("prompt.dict.tags.covered").functionCounter().count());
+    }
+}
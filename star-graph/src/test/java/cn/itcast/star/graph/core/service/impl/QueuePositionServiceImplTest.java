@@ -0,0 +1,89 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.service.RedisService;
+import cn.itcast.star.graph.core.service.WsNoticeService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * QueuePositionServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class QueuePositionServiceImplTest {
+
+    @Mock
+    private RedisService redisService;
+
+    @Mock
+    private WsNoticeService wsNoticeService;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @InjectMocks
+    private QueuePositionServiceImpl queuePositionService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    /**
+     * 测试无变化标记 - 不读取队列
+     */
+    @Test
+    void testPushChanges_NotChanged() {
+        when(redisService.consumeQueueChanged()).thenReturn(false);
+
+        assertEquals(0, queuePositionService.pushChanges());
+
+        verify(redisService, never()).getQueueSnapshot(anyInt());
+        verifyNoInteractions(wsNoticeService);
+    }
+
+    /**
+     * 测试只推送序号变化的任务，并清理已出队任务的记录
+     */
+    @Test
+    void testPushChanges_OnlyChanged() {
+        when(redisService.consumeQueueChanged()).thenReturn(true);
+        when(redisService.getQueueSnapshot(anyInt())).thenReturn(List.of(task("a", 2), task("b", 3)));
+        Map<Object, Object> previous = new HashMap<>();
+        previous.put("a", "2");
+        previous.put("b", "4");
+        previous.put("gone", "1");
+        when(hashOperations.entries("QUEUE_POSITIONS")).thenReturn(previous);
+
+        assertEquals(1, queuePositionService.pushChanges());
+
+        verify(wsNoticeService, times(1)).sendTaskEvent(argThat(t -> "b".equals(t.getId())),
+                argThat(event -> "position".equals(event.get("type")) && Long.valueOf(3L).equals(event.get("value"))));
+        verify(hashOperations).putAll("QUEUE_POSITIONS", Map.of("b", "3"));
+        verify(hashOperations).delete("QUEUE_POSITIONS", "gone");
+    }
+
+    private ComfyuiTask task(String id, long index) {
+        ComfyuiTask task = new ComfyuiTask("client-" + id, null);
+        task.setId(id);
+        task.setIndex(index);
+        return task;
+    }
+}
@@ -0,0 +1,124 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import com.alibaba.fastjson2.JSON;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * RedisServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class RedisServiceImplTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private SetOperations<String, String> setOperations;
+
+    @InjectMocks
+    private RedisServiceImpl redisService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        lenient().when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(stringRedisTemplate.opsForSet()).thenReturn(setOperations);
+    }
+
+    /**
+     * 测试队列快照 - 执行数取自promptId集合和临时占位符集合的SCARD，不扫描Key
+     */
+    @Test
+    void testGetQueueSnapshot_RunningCountWithoutKeys() {
+        when(zSetOperations.range("DISTRIBUTED_QUEUE", 0, 9)).thenReturn(new LinkedHashSet<>(List.of("a", "b")));
+        when(valueOperations.multiGet(List.of("task_a", "task_b")))
+                .thenReturn(List.of(JSON.toJSONString(task("a")), JSON.toJSONString(task("b"))));
+        when(setOperations.size("RUN_TASK_PROMPT_IDS")).thenReturn(2L);
+        when(setOperations.size("RUN_TASK_TEMP_IDS")).thenReturn(1L);
+
+        List<ComfyuiTask> tasks = redisService.getQueueSnapshot(10);
+
+        assertEquals(List.of(4L, 5L), tasks.stream().map(ComfyuiTask::getIndex).toList());
+        verify(stringRedisTemplate, never()).keys(anyString());
+    }
+
+    /**
+     * 测试已提交任务的排名 - 按promptId集合MGET匹配taskId
+     */
+    @Test
+    void testGetTaskRank_Started() {
+        when(zSetOperations.rank(eq("DISTRIBUTED_QUEUE"), anyString())).thenReturn(null);
+        when(setOperations.members("RUN_TASK_PROMPT_IDS")).thenReturn(Set.of("p1"));
+        when(valueOperations.multiGet(List.of("run_task_p1"))).thenReturn(List.of(JSON.toJSONString(task("a"))));
+
+        assertEquals(1L, redisService.getTaskRank("a"));
+        assertNull(redisService.getTaskRank("b"));
+        verify(stringRedisTemplate, never()).keys(anyString());
+    }
+
+    /**
+     * 测试临时占位符 - 弹出时加入集合，提交到ComfyUI后移出
+     */
+    @Test
+    void testTempPlaceholderSet() {
+        when(zSetOperations.size("DISTRIBUTED_QUEUE")).thenReturn(1L);
+        when(zSetOperations.popMin("DISTRIBUTED_QUEUE")).thenReturn(ZSetOperations.TypedTuple.of("a", 1.0));
+        when(valueOperations.get("task_a")).thenReturn(JSON.toJSONString(task("a")));
+
+        ComfyuiTask popped = redisService.popQueueTask();
+        verify(setOperations).add("RUN_TASK_TEMP_IDS", "temp_a");
+
+        when(stringRedisTemplate.delete("run_task_temp_a")).thenReturn(true);
+        redisService.addStartedTask("p1", popped);
+        verify(setOperations).add("RUN_TASK_PROMPT_IDS", "p1");
+        verify(setOperations).remove("RUN_TASK_TEMP_IDS", "temp_a");
+    }
+
+    /**
+     * 测试清理 - 任务记录已过期的集合成员被移除
+     */
+    @Test
+    void testGetStartedPromptIds_PruneExpired() {
+        when(setOperations.members("RUN_TASK_TEMP_IDS")).thenReturn(Set.of("temp_a"));
+        when(valueOperations.multiGet(List.of("run_task_temp_a"))).thenReturn(Arrays.asList((String) null));
+        when(setOperations.members("RUN_TASK_PROMPT_IDS")).thenReturn(Set.of("p1"));
+        when(valueOperations.multiGet(List.of("run_task_p1"))).thenReturn(List.of("{}"));
+
+        assertEquals(Set.of("p1"), redisService.getStartedPromptIds());
+        verify(setOperations).remove("RUN_TASK_TEMP_IDS", "temp_a");
+        verify(setOperations, never()).remove(eq("RUN_TASK_PROMPT_IDS"), any());
+    }
+
+    private ComfyuiTask task(String id) {
+        ComfyuiTask task = new ComfyuiTask();
+        task.setId(id);
+        task.setUserId(1L);
+        task.setSize(1);
+        return task;
+    }
+}
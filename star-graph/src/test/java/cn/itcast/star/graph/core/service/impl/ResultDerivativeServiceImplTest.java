@@ -0,0 +1,124 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.service.ResultStoreService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ResultDerivativeServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ResultDerivativeServiceImplTest {
+
+    private static final String LEGACY_URL = "http://comfyui:8188/view?filename=a.png&type=output";
+
+    @Mock
+    private ResultStoreService resultStoreService;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private ResultDerivativeServiceImpl resultDerivativeService;
+
+    /**
+     * 测试等比缩小 - 按最长边缩放，透明背景转为白色RGB
+     */
+    @Test
+    void testResize_KeepAspectRatio() {
+        BufferedImage source = new BufferedImage(1024, 512, BufferedImage.TYPE_INT_ARGB);
+
+        BufferedImage thumb = ResultDerivativeServiceImpl.resize(source, ResultDerivativeServiceImpl.THUMB_SIZE);
+
+        assertEquals(256, thumb.getWidth());
+        assertEquals(128, thumb.getHeight());
+        assertEquals(BufferedImage.TYPE_INT_RGB, thumb.getType());
+        assertEquals(0xFFFFFFFF, thumb.getRGB(0, 0));
+    }
+
+    /**
+     * 测试小图不放大
+     */
+    @Test
+    void testResize_NoUpscale() {
+        BufferedImage source = new BufferedImage(200, 300, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage display = ResultDerivativeServiceImpl.resize(source, ResultDerivativeServiceImpl.DISPLAY_SIZE);
+
+        assertEquals(200, display.getWidth());
+        assertEquals(300, display.getHeight());
+    }
+
+    /**
+     * 测试已标记失败的记录不再提交
+     */
+    @Test
+    void testGenerateAsync_SkipFailed() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(List.of("result_derivative_failed:1"))).thenReturn(Arrays.asList("1"));
+
+        resultDerivativeService.generateAsync(List.of(legacyResult(1L)));
+
+        verifyNoInteractions(resultStoreService);
+    }
+
+    /**
+     * 测试旧图片转存失败 - 记录失败标记，下次查询列表时跳过
+     */
+    @Test
+    void testGenerateAsync_LegacyIngestFailed() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(resultStoreService.keyOf(LEGACY_URL)).thenReturn(null);
+        when(resultStoreService.ingestAsync("a.png", "output", null)).thenReturn(
+                CompletableFuture.failedFuture(new CompletionException(new IllegalStateException("404 Not Found"))));
+
+        resultDerivativeService.generateAsync(List.of(legacyResult(1L)));
+
+        verify(valueOperations).set("result_derivative_failed:1", "1", 24, TimeUnit.HOURS);
+    }
+
+    /**
+     * 测试转存线程池已满 - 不记录失败标记，下次查询列表时重试
+     */
+    @Test
+    void testGenerateAsync_LegacyIngestRejected() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.multiGet(anyList())).thenReturn(Arrays.asList((String) null));
+        when(resultStoreService.keyOf(LEGACY_URL)).thenReturn(null);
+        when(resultStoreService.ingestAsync("a.png", "output", null)).thenReturn(
+                CompletableFuture.failedFuture(new RejectedExecutionException()));
+
+        resultDerivativeService.generateAsync(List.of(legacyResult(1L)));
+
+        verify(valueOperations, never()).set(anyString(), anyString(), anyLong(), any(TimeUnit.class));
+    }
+
+    private UserResult legacyResult(Long id) {
+        UserResult result = new UserResult();
+        result.setId(id);
+        result.setUrl(LEGACY_URL);
+        return result;
+    }
+}
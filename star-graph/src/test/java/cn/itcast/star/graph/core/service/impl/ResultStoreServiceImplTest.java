@@ -0,0 +1,113 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.api.ComfyuiApi;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * ResultStoreServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class ResultStoreServiceImplTest {
+
+    /** "abc"的SHA-256 */
+    private static final String ABC_SHA256 = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    @TempDir
+    Path tempDir;
+
+    @Mock
+    private ComfyuiApi comfyuiApi;
+
+    @InjectMocks
+    private ResultStoreServiceImpl resultStoreService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        resultStoreService.root = tempDir.toString();
+        resultStoreService.publicUrl = "http://cdn.example.com/images/";
+        resultStoreService.init();
+    }
+
+    /**
+     * 测试内容寻址 - 按SHA-256命名并分目录存储
+     */
+    @Test
+    void testIngest_ContentAddressed() throws IOException {
+        mockView("abc");
+
+        String key = resultStoreService.ingest("ComfyUI_00001_.png", "output", "");
+
+        assertEquals(ABC_SHA256 + ".png", key);
+        Path path = resultStoreService.resolve(key);
+        assertEquals(tempDir.resolve("ba").resolve(key), path);
+        assertEquals("abc", Files.readString(path));
+    }
+
+    /**
+     * 测试去重 - 相同内容只保存一份，且不残留临时文件
+     */
+    @Test
+    void testIngest_Deduplicated() throws IOException {
+        mockView("abc");
+
+        String first = resultStoreService.ingest("ComfyUI_00001_.png", "output", "");
+        String second = resultStoreService.ingest("ComfyUI_00002_.png", "output", "");
+
+        assertEquals(first, second);
+        try (Stream<Path> files = Files.walk(tempDir)) {
+            assertEquals(1, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    /**
+     * 测试非法Key - 防止路径穿越
+     */
+    @Test
+    void testResolve_InvalidKey() {
+        assertNull(resultStoreService.resolve("../application.yml"));
+        assertNull(resultStoreService.resolve(ABC_SHA256 + ".png"));
+    }
+
+    /**
+     * 测试地址转换 - 数据库保存站内路径，返回前端时拼接访问前缀，旧记录的完整URL同样可解析
+     */
+    @Test
+    void testUrl_StoredPathAndPublicUrl() {
+        String key = ABC_SHA256 + ".png";
+
+        assertEquals("/api/1.0/images/" + key, resultStoreService.urlOf(key));
+        assertEquals(key, resultStoreService.keyOf("/api/1.0/images/" + key));
+        assertEquals(key, resultStoreService.keyOf("http://localhost:8080/api/1.0/images/" + key));
+        assertEquals("http://cdn.example.com/images/" + key, resultStoreService.publicUrlOf("/api/1.0/images/" + key));
+        assertEquals("http://comfyui:8188/view?filename=a.png", resultStoreService.publicUrlOf("http://comfyui:8188/view?filename=a.png"));
+        assertNull(resultStoreService.publicUrlOf(null));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockView(String content) throws IOException {
+        when(comfyuiApi.getView(anyString(), anyString(), anyString())).thenAnswer(invocation -> {
+            Call<ResponseBody> call = mock(Call.class);
+            when(call.execute()).thenReturn(Response.success(ResponseBody.create(content, MediaType.get("image/png"))));
+            return call;
+        });
+    }
+}
@@ -0,0 +1,92 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TaskEventLogServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TaskEventLogServiceImplTest {
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    @InjectMocks
+    private TaskEventLogServiceImpl eventLogService;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+        lenient().when(stringRedisTemplate.opsForHash()).thenReturn(hashOperations);
+    }
+
+    /**
+     * 测试追加事件 - 存储的JSON不含序号，事件带上任务ID和脚本分配的序号
+     */
+    @Test
+    void testAppend_AssignsSeq() {
+        when(stringRedisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class))).thenReturn(7L);
+        Map<String, Object> event = new HashMap<>();
+        event.put("type", "progress");
+        event.put("seq", 0);
+        event.put("prompt", "\"seq\":0");
+
+        long seq = eventLogService.append("task-1", 1L, event, 100);
+
+        verify(stringRedisTemplate).execute(any(RedisScript.class), anyList(), eq("1"),
+                argThat(json -> !json.toString().contains("\"seq\":") && json.toString().contains("\"prompt\":\"\\\"seq\\\":0\"")),
+                eq("200"), anyString(), eq("100"));
+        assertEquals(7L, seq);
+        assertEquals(7L, event.get("seq"));
+        assertEquals("task-1", event.get("taskId"));
+    }
+
+    /**
+     * 测试按序号读取 - 序号取自member前缀并写回事件
+     */
+    @Test
+    void testReadAfter() {
+        LinkedHashSet<String> members = new LinkedHashSet<>(List.of(
+                "3|{\"type\":\"progress\"}", "4|{\"type\":\"imageResult\"}"));
+        when(zSetOperations.rangeByScore("task_events:task-1", 3, Double.POSITIVE_INFINITY)).thenReturn(members);
+
+        List<String> events = eventLogService.readAfter("task-1", 2);
+
+        assertEquals(List.of("{\"type\":\"progress\",\"seq\":3}", "{\"type\":\"imageResult\",\"seq\":4}"), events);
+    }
+
+    /**
+     * 测试任务所属用户 - 日志过期时返回null
+     */
+    @Test
+    void testOwnerOf() {
+        when(hashOperations.get("task_events_meta:task-1", "user")).thenReturn("42");
+
+        assertEquals(42L, eventLogService.ownerOf("task-1"));
+        assertNull(eventLogService.ownerOf("task-2"));
+    }
+}
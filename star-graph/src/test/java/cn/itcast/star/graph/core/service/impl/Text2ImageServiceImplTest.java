@@ -10,7 +10,10 @@ import cn.itcast.star.graph.core.pojo.User;
 import cn.itcast.star.graph.core.pojo.UserResult;
 import cn.itcast.star.graph.core.service.RedisService;
 import cn.itcast.star.graph.core.service.UserFundRecordService;
+import cn.itcast.star.graph.core.service.UserResultCacheService;
 import cn.itcast.star.graph.core.service.UserResultService;
+import cn.itcast.star.graph.core.service.WsNoticeService;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
 import cn.itcast.star.graph.core.utils.UserUtils;
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
@@ -24,7 +27,10 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
 
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -47,12 +53,21 @@ class Text2ImageServiceImplTest {
     @Mock
     private UserResultService userResultService;
 
+    @Mock
+    private WsNoticeService wsNoticeService;
+
+    @Mock
+    private UserResultCacheService userResultCacheService;
+
     @Mock
     private StringRedisTemplate stringRedisTemplate;
 
     @Mock
     private ValueOperations<String, String> valueOperations;
 
+    @Mock
+    private ZSetOperations<String, String> zSetOperations;
+
     @InjectMocks
     private Text2ImageServiceImpl text2ImageService;
 
@@ -72,8 +87,8 @@ class Text2ImageServiceImplTest {
         mockTask.setSize(10);
         mockTask.setIndex(5L);
 
-        // Mock StringRedisTemplate
-        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+        // Mock StringRedisTemplate（列表查询和参数校验不加锁，不会用到）
+        lenient().when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
     }
 
     /**
@@ -223,10 +238,10 @@ class Text2ImageServiceImplTest {
             when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), any()))
                     .thenReturn(true);
 
-            // Mock 当前排名
-            when(redisService.getTaskRank("task123"))
-                    .thenReturn(5L)  // 当前排名
-                    .thenReturn(2L); // 插队后排名
+            // Mock 当前队列排名（从0开始）和插队后的序号
+            when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+            when(zSetOperations.rank("DISTRIBUTED_QUEUE", "task123")).thenReturn(4L);
+            when(redisService.getTaskRank("task123")).thenReturn(2L);
 
             when(redisService.getQueueTask("task123")).thenReturn(mockTask);
             when(redisService.increasePriority("task123", 10.0)).thenReturn(true);
@@ -238,6 +253,8 @@ class Text2ImageServiceImplTest {
             assertEquals(2L, newRank);
             verify(redisService).increasePriority("task123", 10.0);
             verify(userFundRecordService).directDeduction(1L, 5);
+            verify(wsNoticeService).sendTaskEvent(eq(mockTask), argThat(event ->
+                    "position".equals(event.get("type")) && Long.valueOf(2L).equals(event.get("value"))));
         }
     }
 
@@ -256,8 +273,9 @@ class Text2ImageServiceImplTest {
             when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), any()))
                     .thenReturn(true);
 
-            // Mock 当前排名为1
-            when(redisService.getTaskRank("task123")).thenReturn(1L);
+            // Mock 当前已是队列第一名
+            when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+            when(zSetOperations.rank("DISTRIBUTED_QUEUE", "task123")).thenReturn(0L);
 
             // When & Then
             CustomException exception = assertThrows(CustomException.class, () -> {
@@ -283,7 +301,8 @@ class Text2ImageServiceImplTest {
             when(valueOperations.setIfAbsent(anyString(), anyString(), anyLong(), any()))
                     .thenReturn(true);
 
-            when(redisService.getTaskRank("task123")).thenReturn(5L);
+            when(stringRedisTemplate.opsForZSet()).thenReturn(zSetOperations);
+            when(zSetOperations.rank("DISTRIBUTED_QUEUE", "task123")).thenReturn(4L);
             when(redisService.getQueueTask("task123")).thenReturn(mockTask);
             when(redisService.increasePriority("task123", 10.0)).thenReturn(false);
 
@@ -292,18 +311,19 @@ class Text2ImageServiceImplTest {
                 text2ImageService.increasePriority(reqDto);
             });
 
-            assertEquals("提升优先级失败", exception.getMessage());
+            assertEquals("提升优先级失败，积分已退还", exception.getMessage());
+            verify(userFundRecordService).directRefund(1L, 5);
         }
     }
 
     /**
-     * 测试获取用户图片列表 - 成功场景
+     * 测试获取用户图片列表 - 成功场景（第二页及之后查询数据库）
      */
     @Test
     void testGetUserImageList_Success() {
         // Given
         Text2ImageListReqDto reqDto = new Text2ImageListReqDto();
-        reqDto.setPageNum(1);
+        reqDto.setPageNum(2);
         reqDto.setPageSize(10);
 
         UserResult result1 = new UserResult();
@@ -316,23 +336,20 @@ class Text2ImageServiceImplTest {
 
         List<UserResult> resultList = Arrays.asList(result1, result2);
 
-        Page<UserResult> mockPage = new Page<>(1, 10);
-        mockPage.setRecords(resultList);
-        mockPage.setTotal(2);
-
         try (MockedStatic<UserUtils> userUtilsMock = mockStatic(UserUtils.class)) {
             userUtilsMock.when(UserUtils::getUser).thenReturn(mockUser);
 
-            when(userResultService.page(any(Page.class), any(LambdaQueryWrapper.class)))
-                    .thenReturn(mockPage);
+            when(userResultService.listPage(1L, 2, 10)).thenReturn(resultList);
+            when(userResultService.countOf(1L)).thenReturn(12L);
 
             // When
             PageResult<List<UserResult>> result = text2ImageService.getUserImageList(reqDto);
 
-            // Then
+            // Then - 合并查询热表和归档表，总数与第一页一样读取计数器
             assertNotNull(result);
-            assertEquals(2, result.getTotal());
+            assertEquals(12, result.getTotal());
             assertEquals(2, result.getData().size());
+            verify(userResultService, never()).page(any(Page.class), any(LambdaQueryWrapper.class));
         }
     }
 
@@ -346,24 +363,60 @@ class Text2ImageServiceImplTest {
         reqDto.setPageNum(0);  // 无效
         reqDto.setPageSize(100); // 超过最大值
 
-        Page<UserResult> mockPage = new Page<>(1, 10);
-        mockPage.setRecords(Arrays.asList());
-        mockPage.setTotal(0);
-
         try (MockedStatic<UserUtils> userUtilsMock = mockStatic(UserUtils.class)) {
             userUtilsMock.when(UserUtils::getUser).thenReturn(mockUser);
 
-            when(userResultService.page(any(Page.class), any(LambdaQueryWrapper.class)))
-                    .thenReturn(mockPage);
+            when(userResultCacheService.getFirstPage(eq(1L), eq(10), any()))
+                    .thenReturn(Arrays.asList());
+            when(userResultService.countOf(1L)).thenReturn(0L);
 
             // When
             PageResult<List<UserResult>> result = text2ImageService.getUserImageList(reqDto);
 
-            // Then - 参数应该被修正
+            // Then - 参数应该被修正，第一页读取缓存而不分页查询数据库
             assertNotNull(result);
-            verify(userResultService).page(argThat(page -> 
-                page.getCurrent() == 1 && page.getSize() == 10
-            ), any(LambdaQueryWrapper.class));
+            assertEquals(0, result.getTotal());
+            verify(userResultService, never()).page(any(Page.class), any(LambdaQueryWrapper.class));
+        }
+    }
+
+    /**
+     * 测试游标分页 - 多查一条判断下一页，游标可解析回最后一条记录
+     */
+    @Test
+    void testGetUserImageList_Cursor() {
+        // Given
+        Text2ImageListReqDto reqDto = new Text2ImageListReqDto();
+        reqDto.setPageSize(2);
+        reqDto.setCursor("");
+
+        LocalDateTime now = LocalDateTime.of(2024, 10, 18, 12, 0, 0);
+        UserResult result1 = new UserResult();
+        result1.setId(3L);
+        result1.setCreatedTime(now);
+        UserResult result2 = new UserResult();
+        result2.setId(2L);
+        result2.setCreatedTime(now);
+        UserResult result3 = new UserResult();
+        result3.setId(1L);
+        result3.setCreatedTime(now.minusSeconds(1));
+
+        try (MockedStatic<UserUtils> userUtilsMock = mockStatic(UserUtils.class)) {
+            userUtilsMock.when(UserUtils::getUser).thenReturn(mockUser);
+            when(userResultCacheService.getFirstPage(eq(1L), eq(3), any()))
+                    .thenReturn(new ArrayList<>(Arrays.asList(result1, result2, result3)));
+
+            // When
+            PageResult<List<UserResult>> result = text2ImageService.getUserImageList(reqDto);
+
+            // Then - 未请求总数时不统计
+            assertEquals(2, result.getData().size());
+            assertEquals(-1, result.getTotal());
+            HistoryCursor cursor = HistoryCursor.decode(result.getNextCursor());
+            assertEquals(2L, cursor.getId());
+            assertEquals(now, cursor.getCreatedTime());
+            verify(userResultService, never()).countOf(anyLong());
+            verify(userResultService, never()).page(any(Page.class), any(LambdaQueryWrapper.class));
         }
     }
 }
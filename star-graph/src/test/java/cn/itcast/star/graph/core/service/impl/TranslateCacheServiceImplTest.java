@@ -0,0 +1,119 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.hutool.crypto.SecureUtil;
+import cn.itcast.star.graph.core.resilience.UpstreamRejectedException;
+import cn.itcast.star.graph.core.service.OllamaService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * TranslateCacheServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class TranslateCacheServiceImplTest {
+
+    private static final Duration CACHE_TTL = Duration.ofMinutes(10);
+
+    @Mock
+    private OllamaService ollamaService;
+
+    @Mock
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Mock
+    private ValueOperations<String, String> valueOperations;
+
+    @InjectMocks
+    private TranslateCacheServiceImpl translateCacheService;
+
+    @BeforeEach
+    void setUp() {
+        when(stringRedisTemplate.opsForValue()).thenReturn(valueOperations);
+    }
+
+    @AfterEach
+    void tearDown() {
+        translateCacheService.shutdown();
+    }
+
+    /**
+     * 测试缓存命中 - 不调用Ollama
+     */
+    @Test
+    void testTranslate_CacheHit() {
+        when(valueOperations.get(cacheKey("红色连衣裙"))).thenReturn("red dress");
+
+        assertEquals("red dress", translateCacheService.translate(1L, "红色连衣裙"));
+        verifyNoInteractions(ollamaService);
+    }
+
+    /**
+     * 测试同步翻译 - 译文写入缓存，降级返回的原文不写缓存
+     */
+    @Test
+    void testTranslate_UntranslatedNotCached() {
+        when(ollamaService.translate("红色连衣裙")).thenReturn("red dress");
+        when(ollamaService.translate("双马尾")).thenReturn("双马尾");
+
+        assertEquals("red dress", translateCacheService.translate(1L, "红色连衣裙"));
+        assertEquals("双马尾", translateCacheService.translate(1L, "双马尾"));
+
+        verify(valueOperations).set(cacheKey("红色连衣裙"), "red dress", CACHE_TTL);
+        verify(valueOperations, never()).set(eq(cacheKey("双马尾")), anyString(), any(Duration.class));
+    }
+
+    /**
+     * 测试预翻译 - 防抖后译文写入缓存；Ollama熔断或返回原文时不写缓存
+     */
+    @Test
+    void testPreTranslate_OnlyTranslatedCached() {
+        when(ollamaService.translateAsync("红色连衣裙"))
+                .thenReturn(CompletableFuture.failedFuture(new UpstreamRejectedException("Ollama熔断中")));
+        when(ollamaService.translateAsync("双马尾")).thenReturn(CompletableFuture.completedFuture("双马尾"));
+        when(ollamaService.translateAsync("8k")).thenReturn(CompletableFuture.completedFuture("8k, best quality"));
+
+        translateCacheService.preTranslate(1L, "propmt", "红色连衣裙");
+        translateCacheService.preTranslate(1L, "reverse", "双马尾");
+        translateCacheService.preTranslate(2L, "propmt", "8k");
+
+        // 防抖定时器在同一线程上按提交顺序执行，最后一条写入缓存时前两条已处理完
+        verify(valueOperations, timeout(2000)).setIfAbsent(cacheKey(2L, "8k"), "8k, best quality", CACHE_TTL);
+        verify(valueOperations, times(1)).setIfAbsent(anyString(), anyString(), any(Duration.class));
+    }
+
+    /**
+     * 测试预翻译防抖 - 同一字段连续输入只翻译最后的文本
+     */
+    @Test
+    void testPreTranslate_Debounce() {
+        when(ollamaService.translateAsync("红色连衣裙")).thenReturn(CompletableFuture.completedFuture("red dress"));
+
+        translateCacheService.preTranslate(1L, "propmt", "红色");
+        translateCacheService.preTranslate(1L, "propmt", "红色连衣裙");
+
+        verify(valueOperations, timeout(2000)).setIfAbsent(cacheKey("红色连衣裙"), "red dress", CACHE_TTL);
+        verify(ollamaService, never()).translateAsync("红色");
+    }
+
+    private String cacheKey(String text) {
+        return cacheKey(1L, text);
+    }
+
+    private String cacheKey(Long userId, String text) {
+        return "translate_cache:" + userId + ":" + SecureUtil.md5(text);
+    }
+}
@@ -0,0 +1,64 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.mapper.UserResultArchiveMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserResultArchiveServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class UserResultArchiveServiceImplTest {
+
+    private static final LocalDateTime CUTOFF = LocalDateTime.of(2024, 7, 20, 0, 0, 0);
+
+    @Mock
+    private UserResultArchiveMapper userResultArchiveMapper;
+
+    @InjectMocks
+    private UserResultArchiveServiceImpl archiveService;
+
+    /**
+     * 测试归档一批 - 先复制到归档表再从热表删除
+     */
+    @Test
+    void testArchiveChunk() {
+        when(userResultArchiveMapper.selectColdIds(CUTOFF, 500)).thenReturn(List.of(1L, 2L));
+        when(userResultArchiveMapper.copyToArchive(List.of(1L, 2L))).thenReturn(2);
+        when(userResultArchiveMapper.deleteFromHot(List.of(1L, 2L))).thenReturn(2);
+
+        assertEquals(2, archiveService.archiveChunk(CUTOFF, 500));
+
+        InOrder order = inOrder(userResultArchiveMapper);
+        order.verify(userResultArchiveMapper).copyToArchive(List.of(1L, 2L));
+        order.verify(userResultArchiveMapper).deleteFromHot(List.of(1L, 2L));
+    }
+
+    /**
+     * 测试同一批重复执行 - 归档表中已有的记录被忽略，热表中残留的记录照常删除
+     */
+    @Test
+    void testArchiveChunk_RerunSameChunk() {
+        when(userResultArchiveMapper.selectColdIds(CUTOFF, 500)).thenReturn(List.of(1L, 2L), List.of());
+        // 上次复制后删除未完成：这次INSERT IGNORE不再插入
+        when(userResultArchiveMapper.copyToArchive(List.of(1L, 2L))).thenReturn(0);
+        when(userResultArchiveMapper.deleteFromHot(List.of(1L, 2L))).thenReturn(2);
+
+        assertEquals(2, archiveService.archiveChunk(CUTOFF, 500));
+        assertEquals(0, archiveService.archiveChunk(CUTOFF, 500));
+
+        verify(userResultArchiveMapper, times(1)).copyToArchive(anyList());
+        verify(userResultArchiveMapper, times(1)).deleteFromHot(anyList());
+    }
+}
@@ -0,0 +1,39 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.pojo.UserResult;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UserResultCacheServiceImpl 单元测试
+ */
+class UserResultCacheServiceImplTest {
+
+    /**
+     * 测试紧凑编码 - 解码后字段与原记录一致，用户ID取自缓存Key
+     */
+    @Test
+    void testEncodeDecode() {
+        UserResult result = new UserResult();
+        result.setId(100L);
+        result.setUserId(1L);
+        result.setCreatedTime(LocalDateTime.of(2024, 10, 18, 16, 6, 39));
+        result.setCollect(0);
+        result.setUrl("/api/1.0/images/a.png");
+        result.setThumbUrl("/api/1.0/images/a.thumb.webp");
+
+        String item = UserResultCacheServiceImpl.encode(result);
+        UserResult decoded = UserResultCacheServiceImpl.decode(1L, item);
+
+        assertEquals(100L, decoded.getId());
+        assertEquals(1L, decoded.getUserId());
+        assertEquals(result.getCreatedTime(), decoded.getCreatedTime());
+        assertEquals(0, decoded.getCollect());
+        assertEquals(result.getUrl(), decoded.getUrl());
+        assertEquals(result.getThumbUrl(), decoded.getThumbUrl());
+        assertNull(decoded.getDisplayUrl());
+    }
+}
@@ -0,0 +1,119 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.mapper.UserResultArchiveMapper;
+import cn.itcast.star.graph.core.mapper.UserResultMapper;
+import cn.itcast.star.graph.core.pojo.UserResult;
+import cn.itcast.star.graph.core.utils.HistoryCursor;
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import org.apache.ibatis.builder.MapperBuilderAssistant;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserResultServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class UserResultServiceImplTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2024, 10, 18, 16, 0, 0);
+
+    @Mock
+    private UserResultMapper userResultMapper;
+
+    @Mock
+    private UserResultArchiveMapper userResultArchiveMapper;
+
+    @InjectMocks
+    private UserResultServiceImpl userResultService;
+
+    @BeforeAll
+    static void initTableInfo() {
+        // LambdaQueryWrapper按实体的表信息解析列名
+        TableInfoHelper.initTableInfo(new MapperBuilderAssistant(new MybatisConfiguration(), ""), UserResult.class);
+    }
+
+    @BeforeEach
+    void setUp() {
+        // baseMapper是ServiceImpl的泛型字段，@InjectMocks不会注入
+        ReflectionTestUtils.setField(userResultService, "baseMapper", userResultMapper);
+    }
+
+    /**
+     * 测试游标跨入归档表 - 热表不足一页时从热表最后一条继续查询归档表
+     */
+    @Test
+    void testListAfter_CrossIntoArchive() {
+        when(userResultMapper.selectList(any())).thenReturn(List.of(result(3L, NOW)));
+        when(userResultArchiveMapper.listAfter(eq(1L), any(HistoryCursor.class), eq(2)))
+                .thenReturn(List.of(result(2L, NOW.minusDays(91)), result(1L, NOW.minusDays(92))));
+
+        List<UserResult> results = userResultService.listAfter(1L, null, 3);
+
+        assertEquals(List.of(3L, 2L, 1L), results.stream().map(UserResult::getId).toList());
+        verify(userResultArchiveMapper).listAfter(eq(1L),
+                argThat(c -> c.getId() == 3L && NOW.equals(c.getCreatedTime())), eq(2));
+    }
+
+    /**
+     * 测试游标已在归档表中 - 热表没有更早的记录，沿用请求的游标查询归档表
+     */
+    @Test
+    void testListAfter_CursorInArchive() {
+        HistoryCursor cursor = HistoryCursor.of(result(2L, NOW.minusDays(91)));
+        when(userResultMapper.selectList(any())).thenReturn(List.of());
+        when(userResultArchiveMapper.listAfter(1L, cursor, 10)).thenReturn(List.of(result(1L, NOW.minusDays(92))));
+
+        List<UserResult> results = userResultService.listAfter(1L, cursor, 10);
+
+        assertEquals(1, results.size());
+        assertEquals(1L, results.get(0).getId());
+    }
+
+    /**
+     * 测试热表足够一页 - 不查询归档表
+     */
+    @Test
+    void testListAfter_HotOnly() {
+        when(userResultMapper.selectList(any())).thenReturn(List.of(result(3L, NOW), result(2L, NOW)));
+
+        List<UserResult> results = userResultService.listAfter(1L, null, 2);
+
+        assertEquals(2, results.size());
+        verifyNoInteractions(userResultArchiveMapper);
+    }
+
+    /**
+     * 测试页码分页 - 按页码计算偏移量，合并查询热表和归档表
+     */
+    @Test
+    void testListPage() {
+        when(userResultArchiveMapper.listPage(1L, 20L, 10, 30L)).thenReturn(List.of(result(1L, NOW.minusDays(91))));
+
+        List<UserResult> results = userResultService.listPage(1L, 3, 10);
+
+        assertEquals(1, results.size());
+        verifyNoInteractions(userResultMapper);
+    }
+
+    private UserResult result(Long id, LocalDateTime createdTime) {
+        UserResult result = new UserResult();
+        result.setId(id);
+        result.setUserId(1L);
+        result.setCreatedTime(createdTime);
+        return result;
+    }
+}
@@ -0,0 +1,85 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.core.exception.CustomException;
+import cn.itcast.star.graph.core.service.WorkflowRegistryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * WorkflowRegistryServiceImpl 单元测试
+ */
+class WorkflowRegistryServiceImplTest {
+
+    private static final String DESCRIPTOR = "{\"name\":\"upscale\",\"title\":\"%s\",\"cost\":%d,"
+            + "\"params\":{\"seed\":{\"node\":\"3\",\"input\":\"seed\",\"type\":\"LONG\"}},"
+            + "\"workflow\":{\"3\":{\"inputs\":{\"seed\":0},\"class_type\":\"KSampler\"}}}";
+
+    @TempDir
+    Path tempDir;
+
+    private WorkflowRegistryServiceImpl registryService;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registryService = new WorkflowRegistryServiceImpl();
+        registryService.externalWorkflowPath = tempDir.toString();
+        file = tempDir.resolve("upscale.json");
+        write(String.format(DESCRIPTOR, "放大", 2), 1000);
+        registryService.init();
+    }
+
+    /**
+     * 测试加载 - 内置工作流和外部工作流都注册，预估消耗按图片数量计算
+     */
+    @Test
+    void testLoad() {
+        assertNotNull(registryService.getTemplate(WorkflowRegistryService.TEXT_TO_IMAGE));
+        assertNotNull(registryService.getTemplate(WorkflowRegistryService.IMAGE_TO_IMAGE));
+        assertEquals(1, registryService.getTemplate(WorkflowRegistryService.TEXT_TO_IMAGE).getCost());
+        assertEquals(6, registryService.estimateCost("upscale", 3));
+        assertThrows(CustomException.class, () -> registryService.getTemplate("missing"));
+    }
+
+    /**
+     * 测试热加载 - 外部描述文件修改后无需重启即生效
+     */
+    @Test
+    void testReloadIfModified() throws IOException {
+        write(String.format(DESCRIPTOR, "高清放大", 3), 2000);
+
+        registryService.reloadIfModified();
+
+        assertEquals("高清放大", registryService.getTemplate("upscale").getTitle());
+        assertEquals(3, registryService.getTemplate("upscale").getCost());
+    }
+
+    /**
+     * 测试描述文件不合法 - 保留该工作流的旧版本，不影响其他工作流
+     */
+    @Test
+    void testReload_InvalidKeepsPrevious() throws IOException {
+        // 槽位指向不存在的节点
+        write(String.format(DESCRIPTOR, "高清放大", 3).replace("\"node\":\"3\"", "\"node\":\"9\""), 2000);
+
+        registryService.reloadIfModified();
+
+        assertEquals("放大", registryService.getTemplate("upscale").getTitle());
+        assertEquals(2, registryService.getTemplate("upscale").getCost());
+        assertNotNull(registryService.getTemplate(WorkflowRegistryService.TEXT_TO_IMAGE));
+    }
+
+    private void write(String content, long lastModified) throws IOException {
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        // 固定修改时间，避免同一毫秒内的两次写入签名相同
+        file.toFile().setLastModified(lastModified);
+    }
+}
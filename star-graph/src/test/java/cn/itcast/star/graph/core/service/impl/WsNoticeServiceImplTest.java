@@ -0,0 +1,72 @@
+package cn.itcast.star.graph.core.service.impl;
+
+import cn.itcast.star.graph.comfyui.client.pojo.ComfyuiTask;
+import cn.itcast.star.graph.core.service.TaskEventLogService;
+import cn.itcast.star.graph.core.service.TaskEventStreamService;
+import cn.itcast.star.graph.core.wserver.WsRelay;
+import cn.itcast.star.graph.core.wserver.WsSessionRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * WsNoticeServiceImpl 单元测试
+ */
+@ExtendWith(MockitoExtension.class)
+class WsNoticeServiceImplTest {
+
+    @Mock
+    private SimpMessagingTemplate simpMessagingTemplate;
+
+    @Mock
+    private WsSessionRegistry wsSessionRegistry;
+
+    @Mock
+    private WsRelay wsRelay;
+
+    @Mock
+    private TaskEventLogService taskEventLogService;
+
+    @Mock
+    private TaskEventStreamService taskEventStreamService;
+
+    @InjectMocks
+    private WsNoticeServiceImpl wsNoticeService;
+
+    @BeforeEach
+    void setUp() {
+        wsNoticeService.meterRegistry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * 测试推送任务事件 - 推送内容带上seq和taskId，调用方的Map不被修改
+     */
+    @Test
+    void testSendTaskEvent_EventNotMutated() {
+        ComfyuiTask task = new ComfyuiTask("client-1", null);
+        task.setId("task-1");
+        task.setUserId(1L);
+        when(taskEventLogService.append(eq("task-1"), eq(1L), anyMap(), anyInt())).thenReturn(3L);
+        HashMap<String, Object> event = new HashMap<>();
+        event.put("type", "start");
+
+        wsNoticeService.sendTaskEvent(task, event);
+
+        assertEquals(Map.of("type", "start"), event);
+        verify(simpMessagingTemplate).convertAndSendToUser(eq("client-1"), eq(WsNoticeServiceImpl.COMFYUI_QUEUE_TOPIC),
+                argThat((String json) -> json.contains("\"taskId\":\"task-1\"")));
+        verify(taskEventStreamService).publish(eq("task-1"), eq(3L), anyString());
+    }
+}
@@ -0,0 +1,197 @@
+package cn.itcast.star.graph.core.translate;
+
+import cn.itcast.star.graph.ollama.client.api.OllamaApi;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRequest;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaChatRespone;
+import cn.itcast.star.graph.ollama.client.pojo.OllamaMessage;
+import com.alibaba.fastjson2.JSON;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import retrofit2.Call;
+import retrofit2.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * OllamaTranslateBatcher 单元测试
+ */
+class OllamaTranslateBatcherTest {
+
+    private OllamaTranslateBatcher batcher;
+    private OllamaApi ollamaApi;
+    /** 每次调用的请求，按调用顺序 */
+    private final List<OllamaChatRequest> requests = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        ollamaApi = mock(OllamaApi.class);
+        batcher = new OllamaTranslateBatcher();
+        batcher.ollamaApi = ollamaApi;
+    }
+
+    @AfterEach
+    void tearDown() {
+        batcher.stop();
+    }
+
+    /**
+     * 测试批量翻译 - 同一窗口内的请求合并为一次调用，相同文本只发送一次
+     */
+    @Test
+    void testSubmit_Batched() throws Exception {
+        reply(request -> isBatch(request) ? "{\"translations\":[\"red dress\",\"twin tails\"]}" : null);
+        CompletableFuture<String> a = batcher.submit("红色连衣裙");
+        CompletableFuture<String> b = batcher.submit("双马尾");
+        CompletableFuture<String> c = batcher.submit("双马尾");
+
+        batcher.start();
+
+        assertEquals("red dress", a.get(2, TimeUnit.SECONDS));
+        assertEquals("twin tails", b.get(2, TimeUnit.SECONDS));
+        assertEquals("twin tails", c.get(2, TimeUnit.SECONDS));
+        assertEquals(1, requests.size());
+        assertEquals(List.of("红色连衣裙", "双马尾"), texts(requests.get(0)));
+    }
+
+    /**
+     * 测试聚合窗口 - 超过窗口期到达的请求单独发送
+     */
+    @Test
+    void testSubmit_WindowElapsed() throws Exception {
+        reply(request -> "T:" + request.getMessages().get(0).getContent());
+        batcher.start();
+
+        CompletableFuture<String> a = batcher.submit("红色");
+        assertNotNull(a.get(2, TimeUnit.SECONDS));
+        CompletableFuture<String> b = batcher.submit("蓝色");
+        assertNotNull(b.get(2, TimeUnit.SECONDS));
+
+        assertEquals(2, requests.size());
+        assertTrue(requests.stream().noneMatch(this::isBatch));
+    }
+
+    /**
+     * 测试单批上限 - 最多16条，其余进入下一批
+     */
+    @Test
+    void testSubmit_MaxBatchSize() throws Exception {
+        reply(request -> JSON.toJSONString(Map.of("translations", texts(request).stream().map(t -> "en-" + t).toList())));
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(batcher.submit("文本" + i));
+        }
+
+        batcher.start();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("en-文本" + i, futures.get(i).get(2, TimeUnit.SECONDS));
+        }
+        assertEquals(List.of(16, 4), requests.stream().map(r -> texts(r).size()).sorted((x, y) -> y - x).toList());
+    }
+
+    /**
+     * 测试批量结果不是合法JSON - 回退为逐条翻译
+     */
+    @Test
+    void testSubmit_MalformedFallback() throws Exception {
+        reply(request -> isBatch(request) ? "red dress, twin tails" : "T:" + request.getMessages().get(0).getContent());
+        CompletableFuture<String> a = batcher.submit("红色连衣裙");
+        CompletableFuture<String> b = batcher.submit("双马尾");
+
+        batcher.start();
+
+        assertEquals("T:帮我把以下内容翻译成英文:红色连衣裙", a.get(2, TimeUnit.SECONDS));
+        assertEquals("T:帮我把以下内容翻译成英文:双马尾", b.get(2, TimeUnit.SECONDS));
+        assertEquals(3, requests.size());
+    }
+
+    /**
+     * 测试批量结果数量不足 - 回退为逐条翻译
+     */
+    @Test
+    void testSubmit_ShortResponseFallback() throws Exception {
+        reply(request -> isBatch(request) ? "{\"translations\":[\"red dress\"]}" : "single");
+        CompletableFuture<String> a = batcher.submit("红色连衣裙");
+        CompletableFuture<String> b = batcher.submit("双马尾");
+
+        batcher.start();
+
+        assertEquals("single", a.get(2, TimeUnit.SECONDS));
+        assertEquals("single", b.get(2, TimeUnit.SECONDS));
+        assertEquals(3, requests.size());
+    }
+
+    /**
+     * 测试背压 - 在途批次和等待队列都满时由收集线程自己执行
+     */
+    @Test
+    void testSubmit_CallerRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> threads = new CopyOnWriteArrayList<>();
+        reply(request -> {
+            String thread = Thread.currentThread().getName();
+            threads.add(thread);
+            if (thread.equals("ollama-translate-batch")) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return "ok";
+        });
+        batcher.start();
+
+        // 4个在途 + 4个排队，第9批由收集线程执行
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 9; i++) {
+            futures.add(batcher.submit("文本" + i));
+            Thread.sleep(30);
+        }
+
+        assertEquals("ok", futures.get(8).get(2, TimeUnit.SECONDS));
+        assertTrue(threads.contains("ollama-translate-collector"));
+        release.countDown();
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("ok", future.get(2, TimeUnit.SECONDS));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void reply(Function<OllamaChatRequest, String> content) {
+        when(ollamaApi.chat(any())).thenAnswer(invocation -> {
+            OllamaChatRequest request = invocation.getArgument(0);
+            requests.add(request);
+            return mock(Call.class, call -> {
+                if (!"execute".equals(call.getMethod().getName())) {
+                    return null;
+                }
+                OllamaMessage message = new OllamaMessage();
+                message.setContent(content.apply(request));
+                OllamaChatRespone respone = new OllamaChatRespone();
+                respone.setMessage(message);
+                return Response.success(respone);
+            });
+        });
+    }
+
+    private boolean isBatch(OllamaChatRequest request) {
+        return "json".equals(request.getFormat());
+    }
+
+    private List<String> texts(OllamaChatRequest request) {
+        return isBatch(request) ? JSON.parseArray(request.getMessages().get(1).getContent(), String.class) : List.of();
+    }
+}